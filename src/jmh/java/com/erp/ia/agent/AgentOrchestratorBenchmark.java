@@ -0,0 +1,105 @@
+package com.erp.ia.agent;
+
+import com.erp.ia.ErpIaApplication;
+import com.erp.ia.agent.model.AgentRequest;
+import com.erp.ia.agent.model.AgentResponse;
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.model.Stock;
+import com.erp.ia.core.repository.ProductRepository;
+import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.core.service.StockReadModel;
+import com.erp.ia.llm.LlmPort;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link AgentOrchestrator#process} against H2 (test profile): routing,
+ * tool calls, prompt lookup, output validation, policy and the audit write.
+ * The LLM is a constant stub so only our own overhead is measured; tool and
+ * LLM response caches are off so every iteration does the real work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentOrchestratorBenchmark {
+
+    private static final String LLM_OUTPUT = """
+            {"response": "Estoque analisado: 1 item abaixo do mínimo.",
+             "actionPlan": {"summary": "Repor SKU-BENCH-0",
+               "actions": [{"type": "DRAFT_PURCHASE_ORDER", "params": {"supplier": "ACME"},
+                            "risk": "MEDIUM", "requiresApproval": true}]}}""";
+
+    @Param({ "stock", "reorder" })
+    public String intent;
+
+    private ConfigurableApplicationContext context;
+    private AgentOrchestrator orchestrator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ErpIaApplication.class, StubLlmConfig.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                // command-line args: must win over the profile's yml
+                .run("--llm.provider=stub",
+                        "--llm.cache.enabled=false",
+                        "--tool.cache.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:erp_bench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        orchestrator = context.getBean(AgentOrchestrator.class);
+        seed(context.getBean(ProductRepository.class), context.getBean(StockRepository.class));
+        // seeded through repositories (no events) after the model was built
+        context.getBean(StockReadModel.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AgentResponse process() {
+        return orchestrator.process(new AgentRequest(intent, Map.of(), "default", "default", null, "bench"));
+    }
+
+    private static void seed(ProductRepository products, StockRepository stocks) {
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setSku("SKU-BENCH-" + i);
+            product.setName("Produto " + i);
+            product.setCategory("bench");
+            product.setUnit("un");
+            product.setTenantId("default");
+            product = products.save(product);
+
+            Stock stock = new Stock();
+            stock.setProduct(product);
+            stock.setWarehouse("WH-0" + (i % 3));
+            stock.setQuantity(BigDecimal.valueOf(i % 7));
+            stock.setMinQuantity(BigDecimal.valueOf(5));
+            stock.setTenantId("default");
+            stocks.save(stock);
+        }
+    }
+
+    @Configuration
+    static class StubLlmConfig {
+
+        @Bean
+        LlmPort stubLlmPort() {
+            return request -> new LlmPort.LlmResponse(LLM_OUTPUT, "stub", "stop",
+                    new LlmPort.LlmResponse.Usage(0, 0, 0), false, null);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.erp.ia.agent;
+
+import com.erp.ia.agent.model.AgentPlan;
+import com.erp.ia.agent.model.AgentRequest;
+import com.erp.ia.agent.model.AgentResponse;
+import com.erp.ia.context.ContextSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intent routing with hundreds of registered intents: exact hits, partial
+ * (contains) hits and misses, which scan every intent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentRegistryBenchmark {
+
+    private static final int INTENTS_PER_AGENT = 25;
+
+    @Param({ "100", "500" })
+    public int intents;
+
+    private AgentRegistry registry;
+    private String exactIntent;
+    private String partialIntent;
+
+    @Setup
+    public void setUp() {
+        List<AgentDefinition> agents = new ArrayList<>();
+        Set<String> current = new HashSet<>();
+        for (int i = 0; i < intents; i++) {
+            current.add("intent-" + i);
+            if (current.size() == INTENTS_PER_AGENT || i == intents - 1) {
+                agents.add(new StubAgent("agent-" + agents.size(), current));
+                current = new HashSet<>();
+            }
+        }
+        registry = new AgentRegistry(agents);
+        exactIntent = "intent-" + (intents / 2);
+        partialIntent = "por favor verifique intent-" + (intents - 1) + " agora";
+    }
+
+    @Benchmark
+    public Optional<AgentDefinition> exactMatch() {
+        return registry.findByIntent(exactIntent);
+    }
+
+    @Benchmark
+    public Optional<AgentDefinition> partialMatch() {
+        return registry.findByIntent(partialIntent);
+    }
+
+    @Benchmark
+    public Optional<AgentDefinition> miss() {
+        return registry.findByIntent("nenhuma correspondencia possivel");
+    }
+
+    private record StubAgent(String name, Set<String> intents) implements AgentDefinition {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+
+        @Override
+        public Set<String> getSupportedIntents() {
+            return intents;
+        }
+
+        @Override
+        public AgentPlan plan(AgentRequest request) {
+            return AgentPlan.empty();
+        }
+
+        @Override
+        public AgentResponse synthesize(AgentRequest request, ContextSnapshot context) {
+            return new AgentResponse("", null, List.of(), null);
+        }
+    }
+}
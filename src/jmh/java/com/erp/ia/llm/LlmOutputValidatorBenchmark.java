@@ -0,0 +1,59 @@
+package com.erp.ia.llm;
+
+import com.erp.ia.agent.model.LlmAgentOutput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON extraction and contract validation over the output shapes we actually
+ * get back from models: clean, fenced, and wrapped in chatter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LlmOutputValidatorBenchmark {
+
+    private static final String BODY = """
+            {"response": "Encontrei 3 itens abaixo do mínimo no depósito WH-01.",
+             "reasoning": "Estoque atual menor que o mínimo configurado para SKU-001, SKU-007 e SKU-019.",
+             "actionPlan": {"summary": "Criar pedido de compra para reposição",
+               "actions": [
+                 {"type": "DRAFT_PURCHASE_ORDER", "params": {"supplier": "ACME", "items": [
+                   {"sku": "SKU-001", "quantity": 20}, {"sku": "SKU-007", "quantity": 5},
+                   {"sku": "SKU-019", "quantity": 12}]}, "risk": "MEDIUM", "requiresApproval": true}
+               ]}}""";
+
+    @Param({ "clean", "fenced", "noisy" })
+    public String shape;
+
+    private String output;
+    private LlmOutputValidator validator;
+
+    @Setup
+    public void setUp() {
+        output = switch (shape) {
+            case "fenced" -> "```json\n" + BODY + "\n```";
+            case "noisy" -> "Claro! Aqui está a análise solicitada:\n\n" + BODY
+                    + "\n\nSe precisar de mais detalhes, é só pedir.";
+            default -> BODY;
+        };
+        validator = new LlmOutputValidator(new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Benchmark
+    public String extractJson() {
+        return validator.extractJson(output);
+    }
+
+    @Benchmark
+    public LlmAgentOutput validateAndParse() {
+        return validator.validateAndParse(output, LlmAgentOutput.class);
+    }
+}
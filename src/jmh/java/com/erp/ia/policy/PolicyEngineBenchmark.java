@@ -0,0 +1,60 @@
+package com.erp.ia.policy;
+
+import com.erp.ia.agent.model.ActionPlan;
+import com.erp.ia.agent.model.ActionType;
+import com.erp.ia.agent.model.AgentRequest;
+import com.erp.ia.agent.model.PlannedAction;
+import com.erp.ia.agent.model.RiskLevel;
+import com.erp.ia.policy.rules.ApprovalRequiredRule;
+import com.erp.ia.policy.rules.EvidenceRequiredRule;
+import com.erp.ia.policy.rules.SpendingLimitRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy validation cost as action plans grow, with the production rule set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyEngineBenchmark {
+
+    @Param({ "1", "10", "100", "500" })
+    public int actions;
+
+    private PolicyEngine engine;
+    private ActionPlan plan;
+    private AgentRequest request;
+
+    @Setup
+    public void setUp() {
+        engine = new PolicyEngine(List.of(
+                new ApprovalRequiredRule(), new EvidenceRequiredRule(), new SpendingLimitRule()),
+                new SimpleMeterRegistry());
+
+        RiskLevel[] risks = RiskLevel.values();
+        List<PlannedAction> planned = new ArrayList<>(actions);
+        for (int i = 0; i < actions; i++) {
+            planned.add(new PlannedAction(
+                    i % 2 == 0 ? ActionType.ADJUST_STOCK : ActionType.DRAFT_PURCHASE_ORDER,
+                    Map.of("productId", i, "delta", 5),
+                    risks[i % risks.length],
+                    true));
+        }
+        plan = new ActionPlan("benchmark", planned);
+        request = new AgentRequest("reorder", Map.of(), "default", "default", "bench", "admin");
+    }
+
+    @Benchmark
+    public PolicyResult validate() {
+        return engine.validate(plan, request);
+    }
+}
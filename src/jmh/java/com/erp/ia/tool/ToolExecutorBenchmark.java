@@ -0,0 +1,76 @@
+package com.erp.ia.tool;
+
+import com.erp.ia.event.InMemoryEventBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead ToolExecutor adds around a tool: Map → input DTO conversion, cache
+ * key normalization and lookup. The tool itself does no work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolExecutorBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean cacheEnabled;
+
+    private ToolExecutor executor;
+    private final Map<String, Object> parameters = Map.of(
+            "productId", 42L, "warehouse", "WH-01", "tenantId", "default");
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ToolRegistry registry = new ToolRegistry(List.of(new NoopTool()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InMemoryEventBus eventBus = new InMemoryEventBus(meterRegistry, 8, 1024,
+                InMemoryEventBus.OverflowPolicy.BLOCK, Duration.ofSeconds(5), 3, Duration.ofMillis(100), 1000);
+        ToolResultCache cache = new ToolResultCache(registry, eventBus, meterRegistry,
+                cacheEnabled, Duration.ofMinutes(10), 1000, Duration.ofSeconds(5));
+        executor = new ToolExecutor(registry, objectMapper, cache);
+    }
+
+    @Benchmark
+    public Object executeTool() {
+        return executor.executeTool("NoopTool", parameters);
+    }
+
+    static class NoopTool implements AgentTool<StockQueryTool.Input, String> {
+
+        @Override
+        public String getName() {
+            return "NoopTool";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Returns a constant";
+        }
+
+        @Override
+        public Class<StockQueryTool.Input> getInputType() {
+            return StockQueryTool.Input.class;
+        }
+
+        @Override
+        public Class<String> getOutputType() {
+            return String.class;
+        }
+
+        @Override
+        public String execute(StockQueryTool.Input input) {
+            return "ok";
+        }
+    }
+}
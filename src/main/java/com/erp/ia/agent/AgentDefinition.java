@@ -35,4 +35,12 @@ public interface AgentDefinition {
     default boolean usesLlm() {
         return true;
     }
+
+    /**
+     * Token budget for the evidence placed in this agent's prompt; 0 uses
+     * {@code llm.evidence.token-budget}.
+     */
+    default int evidenceTokenBudget() {
+        return 0;
+    }
 }
@@ -5,7 +5,9 @@ import com.erp.ia.audit.DecisionLogService;
 import com.erp.ia.audit.model.DecisionLog;
 import com.erp.ia.audit.model.DecisionToolCall;
 import com.erp.ia.context.ContextAssembler;
+import com.erp.ia.context.EvidenceCompactor;
 import com.erp.ia.context.ContextSnapshot;
+import com.erp.ia.llm.IncrementalJsonValidator;
 import com.erp.ia.llm.LlmOutputValidator;
 import com.erp.ia.llm.LlmPort;
 import com.erp.ia.llm.LlmPort.LlmRequest;
@@ -15,14 +17,18 @@ import com.erp.ia.policy.PolicyResult;
 import com.erp.ia.prompt.PromptRegistryService;
 import com.erp.ia.prompt.model.PromptTemplate;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 /**
  * Orchestrates the full agent lifecycle:
@@ -30,16 +36,29 @@ import java.util.Optional;
  * 2. Agent.plan() → tool calls needed
  * 3. ContextAssembler executes tools, collects Evidence
  * 4. If agent.usesLlm():
- * a. Resolve prompt from PromptRegistryService
- * b. Call LlmPort with prompt + evidence
+ * a. Resolve prompt from PromptRegistryService and compact the evidence into
+ * the agent's token budget (EvidenceCompactor; cuts are audited)
+ * (a validated answer for the same prompt version, evidence and intent is
+ * reused from LlmResponseCache instead of calling the LLM again)
+ * b. Stream LlmPort with prompt + evidence, aborting as soon as the partial
+ * output can no longer match the LlmAgentOutput contract
  * c. Validate output via LlmOutputValidator → LlmAgentOutput
  * d. If valid → use LLM response + ActionPlan
  * e. If invalid/error → fallback to agent.synthesize()
  * 5. PolicyEngine validates ActionPlan
  * 6. DecisionLog records everything (with children persisted in same TX)
  *
- * IMPORTANT: This method is @Transactional so the DecisionLog and its
- * children (tool calls, policy results) are all persisted atomically.
+ * IMPORTANT: The DecisionLog is built in memory and written once, with its
+ * children (tool calls, policy results), by the batched DecisionLogWriter in
+ * its own transaction. save() blocks until that commit, so the audit ID in
+ * the response always refers to a durable row.
+ *
+ * Metrics, all tagged by agent and tenant: {@code agent.phase} timers per
+ * phase (route, plan, context, prompt, validation, policy, audit),
+ * {@code agent.llm.latency} by outcome (ok, error, aborted, cached),
+ * {@code agent.llm.tokens} by type and {@code agent.llm.validation.failures}
+ * by stage. Tool and policy-rule timings are recorded by ContextAssembler and
+ * PolicyEngine.
  */
 @Service
 public class AgentOrchestrator {
@@ -54,6 +73,9 @@ public class AgentOrchestrator {
     private final LlmPort llmPort;
     private final PromptRegistryService promptRegistryService;
     private final LlmOutputValidator llmOutputValidator;
+    private final LlmResponseCache llmResponseCache;
+    private final EvidenceCompactor evidenceCompactor;
+    private final MeterRegistry meterRegistry;
 
     public AgentOrchestrator(AgentRegistry agentRegistry,
             ContextAssembler contextAssembler,
@@ -62,7 +84,10 @@ public class AgentOrchestrator {
             ObjectMapper objectMapper,
             LlmPort llmPort,
             PromptRegistryService promptRegistryService,
-            LlmOutputValidator llmOutputValidator) {
+            LlmOutputValidator llmOutputValidator,
+            LlmResponseCache llmResponseCache,
+            EvidenceCompactor evidenceCompactor,
+            MeterRegistry meterRegistry) {
         this.agentRegistry = agentRegistry;
         this.contextAssembler = contextAssembler;
         this.policyEngine = policyEngine;
@@ -71,30 +96,55 @@ public class AgentOrchestrator {
         this.llmPort = llmPort;
         this.promptRegistryService = promptRegistryService;
         this.llmOutputValidator = llmOutputValidator;
+        this.llmResponseCache = llmResponseCache;
+        this.evidenceCompactor = evidenceCompactor;
+        this.meterRegistry = meterRegistry;
     }
 
-    @Transactional
     public AgentResponse process(AgentRequest request) {
+        return process(request, AgentProgressListener.NONE);
+    }
+
+    /**
+     * Same pipeline, reporting each phase to {@code listener} as it completes.
+     * The final response (with audit ID) is only returned, not reported: the
+     * decision is not committed until this method returns.
+     *
+     * Deliberately not transactional: tools run on worker threads with their
+     * own connections, and the LLM call can take seconds, so a request-wide
+     * transaction would only pin a pooled connection for nothing.
+     */
+    public AgentResponse process(AgentRequest request, AgentProgressListener listener) {
         String correlationId = request.correlationId() != null
                 ? request.correlationId()
                 : MDC.get("correlationId");
 
         log.info("Processing intent: '{}' [correlation={}]", request.intent(), correlationId);
+        String tenant = Objects.requireNonNullElse(request.tenantId(), "none");
 
         // 1. Find agent
-        AgentDefinition agent = agentRegistry.findByIntent(request.intent())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "No agent found for intent: " + request.intent()));
+        Timer.Sample phase = Timer.start(meterRegistry);
+        Optional<AgentDefinition> routed = agentRegistry.findByIntent(request.intent());
+        phase.stop(phaseTimer("route", routed.map(AgentDefinition::getName).orElse("unrouted"), tenant));
+        AgentDefinition agent = routed.orElseThrow(() -> new IllegalArgumentException(
+                "No agent found for intent: " + request.intent()));
 
         log.info("Routed to agent: {}", agent.getName());
+        listener.onRouted(agent.getName());
 
         // 2. Plan phase
+        phase = Timer.start(meterRegistry);
         AgentPlan plan = agent.plan(request);
+        phase.stop(phaseTimer("plan", agent.getName(), tenant));
         log.info("Agent plan: {} tool calls", plan.toolCalls().size());
 
         // 3. Assemble context (execute tools, collect evidence)
-        ContextSnapshot context = contextAssembler.assemble(request, agent.getName(), plan);
+        phase = Timer.start(meterRegistry);
+        ContextSnapshot context = contextAssembler.assemble(request, agent.getName(), plan,
+                listener::onEvidence);
+        phase.stop(phaseTimer("context", agent.getName(), tenant));
         log.info("Context assembled: {} evidences", context.getEvidences().size());
+        checkCancelled(listener);
 
         // 4. Synthesize: try LLM first, fallback to deterministic
         AgentResponse response;
@@ -102,18 +152,22 @@ public class AgentOrchestrator {
         Integer promptVersion = null;
         String llmRequestJson = null;
         String llmResponseJson = null;
+        boolean llmCacheHit = false;
+        String evidenceTruncation = null;
         DecisionLog.DecisionStatus outputStatus = null;
 
         if (agent.usesLlm()) {
             // 4a. Try LLM-backed synthesis
-            LlmSynthesisResult llmResult = synthesizeViaLlm(agent, request, context);
+            LlmSynthesisResult llmResult = synthesizeViaLlm(agent, request, context, listener, tenant);
             promptName = llmResult.promptName;
             promptVersion = llmResult.promptVersion;
             llmRequestJson = llmResult.llmRequestJson;
             llmResponseJson = llmResult.llmResponseJson;
+            evidenceTruncation = llmResult.evidenceTruncation;
 
             if (llmResult.response != null) {
                 response = llmResult.response;
+                llmCacheHit = llmResult.cacheHit;
                 log.info("LLM synthesis succeeded for agent '{}'", agent.getName());
             } else if (llmResult.outputInvalid) {
                 outputStatus = DecisionLog.DecisionStatus.OUTPUT_INVALID;
@@ -131,14 +185,19 @@ public class AgentOrchestrator {
             log.info("Agent '{}' uses deterministic synthesize (usesLlm=false)", agent.getName());
         }
 
+        checkCancelled(listener);
+
         // 5. Validate action plan via PolicyEngine
         PolicyResult policyResult = PolicyResult.pass();
         if (response.actionPlan() != null && response.actionPlan().hasActions()) {
-            policyResult = policyEngine.validate(response.actionPlan(), request);
+            phase = Timer.start(meterRegistry);
+            policyResult = policyEngine.validate(response.actionPlan(), request, agent.getName());
+            phase.stop(phaseTimer("policy", agent.getName(), tenant));
             log.info("Policy result: {}", policyResult.status());
         }
+        listener.onPolicy(policyResult);
 
-        // 6. Log decision — parent saved first
+        // 6. Build decision log in memory
         String actionPlanJson = serializeSafe(response.actionPlan());
         String inputDataJson = serializeSafe(request.context());
 
@@ -152,12 +211,14 @@ public class AgentOrchestrator {
         if (outputStatus != null) {
             decisionLog.setStatus(outputStatus);
         }
+        decisionLog.setLlmCacheHit(llmCacheHit);
+        decisionLog.setEvidenceTruncation(evidenceTruncation);
 
         // Record tool calls in structured audit
         for (var evidence : context.getEvidences()) {
             DecisionToolCall toolCall = new DecisionToolCall(
                     evidence.source(), serializeSafe(evidence.query()),
-                    serializeSafe(evidence.payload()), null);
+                    serializeSafe(evidence.payload()), evidence.durationMs());
             decisionLog.addToolCall(toolCall);
         }
 
@@ -171,9 +232,10 @@ public class AgentOrchestrator {
             decisionLog.setStatus(DecisionLog.DecisionStatus.REJECTED);
         }
 
-        // Explicit save — guarantees children (toolCalls, policyResults) and status are
-        // persisted
+        // Single write of parent + children, acknowledged once committed
+        phase = Timer.start(meterRegistry);
         decisionLogService.save(decisionLog);
+        phase.stop(phaseTimer("audit", agent.getName(), tenant));
 
         log.info("Decision logged: {} [status={}]", decisionLog.getId(), decisionLog.getStatus());
 
@@ -204,14 +266,16 @@ public class AgentOrchestrator {
     // ────────────────────────────────────────────────────────────
 
     private LlmSynthesisResult synthesizeViaLlm(AgentDefinition agent,
-            AgentRequest request, ContextSnapshot context) {
+            AgentRequest request, ContextSnapshot context, AgentProgressListener listener, String tenant) {
         LlmSynthesisResult result = new LlmSynthesisResult();
 
         // 1. Resolve prompt template
+        Timer.Sample phase = Timer.start(meterRegistry);
         Optional<PromptTemplate> promptOpt = promptRegistryService.getActivePrompt(
                 agent.getName(), request.tenantId());
 
         if (promptOpt.isEmpty()) {
+            phase.stop(phaseTimer("prompt", agent.getName(), tenant));
             log.warn("No active prompt found for agent '{}' / tenant '{}' — skipping LLM",
                     agent.getName(), request.tenantId());
             return result;
@@ -221,9 +285,26 @@ public class AgentOrchestrator {
         result.promptName = prompt.getName();
         result.promptVersion = prompt.getVersion();
 
-        // 2. Build prompt content (replace {{evidence}} with actual evidence)
-        String evidenceJson = serializeSafe(context.getEvidences());
-        String resolvedPrompt = prompt.getContent().replace("{{evidence}}", evidenceJson);
+        // 2. Render the compiled prompt: built-ins first, then request context
+        EvidenceCompactor.Compacted evidence = evidenceCompactor.compact(context.getEvidences(),
+                agent.evidenceTokenBudget());
+        if (evidence.truncated()) {
+            log.info("Evidence for agent '{}' compacted to ~{} tokens, truncated: {}",
+                    agent.getName(), evidence.estimatedTokens(), evidence.truncations());
+            result.evidenceTruncation = serializeSafe(evidence.truncations());
+        }
+        String evidenceText = evidence.text();
+        String resolvedPrompt = prompt.compiled().render(variable -> switch (variable) {
+            case "evidence" -> evidenceText;
+            case "tenantId" -> request.tenantId();
+            case "storeId" -> request.storeId();
+            case "intent" -> request.intent();
+            default -> {
+                Object value = request.context().get(variable);
+                yield value != null ? value.toString() : null;
+            }
+        });
+        phase.stop(phaseTimer("prompt", agent.getName(), tenant));
 
         // 3. Build LLM request
         LlmRequest llmRequest = new LlmRequest(
@@ -238,13 +319,34 @@ public class AgentOrchestrator {
 
         result.llmRequestJson = serializeSafe(llmRequest);
 
-        // 4. Call LLM
+        // 4. Reuse a cached answer, or stream LLM output through the incremental
+        // contract check
+        LlmResponseCache.Key cacheKey = llmResponseCache.key(agent.getName(), request.tenantId(), prompt,
+                context.getEvidences(), request.intent());
+        IncrementalJsonValidator incremental = new IncrementalJsonValidator(objectMapper, LlmAgentOutput.class);
         LlmResponse llmResponse;
-        try {
-            llmResponse = llmPort.complete(llmRequest);
-        } catch (Exception e) {
-            log.error("LLM call failed for agent '{}': {}", agent.getName(), e.getMessage());
-            return result;
+        Timer.Sample llmCall = Timer.start(meterRegistry);
+        Optional<LlmResponse> cached = llmResponseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            log.info("LLM response cache hit for agent '{}' (prompt {} v{})",
+                    agent.getName(), prompt.getName(), prompt.getVersion());
+            llmResponse = cached.get();
+            result.cacheHit = true;
+            listener.onLlmChunk(llmResponse.content());
+            llmCall.stop(llmTimer(agent.getName(), tenant, "cached"));
+        } else {
+            try {
+                llmResponse = llmPort.stream(llmRequest, chunk -> {
+                    listener.onLlmChunk(chunk);
+                    return incremental.accept(chunk);
+                });
+            } catch (Exception e) {
+                llmCall.stop(llmTimer(agent.getName(), tenant, "error"));
+                log.error("LLM call failed for agent '{}': {}", agent.getName(), e.getMessage());
+                return result;
+            }
+            llmCall.stop(llmTimer(agent.getName(), tenant, llmOutcome(llmResponse)));
+            recordTokens(agent.getName(), tenant, llmResponse.usage());
         }
 
         if (llmResponse.error()) {
@@ -255,16 +357,30 @@ public class AgentOrchestrator {
 
         result.llmResponseJson = llmResponse.content();
 
+        if (incremental.getState() == IncrementalJsonValidator.State.INVALID) {
+            log.warn("LLM output for agent '{}' stopped early: {}", agent.getName(), incremental.getReason());
+            validationFailure(agent.getName(), tenant, "incremental");
+            result.outputInvalid = true;
+            return result;
+        }
+
         // 5. Validate and parse LLM output
+        phase = Timer.start(meterRegistry);
         LlmAgentOutput llmOutput = llmOutputValidator.validateAndParse(
                 llmResponse.content(), LlmAgentOutput.class);
+        phase.stop(phaseTimer("validation", agent.getName(), tenant));
 
         if (llmOutput == null) {
             log.warn("LLM output validation failed for agent '{}'", agent.getName());
+            validationFailure(agent.getName(), tenant, "final");
             result.outputInvalid = true;
             return result;
         }
 
+        if (!result.cacheHit) {
+            llmResponseCache.put(cacheKey, llmResponse);
+        }
+
         // 6. Convert to domain objects
         ActionPlan actionPlan = llmOutput.toDomainActionPlan();
 
@@ -286,9 +402,69 @@ public class AgentOrchestrator {
         String llmRequestJson;
         String llmResponseJson;
         boolean outputInvalid;
+        boolean cacheHit;
+        String evidenceTruncation;
         AgentResponse response; // null if LLM failed/unavailable
     }
 
+    private static void checkCancelled(AgentProgressListener listener) {
+        if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Intent abandoned by the caller");
+        }
+    }
+
+    // ────────────────────────────────────────────────────────────
+    // Metrics
+    // ────────────────────────────────────────────────────────────
+
+    private Timer phaseTimer(String phase, String agentName, String tenant) {
+        return Timer.builder("agent.phase")
+                .tag("phase", phase)
+                .tag("agent", agentName)
+                .tag("tenant", tenant)
+                .register(meterRegistry);
+    }
+
+    private Timer llmTimer(String agentName, String tenant, String outcome) {
+        return Timer.builder("agent.llm.latency")
+                .tag("agent", agentName)
+                .tag("tenant", tenant)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String llmOutcome(LlmResponse response) {
+        if (response.error()) {
+            return "error";
+        }
+        return LlmResponse.FINISH_ABORTED.equals(response.finishReason()) ? "aborted" : "ok";
+    }
+
+    private void recordTokens(String agentName, String tenant, LlmResponse.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        tokenCounter(agentName, tenant, "prompt").increment(usage.promptTokens());
+        tokenCounter(agentName, tenant, "completion").increment(usage.completionTokens());
+    }
+
+    private Counter tokenCounter(String agentName, String tenant, String type) {
+        return Counter.builder("agent.llm.tokens")
+                .tag("agent", agentName)
+                .tag("tenant", tenant)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private void validationFailure(String agentName, String tenant, String stage) {
+        Counter.builder("agent.llm.validation.failures")
+                .tag("agent", agentName)
+                .tag("tenant", tenant)
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+
     private String serializeSafe(Object obj) {
         if (obj == null)
             return null;
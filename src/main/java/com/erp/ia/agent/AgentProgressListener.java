@@ -0,0 +1,32 @@
+package com.erp.ia.agent;
+
+import com.erp.ia.context.Evidence;
+import com.erp.ia.policy.PolicyResult;
+
+/**
+ * Receives orchestrator progress as each phase completes, e.g. to stream it to
+ * the client. Callbacks may arrive from tool worker threads; implementations
+ * must not block or throw.
+ */
+public interface AgentProgressListener {
+
+    AgentProgressListener NONE = new AgentProgressListener() {
+    };
+
+    default void onRouted(String agentName) {
+    }
+
+    default void onEvidence(Evidence evidence) {
+    }
+
+    default void onLlmChunk(String chunk) {
+    }
+
+    default void onPolicy(PolicyResult policyResult) {
+    }
+
+    /** True once nobody waits for the result; the pipeline stops before logging a decision. */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,189 @@
+package com.erp.ia.agent;
+
+import com.erp.ia.context.Evidence;
+import com.erp.ia.event.BatchEventSubscriber;
+import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.TenantScoped;
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.llm.LlmPort.LlmResponse;
+import com.erp.ia.prompt.model.PromptTemplate;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cache of validated LLM answers, in front of {@code LlmPort}.
+ *
+ * The key covers everything the answer depends on: agent, tenant, prompt name
+ * and version, a SHA-256 digest of the evidence (source, query and payload —
+ * timestamps excluded, map keys sorted) and the normalized intent. Entries are
+ * dropped when a prompt version is (re)activated and on a stock change of the
+ * same tenant (of every tenant when the event names none).
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+    private static final int INVALIDATION_BATCH = 512;
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final ObjectMapper canonicalMapper;
+    private final Map<Key, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public LlmResponseCache(EventBus eventBus, MeterRegistry meterRegistry,
+            @Value("${llm.cache.enabled:true}") boolean enabled,
+            @Value("${llm.cache.ttl:10m}") Duration ttl,
+            @Value("${llm.cache.max-entries:1000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.canonicalMapper = JsonMapper.builder()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .findAndAddModules()
+                .build();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > LlmResponseCache.this.maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("llm.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("llm.cache.requests", "result", "miss");
+
+        eventBus.subscribe("PROMPT_ACTIVATED", event -> {
+            PromptActivated activated = (PromptActivated) event;
+            evictPrompt(activated.getPromptName(), activated.getTenantId());
+        });
+        eventBus.subscribeBatch("STOCK_LEVEL_CHANGED", BatchEventSubscriber.Options.drain(INVALIDATION_BATCH),
+                this::evictStockChanges);
+    }
+
+    private void evictStockChanges(List<DomainEvent> events) {
+        Set<String> tenants = new HashSet<>();
+        for (DomainEvent event : events) {
+            String tenantId = event instanceof TenantScoped scoped ? scoped.getTenantId() : null;
+            if (tenantId == null) {
+                clear();
+                return;
+            }
+            tenants.add(tenantId);
+        }
+        synchronized (entries) {
+            entries.keySet().removeIf(k -> tenants.contains(k.tenantId()));
+        }
+    }
+
+    /**
+     * Build the cache key for one synthesis attempt, or null if the evidence
+     * cannot be digested (the call then simply bypasses the cache).
+     */
+    public Key key(String agentName, String tenantId, PromptTemplate prompt, List<Evidence> evidences,
+            String intent) {
+        String digest = evidenceDigest(evidences);
+        if (digest == null) {
+            return null;
+        }
+        return new Key(agentName, tenantId, prompt.getName(), prompt.getVersion(), digest,
+                normalizeIntent(intent));
+    }
+
+    public Optional<LlmResponse> get(Key key) {
+        if (!enabled || key == null) {
+            return Optional.empty();
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(entry.response);
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Store an answer. Only call this with output that passed contract validation.
+     */
+    public void put(Key key, LlmResponse response) {
+        if (!enabled || key == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.nanoTime() + ttl.toNanos()));
+        }
+    }
+
+    public void evictPrompt(String promptName, String tenantId) {
+        synchronized (entries) {
+            entries.keySet().removeIf(k -> Objects.equals(k.promptName(), promptName)
+                    && Objects.equals(k.tenantId(), tenantId));
+        }
+        log.info("LLM response cache evicted for prompt '{}' / tenant '{}'", promptName, tenantId);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    String evidenceDigest(List<Evidence> evidences) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (Evidence evidence : evidences) {
+                Object stable = new Object[] { evidence.source(), evidence.query(), evidence.payload() };
+                sha256.update(canonicalMapper.writeValueAsBytes(stable));
+                sha256.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (Exception e) {
+            log.warn("Evidence not serializable for LLM cache key, bypassing cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static String normalizeIntent(String intent) {
+        return intent == null ? "" : intent.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public record Key(String agentName, String tenantId, String promptName, int promptVersion,
+            String evidenceDigest, String intent) {
+    }
+
+    private record Entry(LlmResponse response, long expiresAt) {
+    }
+}
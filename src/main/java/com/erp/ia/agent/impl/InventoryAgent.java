@@ -35,13 +35,17 @@ public class InventoryAgent implements AgentDefinition {
 
         List<AgentPlan.ToolCall> toolCalls = new ArrayList<>();
 
-        // Always query stock levels
+        boolean reorder = intent.contains("reorder") || intent.contains("reposicao");
+
+        // Always query stock levels; reorder analysis only needs the rows
+        // below minimum, filtered in the database
         toolCalls.add(new AgentPlan.ToolCall(
                 "StockQueryTool",
-                "Query current stock levels",
-                Map.of("tenantId", request.tenantId())));
+                reorder ? "Query stock levels below minimum" : "Query current stock levels",
+                reorder ? Map.of("tenantId", request.tenantId(), "belowMinimum", true)
+                        : Map.of("tenantId", request.tenantId())));
 
-        if (intent.contains("reorder") || intent.contains("reposicao")) {
+        if (reorder) {
             toolCalls.add(new AgentPlan.ToolCall(
                     "ProductQueryTool",
                     "Find products below minimum stock",
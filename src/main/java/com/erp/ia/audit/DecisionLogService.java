@@ -15,12 +15,18 @@ import java.util.UUID;
 public class DecisionLogService {
 
     private final DecisionLogRepository repository;
+    private final DecisionLogWriter writer;
 
-    public DecisionLogService(DecisionLogRepository repository) {
+    public DecisionLogService(DecisionLogRepository repository, DecisionLogWriter writer) {
         this.repository = repository;
+        this.writer = writer;
     }
 
-    @Transactional
+    /**
+     * Build a new decision log in memory. Nothing is written until
+     * {@link #save(DecisionLog)}, so tool calls, policy results and the final
+     * status can be attached first and everything goes out in one insert.
+     */
     public DecisionLog logDecision(String agentName, String intent, String correlationId,
             String promptName, Integer promptVersion,
             String inputData, String llmRequest, String llmResponse,
@@ -38,12 +44,18 @@ public class DecisionLogService {
         log.setActionPlan(actionPlan);
         log.setTenantId(tenantId);
         log.setStoreId(storeId);
-        return repository.save(log);
+        log.setCreatedAt(Instant.now());
+        return log;
     }
 
-    @Transactional
+    /**
+     * Persist a new decision log with its children through the batched
+     * {@link DecisionLogWriter}. Returns once the rows are committed, so the
+     * ID is safe to hand out.
+     */
     public DecisionLog save(DecisionLog decisionLog) {
-        return repository.save(decisionLog);
+        writer.write(decisionLog);
+        return decisionLog;
     }
 
     public Optional<DecisionLog> findById(String id) {
@@ -0,0 +1,243 @@
+package com.erp.ia.audit;
+
+import com.erp.ia.audit.model.DecisionLog;
+import com.erp.ia.audit.model.DecisionPolicyResult;
+import com.erp.ia.audit.model.DecisionToolCall;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind persistence for new decision logs (group commit).
+ *
+ * Callers enqueue a fully built {@link DecisionLog} and block until it is
+ * committed. A single writer thread drains whatever has accumulated (up to
+ * {@code audit.writer.max-batch}) and inserts it with JDBC batches — one per
+ * table — in one transaction, so concurrent requests share round-trips and the
+ * commit. If the queue is full the caller writes its own batch synchronously
+ * instead of waiting (backpressure is visible in the metrics, never a lost row).
+ * Synchronous writes join the caller's transaction if there is one, so they
+ * never take a second connection.
+ *
+ * A caller whose ack does not arrive within {@code audit.writer.ack-timeout}
+ * takes its entry back out of the queue and fails; an entry the writer has
+ * already picked up is waited for, so a failure always means "not written".
+ *
+ * Metrics: {@code audit.writer.queue.size}, {@code audit.writer.batch.size},
+ * {@code audit.writer.flush}, {@code audit.writer.sync.fallback},
+ * {@code audit.writer.failures}.
+ *
+ * Only inserts go through here; status changes (approve, execute) stay on JPA.
+ */
+@Component
+public class DecisionLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionLogWriter.class);
+
+    private static final String INSERT_LOG = """
+            INSERT INTO decision_logs (id, correlation_id, agent_name, intent, prompt_name, prompt_version,
+                input_data, llm_request, llm_response, action_plan, status, approved_by, approved_at,
+                tenant_id, store_id, llm_cache_hit, evidence_truncation, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_TOOL_CALL = """
+            INSERT INTO decision_tool_calls (decision_log_id, tool_name, input_json, output_json, duration_ms, called_at)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_POLICY_RESULT = """
+            INSERT INTO decision_policy_results (decision_log_id, rule_name, result, reason, evaluated_at)
+            VALUES (?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean async;
+    private final int maxBatch;
+    private final Duration ackTimeout;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+    private final Counter syncFallbacks;
+    private final Counter failures;
+
+    public DecisionLogWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${audit.writer.enabled:true}") boolean async,
+            @Value("${audit.writer.queue-capacity:1024}") int queueCapacity,
+            @Value("${audit.writer.max-batch:128}") int maxBatch,
+            @Value("${audit.writer.ack-timeout:5s}") Duration ackTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.async = async;
+        this.maxBatch = maxBatch;
+        this.ackTimeout = ackTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        meterRegistry.gauge("audit.writer.queue.size", queue, BlockingQueue::size);
+        this.batchSize = DistributionSummary.builder("audit.writer.batch.size").register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.writer.flush").register(meterRegistry);
+        this.syncFallbacks = meterRegistry.counter("audit.writer.sync.fallback");
+        this.failures = meterRegistry.counter("audit.writer.failures");
+
+        this.writerThread = Thread.ofPlatform().name("audit-writer").daemon(true).unstarted(this::drainLoop);
+        if (async) {
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Persist a new decision log with its tool calls and policy results.
+     * Returns once the rows are committed (or, on the synchronous path inside a
+     * transaction, written in it).
+     */
+    public void write(DecisionLog decisionLog) {
+        Pending pending = new Pending(decisionLog, new CompletableFuture<>());
+        if (!async || !queue.offer(pending)) {
+            if (async) {
+                syncFallbacks.increment();
+                log.warn("Audit queue full ({}), writing decision {} synchronously",
+                        queue.size(), decisionLog.getId());
+            }
+            flush(List.of(pending));
+        }
+        await(pending);
+    }
+
+    private void await(Pending pending) {
+        try {
+            try {
+                pending.ack.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(pending)) {
+                    throw new RuntimeException("Audit write not acknowledged within " + ackTimeout
+                            + " for decision " + pending.decisionLog.getId());
+                }
+                // Already being flushed: its outcome is the answer
+                pending.ack.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException("Audit write failed for decision " + pending.decisionLog.getId(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for audit write", e);
+        }
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Audit writer loop error: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Insert a batch in one transaction. If the batch fails, entries are retried
+     * one by one so a single bad row does not fail its neighbours.
+     */
+    private void flush(List<Pending> batch) {
+        batchSize.record(batch.size());
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> insert(batch)));
+            batch.forEach(p -> p.ack.complete(null));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failures.increment();
+                log.error("Audit write failed for decision {}: {}", batch.get(0).decisionLog.getId(), e.getMessage());
+                batch.get(0).ack.completeExceptionally(e);
+                return;
+            }
+            log.warn("Audit batch of {} failed ({}), retrying individually", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                flush(List.of(pending));
+            }
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        List<Object[]> logs = new ArrayList<>(batch.size());
+        List<Object[]> toolCalls = new ArrayList<>();
+        List<Object[]> policyResults = new ArrayList<>();
+
+        for (Pending pending : batch) {
+            DecisionLog d = pending.decisionLog;
+            if (d.getCreatedAt() == null) {
+                d.setCreatedAt(Instant.now());
+            }
+            logs.add(new Object[] { d.getId(), d.getCorrelationId(), d.getAgentName(), d.getIntent(),
+                    d.getPromptName(), d.getPromptVersion(), d.getInputData(), d.getLlmRequest(),
+                    d.getLlmResponse(), d.getActionPlan(), d.getStatus().name(), d.getApprovedBy(),
+                    timestamp(d.getApprovedAt()), d.getTenantId(), d.getStoreId(), d.isLlmCacheHit(),
+                    d.getEvidenceTruncation(), timestamp(d.getCreatedAt()) });
+            for (DecisionToolCall tc : d.getToolCalls()) {
+                toolCalls.add(new Object[] { d.getId(), tc.getToolName(), tc.getInputJson(), tc.getOutputJson(),
+                        tc.getDurationMs(), timestamp(tc.getCalledAt()) });
+            }
+            for (DecisionPolicyResult pr : d.getPolicyResults()) {
+                policyResults.add(new Object[] { d.getId(), pr.getRuleName(), pr.getResult(), pr.getReason(),
+                        timestamp(pr.getEvaluatedAt()) });
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_LOG, logs);
+        if (!toolCalls.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TOOL_CALL, toolCalls);
+        }
+        if (!policyResults.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_POLICY_RESULT, policyResults);
+        }
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // No interrupt: the loop notices within one poll interval, and an
+        // in-flight JDBC batch is not cut short
+        running = false;
+        writerThread.join(ackTimeout.toMillis());
+    }
+
+    private record Pending(DecisionLog decisionLog, CompletableFuture<Void> ack) {
+    }
+}
@@ -44,6 +44,12 @@ public class DecisionLog {
     @Column(name = "action_plan", columnDefinition = "TEXT")
     private String actionPlan;
 
+    @Column(name = "llm_cache_hit", nullable = false)
+    private boolean llmCacheHit;
+
+    @Column(name = "evidence_truncation", columnDefinition = "TEXT")
+    private String evidenceTruncation; // JSON list of what compaction left out of the prompt
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 30)
     private DecisionStatus status = DecisionStatus.SUGGESTED;
@@ -203,6 +209,22 @@ public class DecisionLog {
         this.tenantId = tenantId;
     }
 
+    public boolean isLlmCacheHit() {
+        return llmCacheHit;
+    }
+
+    public void setLlmCacheHit(boolean llmCacheHit) {
+        this.llmCacheHit = llmCacheHit;
+    }
+
+    public String getEvidenceTruncation() {
+        return evidenceTruncation;
+    }
+
+    public void setEvidenceTruncation(String evidenceTruncation) {
+        this.evidenceTruncation = evidenceTruncation;
+    }
+
     public String getStoreId() {
         return storeId;
     }
@@ -2,38 +2,187 @@ package com.erp.ia.context;
 
 import com.erp.ia.agent.model.AgentPlan;
 import com.erp.ia.agent.model.AgentRequest;
+import com.erp.ia.tool.ToolCallScope;
 import com.erp.ia.tool.ToolExecutor;
+import com.erp.ia.tool.WatermarkedOutput;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Assembles context (evidence) for an agent by executing the tools specified in
  * its plan.
  * Separated from the orchestrator for testability and single responsibility.
+ *
+ * Tool calls are independent, so they are fanned out on virtual threads and
+ * awaited in plan order. Each tool has its own deadline and the whole plan has
+ * an overall deadline; a tool that misses either becomes a TIMEOUT evidence
+ * instead of blocking the request. The evidence names whichever deadline
+ * fired.
+ *
+ * Tools open their own transactions on the worker threads, so callers should
+ * not hold a transaction (and its pooled connection) while assembling.
+ *
+ * Every call is timed into {@code agent.tool.duration} (tagged by agent,
+ * tenant, tool and outcome) and the measured time travels with the evidence so
+ * the orchestrator can audit it.
  */
 @Component
 public class ContextAssembler {
 
+    private static final Logger log = LoggerFactory.getLogger(ContextAssembler.class);
+
     private final ToolExecutor toolExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration toolTimeout;
+    private final Duration planTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public ContextAssembler(ToolExecutor toolExecutor) {
+    public ContextAssembler(ToolExecutor toolExecutor, MeterRegistry meterRegistry,
+            @Value("${context.tool-timeout:5s}") Duration toolTimeout,
+            @Value("${context.plan-timeout:10s}") Duration planTimeout) {
         this.toolExecutor = toolExecutor;
+        this.meterRegistry = meterRegistry;
+        this.toolTimeout = toolTimeout;
+        this.planTimeout = planTimeout;
     }
 
     /**
-     * Execute the agent's plan: call each tool and collect evidence.
+     * Execute the agent's plan: call each tool in parallel and collect evidence
+     * in plan order.
      */
     public ContextSnapshot assemble(AgentRequest request, String agentName, AgentPlan plan) {
-        List<Evidence> evidences = new ArrayList<>();
+        return assemble(request, agentName, plan, evidence -> {
+        });
+    }
+
+    /**
+     * Same as {@link #assemble(AgentRequest, String, AgentPlan)}, also handing
+     * each evidence to {@code onEvidence} as soon as its tool finishes
+     * (completion order, possibly from a worker thread).
+     */
+    public ContextSnapshot assemble(AgentRequest request, String agentName, AgentPlan plan,
+            Consumer<Evidence> onEvidence) {
+        List<AgentPlan.ToolCall> toolCalls = plan.toolCalls();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        ToolCallScope scope = new ToolCallScope(toolTimeout);
+        String tenant = Objects.requireNonNullElse(request.tenantId(), "none");
 
-        for (AgentPlan.ToolCall toolCall : plan.toolCalls()) {
-            Object result = toolExecutor.executeTool(toolCall.toolName(), toolCall.parameters());
-            evidences.add(new Evidence(toolCall.toolName(), toolCall.description(), result));
+        long planDeadline = System.nanoTime() + planTimeout.toNanos();
+        List<Future<Evidence>> futures = new ArrayList<>(toolCalls.size());
+        List<Long> toolDeadlines = new ArrayList<>(toolCalls.size());
+        List<AtomicBoolean> settled = new ArrayList<>(toolCalls.size());
+
+        for (AgentPlan.ToolCall toolCall : toolCalls) {
+            AtomicBoolean done = new AtomicBoolean();
+            settled.add(done);
+            toolDeadlines.add(System.nanoTime() + toolTimeout.toNanos());
+            futures.add(executor.submit(
+                    () -> executeWithMdc(toolCall, scope, mdc, agentName, tenant, done, onEvidence)));
+        }
+
+        List<Evidence> evidences = new ArrayList<>(toolCalls.size());
+        try {
+            for (int i = 0; i < toolCalls.size(); i++) {
+                AgentPlan.ToolCall toolCall = toolCalls.get(i);
+                evidences.add(await(toolCall, futures.get(i), toolDeadlines.get(i), planDeadline,
+                        agentName, tenant, settled.get(i), onEvidence));
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
         }
 
         return new ContextSnapshot(agentName, request.intent(), evidences);
     }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Evidence await(AgentPlan.ToolCall toolCall, Future<Evidence> future, long toolDeadline,
+            long planDeadline, String agentName, String tenant, AtomicBoolean settled,
+            Consumer<Evidence> onEvidence) {
+        try {
+            long remaining = Math.max(0, Math.min(toolDeadline, planDeadline) - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Duration fired = toolDeadline <= planDeadline ? toolTimeout : planTimeout;
+            // Claim the measurement before interrupting the worker
+            if (settled.compareAndSet(false, true)) {
+                toolTimer(agentName, tenant, toolCall.toolName(), "timeout").record(fired);
+            }
+            future.cancel(true);
+            log.warn("Tool {} missed its {} deadline — recording TIMEOUT evidence", toolCall.toolName(),
+                    toolDeadline <= planDeadline ? "tool" : "plan");
+            Evidence timedOut = Evidence.timedOut(toolCall.toolName(), toolCall.description(), fired);
+            onEvidence.accept(timedOut);
+            return timedOut;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException("Tool execution failed: " + toolCall.toolName(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Context assembly interrupted", e);
+        }
+    }
+
+    private Evidence executeWithMdc(AgentPlan.ToolCall toolCall, ToolCallScope scope, Map<String, String> mdc,
+            String agentName, String tenant, AtomicBoolean settled, Consumer<Evidence> onEvidence) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = toolExecutor.executeTool(toolCall.toolName(), toolCall.parameters(), scope);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            outcome = "ok";
+            Evidence evidence = new Evidence(toolCall.toolName(), toolCall.description(), result)
+                    .withDuration(elapsed);
+            if (result instanceof WatermarkedOutput watermarked && watermarked.watermark() != null) {
+                evidence = evidence.withWatermark(watermarked.watermark());
+            }
+            onEvidence.accept(evidence);
+            return evidence;
+        } finally {
+            // A call cut off by its deadline is already recorded as a timeout
+            if (settled.compareAndSet(false, true)) {
+                toolTimer(agentName, tenant, toolCall.toolName(), outcome)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            MDC.clear();
+        }
+    }
+
+    private Timer toolTimer(String agentName, String tenant, String toolName, String outcome) {
+        return Timer.builder("agent.tool.duration")
+                .tag("agent", agentName)
+                .tag("tenant", tenant)
+                .tag("tool", toolName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -1,7 +1,10 @@
 package com.erp.ia.context;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 
 /**
  * Typed evidence: what data was consulted, from where, when, and what was
@@ -11,11 +14,43 @@ public record Evidence(
         String source, // e.g. "StockQueryTool", "ProductQueryTool"
         String query, // what was asked
         Instant timestamp,
-        @Schema(implementation = Object.class, description = "Tool result payload (varies by tool)") Object payload // typed
-                                                                                                                    // data
-                                                                                                                    // returned
+        @Schema(implementation = Object.class, description = "Tool result payload (varies by tool)") Object payload, // typed
+                                                                                                                     // data
+                                                                                                                     // returned
+        @JsonIgnore Long durationMs, // measured tool time, audit only — kept out of prompts
+        Instant watermark // data served from a projection reflects changes up to here; null when read live
 ) {
+    public Evidence(String source, String query, Instant timestamp, Object payload, Long durationMs) {
+        this(source, query, timestamp, payload, durationMs, null);
+    }
+
+    public Evidence(String source, String query, Instant timestamp, Object payload) {
+        this(source, query, timestamp, payload, null, null);
+    }
+
     public Evidence(String source, String query, Object payload) {
-        this(source, query, Instant.now(), payload);
+        this(source, query, Instant.now(), payload, null, null);
+    }
+
+    /**
+     * Copy of this evidence carrying the measured tool duration.
+     */
+    public Evidence withDuration(Duration duration) {
+        return new Evidence(source, query, timestamp, payload, duration.toMillis(), watermark);
+    }
+
+    /**
+     * Copy of this evidence carrying the consistency watermark of its source.
+     */
+    public Evidence withWatermark(Instant watermark) {
+        return new Evidence(source, query, timestamp, payload, durationMs, watermark);
+    }
+
+    /**
+     * Evidence for a tool that did not answer within its deadline.
+     */
+    public static Evidence timedOut(String source, String query, Duration timeout) {
+        return new Evidence(source, query, Map.of("status", "TIMEOUT", "timeoutMs", timeout.toMillis()))
+                .withDuration(timeout);
     }
 }
@@ -0,0 +1,153 @@
+package com.erp.ia.context;
+
+import com.erp.ia.tool.PagedOutput;
+import com.erp.ia.tool.TabularOutput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fits evidence into an agent's token budget before it goes into a prompt.
+ *
+ * Tabular tool outputs are written as CSV (header once, one line per row) and
+ * lose their least relevant rows first; any other payload is written as JSON
+ * and cut at the budget. The budget is shared across evidences, each getting
+ * an equal share of what is left, so a small result never starves because a
+ * large one came first. Every cut is reported as a {@link Truncation}, and so
+ * is a paged tool result with pages left unread.
+ */
+@Component
+public class EvidenceCompactor {
+
+    /** Rough chars-per-token ratio for mixed Portuguese text, digits and CSV. */
+    private static final int CHARS_PER_TOKEN = 4;
+    /** Room kept at the end of each share for the truncation note. */
+    private static final int NOTE_RESERVE = 64;
+
+    private final ObjectMapper objectMapper;
+    private final int defaultBudget;
+
+    public EvidenceCompactor(ObjectMapper objectMapper,
+            @Value("${llm.evidence.token-budget:6000}") int defaultBudget) {
+        this.objectMapper = objectMapper;
+        this.defaultBudget = defaultBudget;
+    }
+
+    /**
+     * What was left out of one evidence. For unit {@code pages} the total is
+     * unknown (-1) and {@code kept} is the number of pages read.
+     */
+    public record Truncation(String source, String unit, int total, int kept) {
+    }
+
+    public record Compacted(String text, int estimatedTokens, List<Truncation> truncations) {
+        public boolean truncated() {
+            return !truncations.isEmpty();
+        }
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * @param budget token budget, or 0 or less for the configured default
+     */
+    public Compacted compact(List<Evidence> evidences, int budget) {
+        int remainingChars = (budget > 0 ? budget : defaultBudget) * CHARS_PER_TOKEN;
+        StringBuilder out = new StringBuilder(Math.min(remainingChars, 64 * 1024));
+        List<Truncation> truncations = new ArrayList<>();
+
+        for (int i = 0; i < evidences.size(); i++) {
+            int share = remainingChars / (evidences.size() - i);
+            int start = out.length();
+            Evidence evidence = evidences.get(i);
+            out.append("### ").append(evidence.source()).append(" — ").append(evidence.query()).append('\n');
+            if (evidence.payload() instanceof TabularOutput table) {
+                appendTable(out, evidence.source(), table, start + share, truncations);
+            } else {
+                appendJson(out, evidence.source(), evidence.payload(), start + share, truncations);
+            }
+            if (evidence.payload() instanceof PagedOutput paged && paged.nextCursor() != null) {
+                out.append("… resultado parcial: há mais páginas não consultadas\n");
+                truncations.add(new Truncation(evidence.source(), "pages", -1, 1));
+            }
+            out.append('\n');
+            remainingChars -= out.length() - start;
+        }
+
+        return new Compacted(out.toString(), estimateTokens(out), List.copyOf(truncations));
+    }
+
+    private void appendTable(StringBuilder out, String source, TabularOutput table, int limit,
+            List<Truncation> truncations) {
+        for (Map.Entry<String, Object> fact : new TreeMap<>(table.summary()).entrySet()) {
+            out.append(fact.getKey()).append('=').append(fact.getValue()).append('\n');
+        }
+        appendCsvLine(out, table.columns());
+
+        List<List<Object>> rows = table.rankedRows();
+        int kept = 0;
+        StringBuilder line = new StringBuilder();
+        for (List<Object> row : rows) {
+            line.setLength(0);
+            appendCsvLine(line, row);
+            if (out.length() + line.length() > limit - NOTE_RESERVE) {
+                break;
+            }
+            out.append(line);
+            kept++;
+        }
+        if (kept < rows.size()) {
+            out.append("… ").append(rows.size() - kept).append(" de ").append(rows.size())
+                    .append(" linhas omitidas (menos relevantes)\n");
+            truncations.add(new Truncation(source, "rows", rows.size(), kept));
+        }
+    }
+
+    private void appendJson(StringBuilder out, String source, Object payload, int limit,
+            List<Truncation> truncations) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            json = String.valueOf(payload);
+        }
+        int room = Math.max(0, limit - NOTE_RESERVE - out.length());
+        if (json.length() <= room + NOTE_RESERVE) {
+            out.append(json).append('\n');
+            return;
+        }
+        out.append(json, 0, room).append("… [truncado]\n");
+        truncations.add(new Truncation(source, "chars", json.length(), room));
+    }
+
+    private static void appendCsvLine(StringBuilder out, List<?> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendCsvValue(out, values.get(i));
+        }
+        out.append('\n');
+    }
+
+    private static void appendCsvValue(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.stripTrailingZeros().toPlainString()
+                : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            out.append(text);
+            return;
+        }
+        out.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+}
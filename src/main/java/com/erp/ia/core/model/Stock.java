@@ -36,6 +36,10 @@ public class Stock {
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt = Instant.now();
 
+    @Version
+    @Column(nullable = false)
+    private Long version = 0L;
+
     public Stock() {
     }
 
@@ -115,4 +119,8 @@ public class Stock {
     public boolean isBelowMinimum() {
         return quantity.compareTo(minQuantity) < 0;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
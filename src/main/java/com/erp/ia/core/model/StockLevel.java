@@ -0,0 +1,26 @@
+package com.erp.ia.core.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of a stock row joined with its product, built directly
+ * by JPQL constructor expressions so no entity (or LAZY product) is loaded.
+ */
+public record StockLevel(
+        Long stockId,
+        Long productId,
+        String sku,
+        String name,
+        String warehouse,
+        BigDecimal quantity,
+        BigDecimal minQuantity,
+        String tenantId) {
+
+    public StockLevel withQuantity(BigDecimal newQuantity) {
+        return new StockLevel(stockId, productId, sku, name, warehouse, newQuantity, minQuantity, tenantId);
+    }
+
+    public boolean belowMinimum() {
+        return quantity.compareTo(minQuantity) < 0;
+    }
+}
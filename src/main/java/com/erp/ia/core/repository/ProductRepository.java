@@ -1,7 +1,12 @@
 package com.erp.ia.core.repository;
 
 import com.erp.ia.core.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +20,34 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContainingIgnoreCase(String name);
 
     List<Product> findByTenantId(String tenantId);
+
+    // --- Keyset pages of active products (id > afterId ORDER BY id) ---
+
+    List<Product> findByTenantIdAndActiveTrueAndIdGreaterThanOrderByIdAsc(String tenantId, long afterId,
+            Limit limit);
+
+    List<Product> findByCategoryAndActiveTrueAndIdGreaterThanOrderByIdAsc(String category, long afterId,
+            Limit limit);
+
+    List<Product> findByTenantIdAndActiveTrueAndIdIn(String tenantId, Collection<Long> ids);
+
+    /**
+     * Ranked name search (PostgreSQL only): trigram similarity or substring,
+     * both served by the pg_trgm GIN index on {@code lower(name)}.
+     * {@code pattern} is the query with LIKE wildcards escaped, see
+     * {@link #escapeLike}.
+     */
+    @Query(value = "SELECT p.* FROM products p "
+            + "WHERE p.tenant_id = :tenantId AND p.active "
+            + "AND (lower(p.name) % lower(:query) "
+            + "OR lower(p.name) LIKE '%' || lower(:pattern) || '%' ESCAPE '\\') "
+            + "ORDER BY similarity(lower(p.name), lower(:query)) DESC, p.id "
+            + "LIMIT :limit", nativeQuery = true)
+    List<Product> searchByName(@Param("tenantId") String tenantId, @Param("query") String query,
+            @Param("pattern") String pattern, @Param("limit") int limit);
+
+    /** {@code text} as a literal inside a LIKE pattern with {@code ESCAPE '\'}. */
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -1,9 +1,21 @@
 package com.erp.ia.core.repository;
 
 import com.erp.ia.core.model.Stock;
+import com.erp.ia.core.model.StockLevel;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StockRepository extends JpaRepository<Stock, Long> {
     Optional<Stock> findByProductIdAndWarehouse(Long productId, String warehouse);
@@ -13,4 +25,76 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     List<Stock> findByWarehouse(String warehouse);
 
     List<Stock> findByTenantId(String tenantId);
+
+    // --- StockLevel projections: one joined query, no entity loading ---
+
+    String STOCK_LEVEL = "SELECT new com.erp.ia.core.model.StockLevel("
+            + "s.id, p.id, p.sku, p.name, s.warehouse, s.quantity, s.minQuantity, s.tenantId) "
+            + "FROM Stock s JOIN s.product p ";
+
+    @Query(STOCK_LEVEL + "WHERE p.id = :productId ORDER BY s.warehouse")
+    List<StockLevel> findLevelsByProduct(@Param("productId") Long productId);
+
+    /** Served by idx_stocks_below_min (partial index on PostgreSQL). */
+    @Query(STOCK_LEVEL + "WHERE s.tenantId = :tenantId AND s.quantity < s.minQuantity ORDER BY p.sku, s.warehouse")
+    List<StockLevel> findLevelsBelowMinimum(@Param("tenantId") String tenantId);
+
+    // --- Keyset pages (s.id > afterId ORDER BY s.id) ---
+
+    @Query(STOCK_LEVEL + "WHERE s.tenantId = :tenantId AND s.id > :afterId ORDER BY s.id")
+    List<StockLevel> findLevelsByTenantAfter(@Param("tenantId") String tenantId, @Param("afterId") long afterId,
+            Limit limit);
+
+    @Query(STOCK_LEVEL + "WHERE s.tenantId = :tenantId AND s.warehouse = :warehouse AND s.id > :afterId "
+            + "ORDER BY s.id")
+    List<StockLevel> findLevelsByTenantAndWarehouseAfter(@Param("tenantId") String tenantId,
+            @Param("warehouse") String warehouse, @Param("afterId") long afterId, Limit limit);
+
+    @Query(STOCK_LEVEL + "WHERE s.tenantId = :tenantId AND s.quantity < s.minQuantity AND s.id > :afterId "
+            + "ORDER BY s.id")
+    List<StockLevel> findLevelsBelowMinimumAfter(@Param("tenantId") String tenantId,
+            @Param("afterId") long afterId, Limit limit);
+
+    /** Every stock row of every tenant, for rebuilding the in-process read model. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(STOCK_LEVEL + "ORDER BY s.id")
+    Stream<StockLevel> streamAllLevels();
+
+    // --- Atomic writes: no read-modify-write in the JVM, every write bumps version ---
+
+    /** Current quantity and version of a stock row, read from the database. */
+    interface QuantityVersion {
+        BigDecimal getQuantity();
+
+        Long getVersion();
+    }
+
+    @Query("SELECT s.quantity AS quantity, s.version AS version FROM Stock s "
+            + "WHERE s.product.id = :productId AND s.warehouse = :warehouse AND s.tenantId = :tenantId")
+    Optional<QuantityVersion> findQuantity(@Param("productId") Long productId, @Param("warehouse") String warehouse,
+            @Param("tenantId") String tenantId);
+
+    /** quantity += delta in one statement; 0 when the row does not exist yet. */
+    @Modifying
+    @Query("UPDATE Stock s SET s.quantity = s.quantity + :delta, s.version = s.version + 1, s.updatedAt = :now "
+            + "WHERE s.product.id = :productId AND s.warehouse = :warehouse AND s.tenantId = :tenantId")
+    int addQuantity(@Param("productId") Long productId, @Param("warehouse") String warehouse,
+            @Param("tenantId") String tenantId, @Param("delta") BigDecimal delta, @Param("now") Instant now);
+
+    /** Compare-and-set on version; 0 when another write got there first. */
+    @Modifying
+    @Query("UPDATE Stock s SET s.quantity = :quantity, s.version = s.version + 1, s.updatedAt = :now "
+            + "WHERE s.product.id = :productId AND s.warehouse = :warehouse AND s.tenantId = :tenantId "
+            + "AND s.version = :version")
+    int setQuantityIfVersion(@Param("productId") Long productId, @Param("warehouse") String warehouse,
+            @Param("tenantId") String tenantId, @Param("quantity") BigDecimal quantity,
+            @Param("version") Long version, @Param("now") Instant now);
+
+    /** Empty stock row unless one exists; concurrent first movements all succeed. */
+    @Modifying
+    @Query(value = "INSERT INTO stocks (product_id, warehouse, quantity, min_quantity, tenant_id, updated_at, version) "
+            + "VALUES (:productId, :warehouse, 0, 0, :tenantId, CURRENT_TIMESTAMP, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("productId") Long productId, @Param("warehouse") String warehouse,
+            @Param("tenantId") String tenantId);
 }
@@ -0,0 +1,188 @@
+package com.erp.ia.core.service;
+
+import com.erp.ia.core.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process trigram index over active product names, used for search where
+ * the database has no pg_trgm (H2 in dev and tests).
+ *
+ * Names are lowercased and split into overlapping 3-character grams; a search
+ * counts shared grams per candidate through the postings of the query's
+ * grams and ranks by similarity (shared / union), the same measure pg_trgm
+ * uses. Substring matches are always kept, fuzzy ones from
+ * {@link #SIMILARITY_THRESHOLD} up. Stays disabled, ignoring writes, until
+ * {@link #load} runs.
+ */
+@Component
+public class ProductNameIndex {
+
+    static final double SIMILARITY_THRESHOLD = 0.3;
+    private static final int GRAM = 3;
+
+    private record Entry(long id, String tenantId, String name, Set<String> grams) {
+    }
+
+    private record Match(long id, double similarity) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    /** tenant → gram → product ids */
+    private final Map<String, Map<String, Set<Long>>> postings = new HashMap<>();
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Replace the index content with {@code products} and start accepting writes. */
+    public void load(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            products.forEach(this::putLocked);
+            enabled = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(long id, String tenantId, String name, boolean active) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (active && name != null) {
+                addLocked(id, tenantId, name);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Ids of the best matches for {@code query}, most similar first (ties by id). */
+    public List<Long> search(String tenantId, String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+        Set<String> queryGrams = grams(q);
+        List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Map<String, Set<Long>> tenantPostings = postings.getOrDefault(tenantId, Map.of());
+            if (queryGrams.isEmpty()) {
+                // shorter than one gram: substring scan of the tenant's names
+                for (Entry entry : entries.values()) {
+                    if (entry.tenantId().equals(tenantId) && entry.name().contains(q)) {
+                        matches.add(new Match(entry.id(), (double) q.length() / entry.name().length()));
+                    }
+                }
+            } else {
+                Map<Long, Integer> shared = new HashMap<>();
+                for (String gram : queryGrams) {
+                    for (Long id : tenantPostings.getOrDefault(gram, Set.of())) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+                for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+                    Entry entry = entries.get(candidate.getKey());
+                    int common = candidate.getValue();
+                    double similarity = (double) common / (queryGrams.size() + entry.grams().size() - common);
+                    if (similarity >= SIMILARITY_THRESHOLD || entry.name().contains(q)) {
+                        matches.add(new Match(entry.id(), similarity));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(Match::similarity).reversed().thenComparingLong(Match::id))
+                .limit(limit)
+                .map(Match::id)
+                .toList();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putLocked(Product product) {
+        if (product.isActive() && product.getName() != null) {
+            addLocked(product.getId(), product.getTenantId(), product.getName());
+        }
+    }
+
+    private void addLocked(long id, String tenantId, String name) {
+        String normalized = normalize(name);
+        Entry entry = new Entry(id, tenantId, normalized, grams(normalized));
+        entries.put(id, entry);
+        Map<String, Set<Long>> tenantPostings = postings.computeIfAbsent(tenantId, t -> new HashMap<>());
+        for (String gram : entry.grams()) {
+            tenantPostings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeLocked(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        Map<String, Set<Long>> tenantPostings = postings.get(entry.tenantId());
+        for (String gram : entry.grams()) {
+            Set<Long> ids = tenantPostings.get(gram);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                tenantPostings.remove(gram);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
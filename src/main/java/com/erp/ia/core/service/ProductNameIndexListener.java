@@ -0,0 +1,97 @@
+package com.erp.ia.core.service;
+
+import com.erp.ia.core.model.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hibernate listener keeping {@link ProductNameIndex} in step with product
+ * writes. Registered with the session factory from here, so the entity does
+ * not know about it. Changes are applied after commit, so a rolled back write
+ * never shows up in search results.
+ */
+@Component
+public class ProductNameIndexListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final ProductNameIndex index;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ProductNameIndexListener(ProductNameIndex index, EntityManagerFactory entityManagerFactory) {
+        this.index = index;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            onSave(product);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            onSave(product);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            long id = product.getId();
+            afterCommit(() -> index.remove(id));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void onSave(Product product) {
+        long id = product.getId();
+        String tenantId = product.getTenantId();
+        String name = product.getName();
+        boolean active = product.isActive();
+        afterCommit(() -> index.put(id, tenantId, name, active));
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!index.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.erp.ia.core.service;
+
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranked product search by name.
+ *
+ * On PostgreSQL the ranking runs in SQL over the pg_trgm GIN index
+ * ({@link ProductRepository#searchByName}). Elsewhere the in-process
+ * {@link ProductNameIndex} is loaded once the application is ready and kept
+ * current by {@link ProductNameIndexListener}; until then lookups fall back
+ * to a substring query (wildcards in the query match literally).
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private final ProductRepository productRepository;
+    private final ProductNameIndex index;
+    private final boolean postgres;
+
+    public ProductSearchService(ProductRepository productRepository, ProductNameIndex index, DataSource dataSource) {
+        this.productRepository = productRepository;
+        this.index = index;
+        this.postgres = isPostgres(dataSource);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (postgres) {
+            return;
+        }
+        index.load(productRepository.findByActiveTrue());
+        log.info("Product name index loaded: {} active products", index.size());
+    }
+
+    public List<Product> search(String tenantId, String query, int limit) {
+        if (postgres) {
+            return productRepository.searchByName(tenantId, query, ProductRepository.escapeLike(query), limit);
+        }
+        if (!index.isEnabled()) {
+            return productRepository.findByNameContainingIgnoreCase(query).stream()
+                    .filter(p -> p.isActive() && tenantId.equals(p.getTenantId()))
+                    .limit(limit)
+                    .toList();
+        }
+
+        List<Long> ids = index.search(tenantId, query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        return productRepository.findByTenantIdAndActiveTrueAndIdIn(tenantId, ids).stream()
+                .sorted(Comparator.comparing(p -> rank.get(p.getId())))
+                .toList();
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (Exception e) {
+            log.warn("Could not detect database vendor, using in-process product search: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.erp.ia.core.service;
+
+import com.erp.ia.core.model.StockLevel;
+import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.event.BatchEventSubscriber;
+import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.model.StockLevelChanged;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * In-process projection of the {@code stocks} table joined with products,
+ * indexed by tenant, product, warehouse and below-minimum status.
+ *
+ * Built from the database once the application is ready and kept current by
+ * {@code STOCK_LEVEL_CHANGED} events, coalesced per stock row. A change to a
+ * row the model does not hold yet (first movement of a product in a
+ * warehouse) reloads that product's rows. Edits that publish no event, such
+ * as a new minimum quantity or a renamed product, show after the next
+ * {@link #rebuild}, which runs every {@code stock.read-model.rebuild-interval}
+ * (0 disables it).
+ *
+ * Answers carry a watermark per tenant: the time of the snapshot or of the
+ * tenant's latest change applied, whichever is later, so one tenant's writes
+ * never move another's. Until the first build completes queries return
+ * empty so callers read the database. A later rebuild keeps answering from
+ * the previous snapshot (which it also keeps if the reload fails); events
+ * arriving meanwhile are applied to it and again on top of the new snapshot.
+ */
+@Component
+public class StockReadModel {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReadModel.class);
+    private static final int EVENT_BATCH = 512;
+
+    /** Rows answering one query, and how current they are. */
+    public record Result(List<StockLevel> levels, Instant watermark) {
+    }
+
+    private static final class TenantIndex {
+        private final NavigableSet<Long> all = new TreeSet<>();
+        private final Map<String, NavigableSet<Long>> byWarehouse = new HashMap<>();
+        private final NavigableSet<Long> belowMinimum = new TreeSet<>();
+        /** Latest change applied since the snapshot; null if none. */
+        private Instant lastChange;
+    }
+
+    private final StockRepository stockRepository;
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+    private final Duration rebuildInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("stock-read-model").daemon(true).factory());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, StockLevel> byStockId = new HashMap<>();
+    /** product → warehouse → stock id */
+    private final Map<Long, TreeMap<String, Long>> byProduct = new HashMap<>();
+    private final Map<String, TenantIndex> tenants = new HashMap<>();
+    /** Events received while a rebuild runs; null otherwise. */
+    private List<StockLevelChanged> pending;
+    private volatile boolean ready;
+    private Instant snapshotAt;
+
+    public StockReadModel(StockRepository stockRepository, EventBus eventBus,
+            PlatformTransactionManager transactionManager,
+            @Value("${stock.read-model.enabled:true}") boolean enabled,
+            @Value("${stock.read-model.rebuild-interval:15m}") Duration rebuildInterval) {
+        this.stockRepository = stockRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+        this.rebuildInterval = rebuildInterval;
+        if (enabled) {
+            eventBus.subscribeBatch("STOCK_LEVEL_CHANGED",
+                    new BatchEventSubscriber.Options(EVENT_BATCH, Duration.ZERO, true), this::apply);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+        if (rebuildInterval.isPositive()) {
+            scheduler.scheduleWithFixedDelay(this::scheduledRebuild, rebuildInterval.toMillis(),
+                    rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Stock read model rebuild failed, keeping the previous snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Reload every stock row from the database and swap it in. */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Instant snapshotAt = Instant.now();
+        List<StockLevel> levels;
+        try {
+            levels = readOnly.execute(status -> {
+                try (Stream<StockLevel> stream = stockRepository.streamAllLevels()) {
+                    return stream.toList();
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Set<Long> missing;
+        lock.writeLock().lock();
+        try {
+            byStockId.clear();
+            byProduct.clear();
+            tenants.clear();
+            levels.forEach(this::putLocked);
+            this.snapshotAt = snapshotAt;
+            missing = applyLocked(pending);
+            pending = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(missing);
+        log.info("Stock read model built: {} rows in {} tenants", levels.size(), tenants.size());
+    }
+
+    /** All rows of one product, by warehouse. */
+    public Optional<Result> levelsByProduct(Long productId) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            TreeMap<String, Long> rows = byProduct.getOrDefault(productId, new TreeMap<>());
+            List<StockLevel> levels = rows.values().stream().map(byStockId::get).toList();
+            return Optional.of(new Result(levels,
+                    watermarkLocked(levels.isEmpty() ? null : tenants.get(levels.get(0).tenantId()))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Keyset page of a tenant's rows: stock id above {@code afterId}, by stock id. */
+    public Optional<Result> levelsByTenant(String tenantId, long afterId, int limit) {
+        return page(tenantId, afterId, limit, index -> index.all);
+    }
+
+    public Optional<Result> levelsByTenantAndWarehouse(String tenantId, String warehouse, long afterId, int limit) {
+        return page(tenantId, afterId, limit, index -> index.byWarehouse.get(warehouse));
+    }
+
+    public Optional<Result> levelsBelowMinimum(String tenantId, long afterId, int limit) {
+        return page(tenantId, afterId, limit, index -> index.belowMinimum);
+    }
+
+    private Optional<Result> page(String tenantId, long afterId, int limit,
+            Function<TenantIndex, NavigableSet<Long>> selector) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            TenantIndex index = tenants.get(tenantId);
+            NavigableSet<Long> ids = index != null ? selector.apply(index) : null;
+            if (ids == null) {
+                return Optional.of(new Result(List.of(), watermarkLocked(index)));
+            }
+            List<StockLevel> levels = new ArrayList<>(Math.min(limit, ids.size()));
+            for (Long id : ids.tailSet(afterId, false)) {
+                if (levels.size() == limit) {
+                    break;
+                }
+                levels.add(byStockId.get(id));
+            }
+            return Optional.of(new Result(levels, watermarkLocked(index)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Instant watermarkLocked(TenantIndex index) {
+        Instant lastChange = index != null ? index.lastChange : null;
+        return lastChange != null && lastChange.isAfter(snapshotAt) ? lastChange : snapshotAt;
+    }
+
+    void apply(List<DomainEvent> events) {
+        List<StockLevelChanged> changes = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            if (event instanceof StockLevelChanged changed) {
+                changes.add(changed);
+            }
+        }
+        Set<Long> missing;
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(changes);
+            }
+            if (!ready) {
+                return; // not built yet; the build in progress applies these changes
+            }
+            missing = applyLocked(changes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(missing);
+    }
+
+    /** Apply changes to known rows; returns products with rows not in the model. */
+    private Set<Long> applyLocked(List<StockLevelChanged> changes) {
+        Set<Long> missing = new HashSet<>();
+        for (StockLevelChanged change : changes) {
+            TreeMap<String, Long> rows = byProduct.get(change.getProductId());
+            Long stockId = rows != null ? rows.get(change.getWarehouse()) : null;
+            String tenantId = change.getTenantId();
+            if (stockId == null) {
+                missing.add(change.getProductId());
+            } else {
+                StockLevel current = byStockId.get(stockId);
+                tenantId = current.tenantId();
+                if (change.getNewQuantity() != null) {
+                    putLocked(current.withQuantity(change.getNewQuantity()));
+                }
+            }
+            if (tenantId != null) {
+                TenantIndex index = tenants.computeIfAbsent(tenantId, k -> new TenantIndex());
+                if (index.lastChange == null || change.getOccurredAt().isAfter(index.lastChange)) {
+                    index.lastChange = change.getOccurredAt();
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Load rows first seen through events. Rows the model already holds are
+     * left alone: an event applied while the query ran is newer than its result.
+     */
+    private void reload(Set<Long> productIds) {
+        for (Long productId : productIds) {
+            List<StockLevel> levels = stockRepository.findLevelsByProduct(productId);
+            lock.writeLock().lock();
+            try {
+                for (StockLevel level : levels) {
+                    if (!byStockId.containsKey(level.stockId())) {
+                        putLocked(level);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void putLocked(StockLevel level) {
+        byStockId.put(level.stockId(), level);
+        byProduct.computeIfAbsent(level.productId(), k -> new TreeMap<>()).put(level.warehouse(), level.stockId());
+        TenantIndex index = tenants.computeIfAbsent(level.tenantId(), k -> new TenantIndex());
+        index.all.add(level.stockId());
+        index.byWarehouse.computeIfAbsent(level.warehouse(), k -> new TreeSet<>()).add(level.stockId());
+        if (level.belowMinimum()) {
+            index.belowMinimum.add(level.stockId());
+        } else {
+            index.belowMinimum.remove(level.stockId());
+        }
+    }
+}
@@ -2,25 +2,62 @@ package com.erp.ia.core.service;
 
 import com.erp.ia.core.model.Product;
 import com.erp.ia.core.model.Stock;
+import com.erp.ia.core.model.StockLevel;
 import com.erp.ia.core.model.StockMovement;
 import com.erp.ia.core.repository.StockMovementRepository;
 import com.erp.ia.core.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class StockService {
 
+    private static final Logger log = LoggerFactory.getLogger(StockService.class);
+
+    private static final String INSERT_IF_ABSENT = "INSERT INTO stocks "
+            + "(product_id, warehouse, quantity, min_quantity, tenant_id, updated_at, version) "
+            + "VALUES (?, ?, 0, 0, ?, CURRENT_TIMESTAMP, 0) ON CONFLICT DO NOTHING";
+    private static final String LOCK_ROWS = "SELECT id, product_id, warehouse, tenant_id, quantity FROM stocks "
+            + "WHERE product_id IN (:productIds) ORDER BY id FOR UPDATE";
+    private static final String UPDATE_QUANTITY = "UPDATE stocks SET quantity = ?, version = version + 1, "
+            + "updated_at = ? WHERE id = ?";
+    private static final String INSERT_MOVEMENT = "INSERT INTO stock_movements "
+            + "(product_id, warehouse, movement_type, quantity, reason, tenant_id, created_by, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final StockRepository stockRepository;
     private final StockMovementRepository movementRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxAttempts;
 
-    public StockService(StockRepository stockRepository, StockMovementRepository movementRepository) {
+    public StockService(StockRepository stockRepository, StockMovementRepository movementRepository,
+            JdbcTemplate jdbcTemplate, @Value("${stock.adjust.max-attempts:10}") int maxAttempts) {
         this.stockRepository = stockRepository;
         this.movementRepository = movementRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAttempts = maxAttempts;
     }
 
     public Optional<Stock> getStock(Long productId, String warehouse) {
@@ -31,32 +68,189 @@ public class StockService {
         return stockRepository.findByProductId(productId);
     }
 
+    /**
+     * Outcome of one adjustment: the movement recorded and the quantities
+     * right before and after it, as seen by this transaction.
+     */
+    public record Adjustment(StockMovement movement, BigDecimal previousQuantity, BigDecimal newQuantity) {
+    }
+
+    /**
+     * Apply a stock movement without a read-modify-write in the JVM.
+     *
+     * IN/OUT are a single {@code quantity = quantity + delta} UPDATE, so
+     * concurrent movements on a hot SKU queue on the row lock and none is
+     * lost; the row is created with {@code ON CONFLICT DO NOTHING} on the
+     * first movement. ADJUST sets an absolute quantity by compare-and-set on
+     * the version column, re-reading and retrying with a short jittered
+     * backoff when another write got in between.
+     */
     @Transactional
-    public StockMovement adjustStock(Product product, String warehouse, StockMovement.MovementType type,
+    public Adjustment adjustStock(Product product, String warehouse, StockMovement.MovementType type,
             BigDecimal quantity, String reason, String createdBy) {
-        Stock stock = stockRepository.findByProductIdAndWarehouse(product.getId(), warehouse)
-                .orElseGet(() -> {
-                    Stock s = new Stock(product, warehouse, BigDecimal.ZERO);
-                    return stockRepository.save(s);
-                });
+        Long productId = product.getId();
+        String tenantId = product.getTenantId();
 
-        switch (type) {
-            case IN -> stock.setQuantity(stock.getQuantity().add(quantity));
-            case OUT -> stock.setQuantity(stock.getQuantity().subtract(quantity));
-            case ADJUST -> stock.setQuantity(quantity);
+        BigDecimal previous;
+        BigDecimal current;
+        if (type == StockMovement.MovementType.ADJUST) {
+            stockRepository.insertIfAbsent(productId, warehouse, tenantId);
+            previous = setQuantity(productId, warehouse, tenantId, quantity);
+            current = quantity;
+        } else {
+            BigDecimal delta = type == StockMovement.MovementType.IN ? quantity : quantity.negate();
+            if (stockRepository.addQuantity(productId, warehouse, tenantId, delta, Instant.now()) == 0) {
+                stockRepository.insertIfAbsent(productId, warehouse, tenantId);
+                stockRepository.addQuantity(productId, warehouse, tenantId, delta, Instant.now());
+            }
+            // our UPDATE holds the row lock until commit, so this is our own result
+            current = stockRepository.findQuantity(productId, warehouse, tenantId).orElseThrow().getQuantity();
+            previous = current.subtract(delta);
         }
 
-        stockRepository.save(stock);
-
         StockMovement movement = new StockMovement(product, type, quantity, reason);
         movement.setWarehouse(warehouse);
+        movement.setTenantId(tenantId);
         movement.setCreatedBy(createdBy);
-        return movementRepository.save(movement);
+        return new Adjustment(movementRepository.save(movement), previous, current);
+    }
+
+    /** One movement of a batch. */
+    public record AdjustmentRequest(Product product, String warehouse, StockMovement.MovementType type,
+            BigDecimal quantity, String reason, String createdBy) {
+    }
+
+    /**
+     * Apply many movements in a fixed number of round-trips, whatever their
+     * count: missing rows are inserted in one batch, all touched rows are
+     * locked with one {@code SELECT ... FOR UPDATE} (in id order, so two
+     * batches cannot deadlock), the movements are applied in order in memory
+     * and the final quantities and the movements are written in two JDBC
+     * batches. Results are in request order.
+     */
+    @Transactional
+    public List<Adjustment> adjustStocks(List<AdjustmentRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        Set<StockKey> keys = new LinkedHashSet<>();
+        requests.forEach(r -> keys.add(StockKey.of(r)));
+
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, keys.stream()
+                .map(k -> new Object[] { k.productId(), k.warehouse(), k.tenantId() })
+                .toList());
+
+        Set<Long> productIds = new LinkedHashSet<>();
+        keys.forEach(k -> productIds.add(k.productId()));
+        Map<StockKey, LockedRow> rows = new HashMap<>();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(LOCK_ROWS, Map.of("productIds", productIds), rs -> {
+            StockKey key = new StockKey(rs.getLong("product_id"), rs.getString("warehouse"), rs.getString("tenant_id"));
+            if (keys.contains(key)) {
+                rows.put(key, new LockedRow(rs.getLong("id"), rs.getBigDecimal("quantity")));
+            }
+        });
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<BigDecimal[]> quantities = new ArrayList<>(requests.size());
+        for (AdjustmentRequest request : requests) {
+            LockedRow row = rows.get(StockKey.of(request));
+            BigDecimal previous = row.quantity;
+            row.quantity = switch (request.type()) {
+                case IN -> previous.add(request.quantity());
+                case OUT -> previous.subtract(request.quantity());
+                case ADJUST -> request.quantity();
+            };
+            quantities.add(new BigDecimal[] { previous, row.quantity });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_QUANTITY, rows.values().stream()
+                .map(row -> new Object[] { row.quantity, now, row.id })
+                .toList());
+
+        List<Long> movementIds = insertMovements(requests, now);
+        List<Adjustment> adjustments = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            AdjustmentRequest request = requests.get(i);
+            StockMovement movement = new StockMovement(request.product(), request.type(), request.quantity(),
+                    request.reason());
+            movement.setId(movementIds.get(i));
+            movement.setWarehouse(request.warehouse());
+            movement.setTenantId(request.product().getTenantId());
+            movement.setCreatedBy(request.createdBy());
+            adjustments.add(new Adjustment(movement, quantities.get(i)[0], quantities.get(i)[1]));
+        }
+        return adjustments;
     }
 
-    public List<Stock> findBelowMinimum(String tenantId) {
-        return stockRepository.findByTenantId(tenantId).stream()
-                .filter(Stock::isBelowMinimum)
+    private List<Long> insertMovements(List<AdjustmentRequest> requests, Timestamp now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_MOVEMENT, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        AdjustmentRequest request = requests.get(i);
+                        ps.setLong(1, request.product().getId());
+                        ps.setString(2, request.warehouse());
+                        ps.setString(3, request.type().name());
+                        ps.setBigDecimal(4, request.quantity());
+                        ps.setString(5, request.reason());
+                        ps.setString(6, request.product().getTenantId());
+                        ps.setString(7, request.createdBy());
+                        ps.setTimestamp(8, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return requests.size();
+                    }
+                }, keys);
+        return keys.getKeyList().stream()
+                .map(k -> ((Number) k.values().iterator().next()).longValue())
                 .toList();
     }
+
+    private record StockKey(Long productId, String warehouse, String tenantId) {
+        static StockKey of(AdjustmentRequest request) {
+            return new StockKey(request.product().getId(), request.warehouse(), request.product().getTenantId());
+        }
+    }
+
+    private static final class LockedRow {
+        final long id;
+        BigDecimal quantity;
+
+        LockedRow(long id, BigDecimal quantity) {
+            this.id = id;
+            this.quantity = quantity;
+        }
+    }
+
+    /** Compare-and-set loop for absolute adjustments; returns the replaced quantity. */
+    private BigDecimal setQuantity(Long productId, String warehouse, String tenantId, BigDecimal quantity) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            StockRepository.QuantityVersion row = stockRepository.findQuantity(productId, warehouse, tenantId)
+                    .orElseThrow();
+            if (stockRepository.setQuantityIfVersion(productId, warehouse, tenantId, quantity, row.getVersion(),
+                    Instant.now()) == 1) {
+                return row.getQuantity();
+            }
+            log.debug("Stock version conflict on product {} / {} (attempt {})", productId, warehouse, attempt);
+            backoff(attempt);
+        }
+        throw new IllegalStateException("Stock adjustment for product " + productId + " in " + warehouse
+                + " lost " + maxAttempts + " version races");
+    }
+
+    private static void backoff(int attempt) {
+        long maxMillis = 1L << Math.min(attempt, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while adjusting stock", e);
+        }
+    }
+
+    public List<StockLevel> findBelowMinimum(String tenantId) {
+        return stockRepository.findLevelsBelowMinimum(tenantId);
+    }
 }
@@ -0,0 +1,35 @@
+package com.erp.ia.event;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Subscriber receiving events in micro-batches, in delivery order per
+ * aggregate key. See {@link EventBus#subscribeBatch}.
+ */
+@FunctionalInterface
+public interface BatchEventSubscriber {
+
+    void onEvents(List<DomainEvent> events);
+
+    /**
+     * @param maxSize  most events per batch
+     * @param maxDelay how long to wait for more events once the first one
+     *                 arrives; zero takes only what is already queued
+     * @param coalesce merge events of the same aggregate key with
+     *                 {@link DomainEvent#coalesce} before delivery
+     */
+    record Options(int maxSize, Duration maxDelay, boolean coalesce) {
+
+        public Options {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+        }
+
+        /** Whatever has piled up, without waiting. */
+        public static Options drain(int maxSize) {
+            return new Options(maxSize, Duration.ZERO, false);
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.erp.ia.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Base class for all domain events. Typed, versioned, with correlation ID.
+ * Serializable as JSON (subclasses declare a {@code @JsonCreator}); a
+ * deserialized event keeps its original id and timestamp.
  */
 public abstract class DomainEvent {
 
-    private final String eventId;
+    @JsonProperty
+    private String eventId;
     private final String eventType;
     private final int eventVersion;
-    private final Instant occurredAt;
+    @JsonProperty
+    private Instant occurredAt;
     private String correlationId;
 
     protected DomainEvent(String eventType, int eventVersion) {
@@ -21,6 +28,14 @@ public abstract class DomainEvent {
         this.occurredAt = Instant.now();
     }
 
+    /** For events that stand in for an earlier one, such as a coalesced burst. */
+    protected DomainEvent(String eventType, int eventVersion, String eventId, Instant occurredAt) {
+        this.eventId = eventId;
+        this.eventType = eventType;
+        this.eventVersion = eventVersion;
+        this.occurredAt = occurredAt;
+    }
+
     public String getEventId() {
         return eventId;
     }
@@ -37,6 +52,24 @@ public abstract class DomainEvent {
         return occurredAt;
     }
 
+    /**
+     * Events with the same key are delivered in publication order; by default
+     * all events of one type share a key.
+     */
+    @JsonIgnore
+    public String getAggregateKey() {
+        return eventType;
+    }
+
+    /**
+     * Merge this event with a {@code later} one of the same aggregate into a
+     * single event describing both, or return null if they cannot be merged
+     * (the default). Used by batch subscriptions that coalesce bursts.
+     */
+    public DomainEvent coalesce(DomainEvent later) {
+        return null;
+    }
+
     public String getCorrelationId() {
         return correlationId;
     }
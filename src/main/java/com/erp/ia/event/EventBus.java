@@ -1,5 +1,7 @@
 package com.erp.ia.event;
 
+import java.util.List;
+
 /**
  * Port for event bus. In-memory for dev, Kafka for production.
  */
@@ -7,4 +9,13 @@ public interface EventBus {
     void publish(DomainEvent event);
 
     void subscribe(String eventType, EventSubscriber subscriber);
+
+    /**
+     * Subscribe to micro-batches of {@code eventType}. Buses without batching
+     * deliver batches of one.
+     */
+    default void subscribeBatch(String eventType, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber) {
+        subscribe(eventType, event -> subscriber.onEvents(List.of(event)));
+    }
 }
@@ -0,0 +1,238 @@
+package com.erp.ia.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox for domain events.
+ *
+ * {@link #append} inserts the event into {@code event_outbox} through the
+ * caller's transaction, so it exists exactly when the change it describes
+ * was committed. A relay thread, woken after each commit and otherwise every
+ * {@code event.outbox.poll-interval}, reads pending rows in insertion order
+ * in batches, hands them to the delivery bus and deletes them.
+ *
+ * Delivery is at-least-once: a crash between handing over and deleting
+ * redelivers the batch (events keep their id, so subscribers can dedupe).
+ * Order is kept per aggregate key, and in fact globally: a row that cannot
+ * be handed over stops the batch and is retried on the next pass. After
+ * {@code event.outbox.max-attempts} failed passes, or at once if its payload
+ * can no longer be read, the row is moved to {@code event_outbox_dead} and
+ * the relay goes on; events after it may then overtake it.
+ *
+ * Each batch is read {@code FOR UPDATE} and relayed in one transaction, so
+ * with several application nodes on one database a batch is handed over by
+ * exactly one of them, and the others wait their turn instead of reordering.
+ * The relay starts once the application is ready (after migrations).
+ *
+ * Metrics: {@code event.outbox.relayed}, {@code event.outbox.failures},
+ * {@code event.outbox.dead}.
+ */
+@Component
+public class EventOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+    private static final String INSERT = "INSERT INTO event_outbox "
+            + "(event_id, event_type, event_class, aggregate_key, payload, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_PENDING = "SELECT id, event_id, event_class, payload, attempts "
+            + "FROM event_outbox ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String DELETE = "DELETE FROM event_outbox WHERE id = ?";
+    private static final String INCREMENT_ATTEMPTS = "UPDATE event_outbox SET attempts = attempts + 1 WHERE id = ?";
+    private static final String MOVE_TO_DEAD = "INSERT INTO event_outbox_dead "
+            + "(id, event_id, event_type, event_class, aggregate_key, payload, attempts, last_error, created_at) "
+            + "SELECT id, event_id, event_type, event_class, aggregate_key, payload, attempts + 1, ?, created_at "
+            + "FROM event_outbox WHERE id = ?";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EventBus delivery;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final int maxAttempts;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private Thread relayThread;
+    private volatile boolean running;
+
+    private final Counter relayed;
+    private final Counter failures;
+    private final Counter dead;
+
+    public EventOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("delivery") EventBus delivery, MeterRegistry meterRegistry,
+            @Value("${event.outbox.batch-size:256}") int batchSize,
+            @Value("${event.outbox.poll-interval:1s}") Duration pollInterval,
+            @Value("${event.outbox.max-attempts:10}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.delivery = delivery;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.relayed = meterRegistry.counter("event.outbox.relayed");
+        this.failures = meterRegistry.counter("event.outbox.failures");
+        this.dead = meterRegistry.counter("event.outbox.dead");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        relayThread = Thread.ofPlatform().name("outbox-relay").daemon(true).start(this::relayLoop);
+    }
+
+    /**
+     * Record {@code event} in the current transaction; it is relayed once
+     * that transaction commits. Must be called inside a transaction.
+     */
+    public void append(DomainEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox append requires an active transaction");
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event " + event.getEventType() + " is not serializable", e);
+        }
+        jdbcTemplate.update(INSERT, event.getEventId(), event.getEventType(), event.getClass().getName(),
+                event.getAggregateKey(), payload, Timestamp.from(event.getOccurredAt()));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp.release();
+                }
+            });
+        }
+    }
+
+    /** Relay everything pending now; returns how many events were delivered. */
+    public int relayPending() {
+        int total = 0;
+        while (true) {
+            int delivered = relayBatch();
+            total += delivered;
+            if (delivered < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /** One batch, locked and relayed in one transaction; returns rows consumed. */
+    private int relayBatch() {
+        return transactionTemplate.execute(status -> {
+            List<Row> rows = jdbcTemplate.query(SELECT_PENDING, (rs, i) -> new Row(rs.getLong("id"),
+                    rs.getString("event_id"), rs.getString("event_class"), rs.getString("payload"),
+                    rs.getInt("attempts")), batchSize);
+            List<Object[]> done = new ArrayList<>(rows.size());
+            int delivered = 0;
+            try {
+                for (Row row : rows) {
+                    DomainEvent event;
+                    try {
+                        event = objectMapper.readValue(row.payload(), Class.forName(row.eventClass())
+                                .asSubclass(DomainEvent.class));
+                    } catch (Exception e) {
+                        failures.increment();
+                        log.error("Unreadable outbox event {} ({}): {}", row.eventId(), row.eventClass(),
+                                e.getMessage());
+                        moveToDead(row, e);
+                        continue;
+                    }
+                    try {
+                        delivery.publish(event);
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        if (row.attempts() + 1 >= maxAttempts) {
+                            log.error("Outbox delivery of {} failed {} times: {}", row.eventId(),
+                                    row.attempts() + 1, e.getMessage());
+                            moveToDead(row, e);
+                            continue;
+                        }
+                        jdbcTemplate.update(INCREMENT_ATTEMPTS, row.id());
+                        log.warn("Outbox delivery of {} failed, retrying later: {}", row.eventId(), e.getMessage());
+                        return delivered;
+                    }
+                    done.add(new Object[] { row.id() });
+                    delivered++;
+                }
+                return rows.size();
+            } finally {
+                if (!done.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE, done);
+                    relayed.increment(delivered);
+                }
+            }
+        });
+    }
+
+    private void moveToDead(Row row, Exception cause) {
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        jdbcTemplate.update(MOVE_TO_DEAD, error, row.id());
+        jdbcTemplate.update(DELETE, row.id());
+        dead.increment();
+        log.error("Outbox event {} moved to event_outbox_dead", row.eventId());
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                if (wakeUp.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+                    wakeUp.drainPermits();
+                }
+                relayPending();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Outbox relay error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeUp.release();
+        relayThread.join(pollInterval.toMillis() * 2);
+    }
+
+    private record Row(long id, String eventId, String eventClass, String payload, int attempts) {
+    }
+}
@@ -0,0 +1,727 @@
+package com.erp.ia.event;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Event bus backed by an append-only log on local disk, for single-node
+ * deployments that need events to survive a restart without a broker
+ * ({@code event.bus.type=file}).
+ *
+ * The log is a directory of segments named by the offset of their first
+ * record; each is preallocated to {@code event.log.segment-size} and written
+ * through a {@link MappedByteBuffer}. A record is framed as
+ *
+ * <pre>
+ * int length | int crc32c | long offset | long appendedAt (epoch ms)
+ *   | short typeLength | type | short classLength | class | body
+ * </pre>
+ *
+ * where the body is the event's JSON and {@code length} counts everything
+ * after the crc. On start every segment is scanned up to its first record
+ * that fails its crc, which drops a torn write. Appends survive a process
+ * crash once they return; {@code event.log.sync} also forces each one to the
+ * device. Only the newest {@code event.log.max-segments} are kept.
+ *
+ * Every subscription reads the log on its own virtual thread, straight from
+ * the mapped segments, and sees events in log order. Plain subscriptions
+ * start at the end of the log. {@link #subscribeDurable durable} ones are
+ * named, persist their next offset under {@code offsets/} after each batch
+ * and resume from it, and {@link #replay} re-reads the log from an offset or
+ * a time. A batch a subscriber keeps failing is skipped after
+ * {@code event.bus.max-attempts} and recorded, with its offset range, in
+ * {@code dead-letters.tsv} ({@link #deadLetters}); the events stay in the log
+ * for replay. A subscription whose committed offset was already removed by
+ * retention resumes at the oldest segment and logs the gap.
+ */
+@Component
+@Qualifier("delivery")
+@ConditionalOnProperty(name = "event.bus.type", havingValue = "file")
+public class FileEventBus implements EventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(FileEventBus.class);
+
+    /** length + crc. */
+    private static final int FRAME = 8;
+    /** offset + appendedAt + the two string lengths. */
+    private static final int FIXED = 8 + 8 + 2 + 2;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final BatchEventSubscriber.Options SINGLE = new BatchEventSubscriber.Options(1, Duration.ZERO,
+            false);
+    private static final long IDLE_WAIT_MS = 1_000;
+
+    /** Where a subscription or replay starts reading. */
+    public record Position(long offset, Instant time) {
+
+        public static Position earliest() {
+            return new Position(0, null);
+        }
+
+        public static Position latest() {
+            return new Position(-1, null);
+        }
+
+        public static Position offset(long offset) {
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offset must not be negative");
+            }
+            return new Position(offset, null);
+        }
+
+        public static Position time(Instant time) {
+            return new Position(0, time);
+        }
+    }
+
+    /**
+     * A batch a subscriber gave up on: log offsets {@code fromOffset} to
+     * {@code toOffset}, inclusive, which can be replayed while retained.
+     */
+    public record DeadLetter(String subscriber, long fromOffset, long toOffset, int attempts, String error,
+            Instant at) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Path offsetDirectory;
+    private final Path deadLetterFile;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean sync;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition appended = writeLock.newCondition();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriptionIds = new AtomicInteger();
+    private volatile Segment active;
+    private volatile long nextOffset;
+    private long lastAppendedAt;
+    private volatile boolean running = true;
+
+    private final Counter appendedCounter;
+    private final Counter failures;
+
+    public FileEventBus(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${event.log.dir:./data/event-log}") Path directory,
+            @Value("${event.log.segment-size:64MB}") DataSize segmentSize,
+            @Value("${event.log.max-segments:16}") int maxSegments,
+            @Value("${event.log.sync:false}") boolean sync,
+            @Value("${event.bus.max-attempts:3}") int maxAttempts,
+            @Value("${event.bus.retry-backoff:100ms}") Duration retryBackoff) throws IOException {
+        if (segmentSize.toBytes() < 4096 || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("event.log.segment-size must be between 4KB and 2GB");
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.directory = directory;
+        this.offsetDirectory = directory.resolve("offsets");
+        this.deadLetterFile = directory.resolve("dead-letters.tsv");
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.maxSegments = Math.max(1, maxSegments);
+        this.sync = sync;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.appendedCounter = meterRegistry.counter("event.log.appended");
+        this.failures = meterRegistry.counter("event.log.failures");
+
+        Files.createDirectories(offsetDirectory);
+        recover();
+        Gauge.builder("event.log.segments", segments, Map::size).register(meterRegistry);
+        log.info("Event log at {}: {} segment(s), next offset {}", directory.toAbsolutePath(), segments.size(),
+                nextOffset);
+    }
+
+    @Override
+    public void publish(DomainEvent event) {
+        append(event);
+    }
+
+    /** Append {@code event} to the log and return its offset. */
+    public long append(DomainEvent event) {
+        byte[] type = event.getEventType().getBytes(StandardCharsets.UTF_8);
+        byte[] className = event.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Event " + event.getEventType() + " is not serializable", e);
+        }
+        int length = FIXED + type.length + className.length + body.length;
+        // a trailing zero length marks the end of data after each record
+        if (FRAME + length + 4 > segmentSize) {
+            throw new IllegalArgumentException("Event " + event.getEventId() + " does not fit in a log segment ("
+                    + length + " bytes)");
+        }
+
+        writeLock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Event log is closed");
+            }
+            if (active.limit + FRAME + length + 4 > segmentSize) {
+                roll();
+            }
+            long offset = nextOffset;
+            long appendedAt = Math.max(lastAppendedAt, System.currentTimeMillis());
+            ByteBuffer out = active.buffer.duplicate().position(active.limit + FRAME);
+            out.putLong(offset).putLong(appendedAt)
+                    .putShort((short) type.length).put(type)
+                    .putShort((short) className.length).put(className)
+                    .put(body)
+                    .putInt(0);
+            CRC32C crc = new CRC32C();
+            crc.update(active.buffer.slice(active.limit + FRAME, length));
+            active.buffer.putInt(active.limit, length);
+            active.buffer.putInt(active.limit + 4, (int) crc.getValue());
+            if (sync) {
+                active.buffer.force(active.limit, FRAME + length);
+            }
+
+            lastAppendedAt = appendedAt;
+            active.limit += FRAME + length;
+            nextOffset = offset + 1;
+            appendedCounter.increment();
+            appended.signalAll();
+            return offset;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Offset the next appended event will get. */
+    public long endOffset() {
+        return nextOffset;
+    }
+
+    private void roll() {
+        Segment sealed = active;
+        sealed.buffer.force();
+        sealed.sealed = true;
+        try {
+            active = openSegment(nextOffset, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create event log segment " + nextOffset, e);
+        }
+        segments.put(active.base, active);
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                log.warn("Could not delete event log segment {}: {}", oldest.path, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(String eventType, EventSubscriber subscriber) {
+        start(null, eventType, SINGLE, events -> subscriber.onEvent(events.get(0)), Position.latest());
+    }
+
+    @Override
+    public void subscribeBatch(String eventType, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber) {
+        start(null, eventType, options, subscriber, Position.latest());
+    }
+
+    /**
+     * Subscribe under a stable {@code name} whose position is persisted:
+     * after a restart it resumes where it stopped, and the first time it
+     * starts at {@code from}.
+     */
+    public void subscribeDurable(String name, String eventType, Position from, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid durable subscription name: " + name);
+        }
+        Long committed = readCommitted(name);
+        start(name, eventType, options, subscriber, committed != null ? Position.offset(committed) : from);
+    }
+
+    /**
+     * Deliver the events of {@code eventType} already in the log from
+     * {@code from} on, in order, on the calling thread. Returns how many were
+     * delivered.
+     */
+    public int replay(String eventType, Position from, EventSubscriber subscriber) {
+        Cursor cursor = seek(from);
+        long end = nextOffset;
+        int delivered = 0;
+        Record record;
+        while (cursor.nextOffset < end && (record = cursor.next()) != null) {
+            if (record.type().equals(eventType)) {
+                DomainEvent event = decode(record);
+                if (event != null) {
+                    subscriber.onEvent(event);
+                    delivered++;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private void start(String name, String eventType, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber, Position from) {
+        String label = name != null ? name : eventType + "#" + subscriptionIds.incrementAndGet();
+        Subscription subscription = new Subscription(label, name != null, eventType, options, subscriber, seek(from));
+        subscriptions.add(subscription);
+        Gauge.builder("event.log.lag", subscription, s -> nextOffset - s.cursor.nextOffset)
+                .tag("subscription", label)
+                .register(meterRegistry);
+        subscription.thread = Thread.ofVirtual().name("event-log-" + label).start(subscription::run);
+        log.info("Subscriber {} registered for event type {} at offset {}", label, eventType,
+                subscription.cursor.nextOffset);
+    }
+
+    /** Wait until something is appended past {@code offset}, at most {@code millis}. */
+    private void awaitAppend(long offset, long millis) throws InterruptedException {
+        writeLock.lock();
+        try {
+            if (nextOffset <= offset && running) {
+                appended.await(millis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private final class Subscription {
+
+        private final String label;
+        private final boolean durable;
+        private final String eventType;
+        private final BatchEventSubscriber.Options options;
+        private final BatchEventSubscriber subscriber;
+        private final Cursor cursor;
+        private FileChannel offsetChannel;
+        private Thread thread;
+
+        Subscription(String label, boolean durable, String eventType, BatchEventSubscriber.Options options,
+                BatchEventSubscriber subscriber, Cursor cursor) {
+            this.label = label;
+            this.durable = durable;
+            this.eventType = eventType;
+            this.options = options;
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+        }
+
+        void run() {
+            List<DomainEvent> batch = new ArrayList<>(options.maxSize());
+            try {
+                while (running) {
+                    long start = cursor.nextOffset;
+                    long deadline = System.nanoTime() + options.maxDelay().toNanos();
+                    collect(batch);
+                    while (!batch.isEmpty() && batch.size() < options.maxSize()) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        awaitAppend(cursor.nextOffset, Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                        collect(batch);
+                    }
+                    if (cursor.nextOffset == start) {
+                        awaitAppend(start, IDLE_WAIT_MS);
+                        continue;
+                    }
+                    if (!batch.isEmpty()) {
+                        deliver(options.coalesce() ? InMemoryEventBus.coalesce(batch) : List.copyOf(batch),
+                                start, cursor.nextOffset - 1);
+                        batch.clear();
+                    }
+                    commit();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** Read matching events into {@code batch} until it is full or the log runs out. */
+        private void collect(List<DomainEvent> batch) {
+            Record record;
+            while (batch.size() < options.maxSize() && (record = cursor.next()) != null) {
+                if (record.type().equals(eventType)) {
+                    DomainEvent event = decode(record);
+                    if (event != null) {
+                        batch.add(event);
+                    }
+                }
+            }
+        }
+
+        private void deliver(List<DomainEvent> batch, long fromOffset, long toOffset) throws InterruptedException {
+            for (int attempt = 1;; attempt++) {
+                try {
+                    subscriber.onEvents(batch);
+                    return;
+                } catch (Exception e) {
+                    failures.increment();
+                    if (attempt >= maxAttempts) {
+                        log.error("Subscriber {} skipped {} event(s) at offsets {}-{} after {} attempt(s): {}",
+                                label, batch.size(), fromOffset, toOffset, attempt, e.getMessage());
+                        recordDeadLetter(new DeadLetter(label, fromOffset, toOffset, attempt, e.getMessage(),
+                                Instant.now()));
+                        return;
+                    }
+                    log.warn("Error processing {} event(s) by {} (attempt {}/{}): {}", batch.size(), label,
+                            attempt, maxAttempts, e.getMessage());
+                    Thread.sleep(retryBackoff.multipliedBy(attempt).toMillis());
+                }
+            }
+        }
+
+        private void commit() {
+            if (!durable) {
+                return;
+            }
+            try {
+                if (offsetChannel == null) {
+                    offsetChannel = FileChannel.open(offsetFile(label), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE);
+                }
+                offsetChannel.write(ByteBuffer.allocate(8).putLong(0, cursor.nextOffset), 0);
+                if (sync) {
+                    offsetChannel.force(false);
+                }
+            } catch (IOException e) {
+                log.warn("Could not persist offset of {}: {}", label, e.getMessage());
+            }
+        }
+
+        void stop() {
+            if (thread != null) {
+                thread.interrupt();
+            }
+            if (offsetChannel != null) {
+                try {
+                    offsetChannel.close();
+                } catch (IOException e) {
+                    // closing on shutdown
+                }
+            }
+        }
+    }
+
+    /** Batches skipped after exhausting their attempts, oldest first, across restarts. */
+    public List<DeadLetter> deadLetters() {
+        synchronized (deadLetterFile) {
+            if (!Files.exists(deadLetterFile)) {
+                return List.of();
+            }
+            try (Stream<String> lines = Files.lines(deadLetterFile, StandardCharsets.UTF_8)) {
+                return lines.map(line -> line.split("\t", 6))
+                        .filter(fields -> fields.length == 6)
+                        .map(f -> new DeadLetter(f[1], Long.parseLong(f[2]), Long.parseLong(f[3]),
+                                Integer.parseInt(f[4]), f[5], Instant.parse(f[0])))
+                        .toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + deadLetterFile, e);
+            }
+        }
+    }
+
+    private void recordDeadLetter(DeadLetter deadLetter) {
+        String error = String.valueOf(deadLetter.error()).replaceAll("[\t\r\n]+", " ");
+        String line = String.join("\t", deadLetter.at().toString(), deadLetter.subscriber(),
+                Long.toString(deadLetter.fromOffset()), Long.toString(deadLetter.toOffset()),
+                Integer.toString(deadLetter.attempts()), error) + "\n";
+        synchronized (deadLetterFile) {
+            try {
+                if (sync) {
+                    Files.writeString(deadLetterFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+                } else {
+                    Files.writeString(deadLetterFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                }
+            } catch (IOException e) {
+                log.error("Could not record dead letter {}: {}", deadLetter, e.getMessage());
+            }
+        }
+    }
+
+    private Path offsetFile(String name) {
+        return offsetDirectory.resolve(name + ".offset");
+    }
+
+    private Long readCommitted(String name) {
+        Path file = offsetFile(name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            return bytes.length == 8 ? ByteBuffer.wrap(bytes).getLong() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read offset of " + name, e);
+        }
+    }
+
+    private record Record(long offset, long appendedAt, String type, String className, ByteBuffer body) {
+    }
+
+    /**
+     * Read position in the log. Only touched by its owner's thread; the
+     * offset is volatile so the lag gauge can read it.
+     */
+    private final class Cursor {
+
+        private Segment segment;
+        private int position;
+        private volatile long nextOffset;
+
+        Cursor(Segment segment, int position, long nextOffset) {
+            this.segment = segment;
+            this.position = position;
+            this.nextOffset = nextOffset;
+        }
+
+        /** The next record, or null when the reader has caught up with the writer. */
+        Record next() {
+            while (true) {
+                boolean sealed = segment.sealed;
+                if (position < segment.limit) {
+                    Record record = read(segment, position);
+                    position += FRAME + segment.buffer.getInt(position);
+                    nextOffset = record.offset() + 1;
+                    return record;
+                }
+                if (!sealed) {
+                    return null;
+                }
+                Map.Entry<Long, Segment> following = segments.higherEntry(segment.base);
+                if (following == null) {
+                    return null;
+                }
+                segment = following.getValue();
+                position = 0;
+            }
+        }
+
+        /** Peek at the next record's header without consuming it. */
+        Record peek() {
+            Segment savedSegment = segment;
+            int savedPosition = position;
+            long savedOffset = nextOffset;
+            Record record = next();
+            segment = savedSegment;
+            position = savedPosition;
+            nextOffset = savedOffset;
+            return record;
+        }
+    }
+
+    private Record read(Segment segment, int position) {
+        ByteBuffer in = segment.buffer.duplicate().position(position + FRAME);
+        long offset = in.getLong();
+        long appendedAt = in.getLong();
+        String type = readString(in);
+        String className = readString(in);
+        int end = position + FRAME + segment.buffer.getInt(position);
+        return new Record(offset, appendedAt, type, className, in.slice(in.position(), end - in.position()));
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private DomainEvent decode(Record record) {
+        try {
+            return objectMapper.readerFor(Class.forName(record.className()).asSubclass(DomainEvent.class))
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(new ByteBufferBackedInputStream(record.body()));
+        } catch (Exception e) {
+            failures.increment();
+            log.error("Skipping unreadable event at offset {} ({}): {}", record.offset(), record.className(),
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    private Cursor seek(Position from) {
+        writeLock.lock();
+        try {
+            if (from.time() == null && from.offset() < 0) {
+                return new Cursor(active, active.limit, nextOffset);
+            }
+            Segment first = segments.firstEntry().getValue();
+            if (from.time() == null) {
+                Map.Entry<Long, Segment> floor = segments.floorEntry(from.offset());
+                Segment start = floor != null ? floor.getValue() : first;
+                if (floor == null && from.offset() < first.base) {
+                    log.warn("Offsets {}-{} were removed by retention, reading from {}", from.offset(),
+                            first.base - 1, first.base);
+                }
+                Cursor cursor = new Cursor(start, 0, start.base);
+                skipWhile(cursor, record -> record.offset() < from.offset());
+                return cursor;
+            }
+            long millis = from.time().toEpochMilli();
+            Segment start = first;
+            for (Segment segment : segments.values()) {
+                if (segment.limit == 0 || read(segment, 0).appendedAt() > millis) {
+                    break;
+                }
+                start = segment;
+            }
+            Cursor cursor = new Cursor(start, 0, start.base);
+            skipWhile(cursor, record -> record.appendedAt() < millis);
+            return cursor;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void skipWhile(Cursor cursor, Predicate<Record> condition) {
+        Record record;
+        while ((record = cursor.peek()) != null && condition.test(record)) {
+            cursor.next();
+        }
+    }
+
+    private static final class Segment {
+
+        private final long base;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        /** Bytes of complete records; published after each append. */
+        private volatile int limit;
+        private volatile boolean sealed;
+
+        Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // mapping stays valid for readers still on it
+            }
+        }
+    }
+
+    private Segment openSegment(long base, boolean writable) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        long size = writable ? Math.max(segmentSize, channel.size()) : channel.size();
+        MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                0, size);
+        return new Segment(base, path, channel, buffer);
+    }
+
+    /** Load existing segments, finding the end of valid data in each. */
+    private void recover() throws IOException {
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(0, n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        if (bases.isEmpty()) {
+            active = openSegment(0, true);
+            segments.put(0L, active);
+            nextOffset = 0;
+            return;
+        }
+        for (int i = 0; i < bases.size(); i++) {
+            boolean last = i == bases.size() - 1;
+            Segment segment = openSegment(bases.get(i), last);
+            long offset = segment.base;
+            int position = 0;
+            while (position + FRAME <= segment.buffer.capacity()) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + FRAME + length > segment.buffer.capacity()) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(segment.buffer.slice(position + FRAME, length));
+                if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                    log.warn("Event log {} ends with a torn record at byte {}, dropping it", segment.path, position);
+                    break;
+                }
+                lastAppendedAt = Math.max(lastAppendedAt, segment.buffer.getLong(position + FRAME + 8));
+                offset = segment.buffer.getLong(position + FRAME) + 1;
+                position += FRAME + length;
+            }
+            segment.limit = position;
+            segment.sealed = !last;
+            segments.put(segment.base, segment);
+            if (last) {
+                active = segment;
+                nextOffset = offset;
+                if (position + 4 <= segment.buffer.capacity()) {
+                    segment.buffer.putInt(position, 0);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        subscriptions.forEach(Subscription::stop);
+        writeLock.lock();
+        try {
+            appended.signalAll();
+            active.buffer.force();
+        } finally {
+            writeLock.unlock();
+        }
+        segments.values().forEach(Segment::close);
+    }
+}
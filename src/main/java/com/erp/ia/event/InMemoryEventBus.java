@@ -1,42 +1,313 @@
 package com.erp.ia.event;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * In-memory event bus for development. Async delivery via executor.
+ * In-memory event bus with keyed, ordered and bounded delivery.
+ *
+ * Each subscription owns {@code event.bus.partitions} lanes; an event goes to
+ * the lane picked by its {@link DomainEvent#getAggregateKey() aggregate key},
+ * so events for the same aggregate (e.g. one product in one warehouse) reach a
+ * subscriber one at a time and in publish order, while other keys proceed in
+ * parallel. Each lane is a bounded queue drained by one virtual thread.
+ *
+ * When a lane is full the {@link OverflowPolicy} applies: {@code BLOCK} makes
+ * the publisher wait up to {@code event.bus.offer-timeout}, {@code DROP}
+ * rejects at once. Either way a rejected event makes {@link #publish} throw
+ * {@link RejectedExecutionException}, so the outbox keeps the row and retries
+ * it; subscriptions that had already accepted the event then see it again.
+ * A subscriber that throws is retried in place, keeping the lane's order, up
+ * to {@code event.bus.max-attempts}; exhausted events go to a bounded
+ * dead-letter list.
+ *
+ * {@link #subscribeBatch Batch subscriptions} use the same lanes; a worker
+ * takes up to the batch size from its lane, waiting at most the batch delay
+ * for more, optionally coalesces events of one key, and retries or
+ * dead-letters the batch as a whole.
+ *
+ * Metrics: {@code event.bus.queue.depth} per subscription,
+ * {@code event.bus.delivered}, {@code event.bus.retries},
+ * {@code event.bus.dropped}, {@code event.bus.dead-lettered}.
  */
 @Component
+@Qualifier("delivery")
+@ConditionalOnProperty(name = "event.bus.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryEventBus implements EventBus {
 
     private static final Logger log = LoggerFactory.getLogger(InMemoryEventBus.class);
 
-    private final Map<String, List<EventSubscriber>> subscribers = new ConcurrentHashMap<>();
-    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    public enum OverflowPolicy {
+        BLOCK, DROP
+    }
+
+    /** An event a subscriber failed to process, and why. */
+    public record DeadLetter(DomainEvent event, String subscriber, String error, int attempts, Instant at) {
+    }
+
+    private static final BatchEventSubscriber.Options SINGLE = new BatchEventSubscriber.Options(1, Duration.ZERO,
+            false);
+
+    private final Map<String, List<Subscription>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionIds = new AtomicInteger();
+    private final ArrayDeque<DeadLetter> deadLetters = new ArrayDeque<>();
+
+    private final MeterRegistry meterRegistry;
+    private final int partitions;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration offerTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final int deadLetterCapacity;
+
+    private final Counter delivered;
+    private final Counter retries;
+    private final Counter dropped;
+    private final Counter deadLettered;
+    private volatile boolean running = true;
+
+    public InMemoryEventBus(MeterRegistry meterRegistry,
+            @Value("${event.bus.partitions:8}") int partitions,
+            @Value("${event.bus.queue-capacity:1024}") int queueCapacity,
+            @Value("${event.bus.overflow:BLOCK}") OverflowPolicy overflowPolicy,
+            @Value("${event.bus.offer-timeout:5s}") Duration offerTimeout,
+            @Value("${event.bus.max-attempts:3}") int maxAttempts,
+            @Value("${event.bus.retry-backoff:100ms}") Duration retryBackoff,
+            @Value("${event.bus.dead-letter-capacity:1000}") int deadLetterCapacity) {
+        if (partitions < 1 || queueCapacity < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Event bus partitions, queue capacity and attempts must be positive");
+        }
+        this.meterRegistry = meterRegistry;
+        this.partitions = partitions;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.delivered = meterRegistry.counter("event.bus.delivered");
+        this.retries = meterRegistry.counter("event.bus.retries");
+        this.dropped = meterRegistry.counter("event.bus.dropped");
+        this.deadLettered = meterRegistry.counter("event.bus.dead-lettered");
+    }
 
     @Override
     public void publish(DomainEvent event) {
-        log.info("Publishing event: {} (id={})", event.getEventType(), event.getEventId());
-        List<EventSubscriber> subs = subscribers.getOrDefault(event.getEventType(), List.of());
-        for (EventSubscriber sub : subs) {
-            executor.submit(() -> {
-                try {
-                    sub.onEvent(event);
-                } catch (Exception e) {
-                    log.error("Error processing event {} by subscriber: {}", event.getEventId(), e.getMessage(), e);
-                }
-            });
+        log.debug("Publishing event: {} (id={})", event.getEventType(), event.getEventId());
+        List<Subscription> subs = subscribers.getOrDefault(event.getEventType(), List.of());
+        if (subs.isEmpty()) {
+            return;
+        }
+        int partition = Math.floorMod(event.getAggregateKey().hashCode(), partitions);
+        for (Subscription sub : subs) {
+            sub.enqueue(partition, event);
         }
     }
 
     @Override
     public void subscribe(String eventType, EventSubscriber subscriber) {
-        subscribers.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+        register(eventType, SINGLE, events -> subscriber.onEvent(events.get(0)));
+    }
+
+    @Override
+    public void subscribeBatch(String eventType, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber) {
+        register(eventType, options, subscriber);
+    }
+
+    private void register(String eventType, BatchEventSubscriber.Options options, BatchEventSubscriber subscriber) {
+        Subscription subscription = new Subscription(eventType, options, subscriber,
+                subscriptionIds.incrementAndGet());
+        subscribers.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(subscription);
         log.info("Subscriber registered for event type: {}", eventType);
     }
+
+    /** Most recent dead letters, oldest first. */
+    public List<DeadLetter> deadLetters() {
+        synchronized (deadLetters) {
+            return List.copyOf(deadLetters);
+        }
+    }
+
+    /** Events waiting in all lanes of all subscriptions. */
+    public int queueDepth() {
+        return subscribers.values().stream().flatMap(List::stream).mapToInt(Subscription::depth).sum();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        subscribers.values().forEach(subs -> subs.forEach(Subscription::stop));
+    }
+
+    private void deadLetter(DomainEvent event, Subscription sub, String error, int attempts) {
+        deadLettered.increment();
+        log.error("Event {} ({}) dead-lettered for {} after {} attempt(s): {}", event.getEventId(),
+                event.getEventType(), sub.name, attempts, error);
+        synchronized (deadLetters) {
+            if (deadLetters.size() == deadLetterCapacity) {
+                deadLetters.removeFirst();
+            }
+            deadLetters.addLast(new DeadLetter(event, sub.name, error, attempts, Instant.now()));
+        }
+    }
+
+    /** One subscriber's lanes for one event type. */
+    private final class Subscription {
+
+        private final String name;
+        private final BatchEventSubscriber.Options options;
+        private final BatchEventSubscriber subscriber;
+        private final List<BlockingQueue<DomainEvent>> lanes = new ArrayList<>();
+        private final List<Thread> workers = new ArrayList<>();
+
+        Subscription(String eventType, BatchEventSubscriber.Options options, BatchEventSubscriber subscriber,
+                int id) {
+            this.name = eventType + "#" + id;
+            this.options = options;
+            this.subscriber = subscriber;
+            for (int p = 0; p < partitions; p++) {
+                BlockingQueue<DomainEvent> lane = new ArrayBlockingQueue<>(queueCapacity);
+                lanes.add(lane);
+                workers.add(Thread.ofVirtual().name("event-" + name + "-" + p).start(() -> drain(lane)));
+            }
+            Gauge.builder("event.bus.queue.depth", this, Subscription::depth)
+                    .tag("subscription", name)
+                    .register(meterRegistry);
+        }
+
+        void enqueue(int partition, DomainEvent event) {
+            BlockingQueue<DomainEvent> lane = lanes.get(partition);
+            boolean accepted;
+            try {
+                accepted = overflowPolicy == OverflowPolicy.BLOCK
+                        ? lane.offer(event, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        : lane.offer(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+            if (!accepted) {
+                dropped.increment();
+                log.warn("Event {} ({}) rejected by {}: lane {} full ({})", event.getEventId(),
+                        event.getEventType(), name, partition, queueCapacity);
+                throw new RejectedExecutionException("Event bus lane " + partition + " of " + name
+                        + " is full (" + queueCapacity + ")");
+            }
+        }
+
+        int depth() {
+            int depth = 0;
+            for (BlockingQueue<DomainEvent> lane : lanes) {
+                depth += lane.size();
+            }
+            return depth;
+        }
+
+        void stop() {
+            workers.forEach(Thread::interrupt);
+        }
+
+        private void drain(BlockingQueue<DomainEvent> lane) {
+            List<DomainEvent> batch = new ArrayList<>(options.maxSize());
+            while (running) {
+                try {
+                    batch.add(lane.take());
+                    fill(lane, batch);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                deliver(options.coalesce() ? coalesce(batch) : List.copyOf(batch));
+                batch.clear();
+            }
+        }
+
+        /** Top the batch up from the lane until full or the batch delay has passed. */
+        private void fill(BlockingQueue<DomainEvent> lane, List<DomainEvent> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + options.maxDelay().toNanos();
+            while (batch.size() < options.maxSize()) {
+                lane.drainTo(batch, options.maxSize() - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() == options.maxSize() || remaining <= 0) {
+                    return;
+                }
+                DomainEvent next = lane.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+        }
+
+        private void deliver(List<DomainEvent> batch) {
+            for (int attempt = 1;; attempt++) {
+                try {
+                    subscriber.onEvents(batch);
+                    delivered.increment(batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts) {
+                        batch.forEach(event -> deadLetter(event, this, e.getMessage(), maxAttempts));
+                        return;
+                    }
+                    retries.increment();
+                    log.warn("Error processing {} event(s) by {} (attempt {}/{}): {}", batch.size(), name,
+                            attempt, maxAttempts, e.getMessage());
+                    try {
+                        Thread.sleep(retryBackoff.multipliedBy(attempt).toMillis());
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge events of the same aggregate key into one, at the position of the
+     * key's first event. Events that do not coalesce are kept as they are.
+     */
+    static List<DomainEvent> coalesce(List<DomainEvent> batch) {
+        if (batch.size() < 2) {
+            return List.copyOf(batch);
+        }
+        Map<String, Integer> slotByKey = new HashMap<>();
+        List<DomainEvent> out = new ArrayList<>(batch.size());
+        for (DomainEvent event : batch) {
+            Integer slot = slotByKey.get(event.getAggregateKey());
+            DomainEvent merged = slot != null ? out.get(slot).coalesce(event) : null;
+            if (merged != null) {
+                out.set(slot, merged);
+            } else {
+                slotByKey.put(event.getAggregateKey(), out.size());
+                out.add(event);
+            }
+        }
+        return out;
+    }
 }
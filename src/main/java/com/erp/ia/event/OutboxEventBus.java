@@ -0,0 +1,49 @@
+package com.erp.ia.event;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The application's {@link EventBus}: events published inside a transaction
+ * go through the {@link EventOutbox} and reach subscribers only after that
+ * transaction commits; events published outside one are delivered directly.
+ * Subscriptions are registered on the delivery bus.
+ */
+@Primary
+@Component
+public class OutboxEventBus implements EventBus {
+
+    private final EventOutbox outbox;
+    private final EventBus delivery;
+    private final boolean enabled;
+
+    public OutboxEventBus(EventOutbox outbox, @Qualifier("delivery") EventBus delivery,
+            @Value("${event.outbox.enabled:true}") boolean enabled) {
+        this.outbox = outbox;
+        this.delivery = delivery;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void publish(DomainEvent event) {
+        if (enabled && TransactionSynchronizationManager.isActualTransactionActive()) {
+            outbox.append(event);
+        } else {
+            delivery.publish(event);
+        }
+    }
+
+    @Override
+    public void subscribe(String eventType, EventSubscriber subscriber) {
+        delivery.subscribe(eventType, subscriber);
+    }
+
+    @Override
+    public void subscribeBatch(String eventType, BatchEventSubscriber.Options options,
+            BatchEventSubscriber subscriber) {
+        delivery.subscribeBatch(eventType, options, subscriber);
+    }
+}
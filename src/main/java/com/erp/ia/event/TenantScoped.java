@@ -0,0 +1,11 @@
+package com.erp.ia.event;
+
+/**
+ * An event about one tenant's data. Subscribers that partition state by
+ * tenant invalidate only that tenant; events without it affect all tenants.
+ */
+public interface TenantScoped {
+
+    /** The tenant the event belongs to, or null when unknown. */
+    String getTenantId();
+}
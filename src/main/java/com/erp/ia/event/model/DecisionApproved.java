@@ -1,6 +1,8 @@
 package com.erp.ia.event.model;
 
 import com.erp.ia.event.DomainEvent;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class DecisionApproved extends DomainEvent {
 
@@ -8,7 +10,10 @@ public class DecisionApproved extends DomainEvent {
     private final String agentName;
     private final String approvedBy;
 
-    public DecisionApproved(String decisionId, String agentName, String approvedBy) {
+    @JsonCreator
+    public DecisionApproved(@JsonProperty("decisionId") String decisionId,
+            @JsonProperty("agentName") String agentName,
+            @JsonProperty("approvedBy") String approvedBy) {
         super("DECISION_APPROVED", 1);
         this.decisionId = decisionId;
         this.agentName = agentName;
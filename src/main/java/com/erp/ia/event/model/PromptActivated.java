@@ -0,0 +1,36 @@
+package com.erp.ia.event.model;
+
+import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.TenantScoped;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PromptActivated extends DomainEvent implements TenantScoped {
+
+    private final String promptName;
+    private final int version;
+    private final String tenantId;
+
+    @JsonCreator
+    public PromptActivated(@JsonProperty("promptName") String promptName,
+            @JsonProperty("version") int version,
+            @JsonProperty("tenantId") String tenantId) {
+        super("PROMPT_ACTIVATED", 1);
+        this.promptName = promptName;
+        this.version = version;
+        this.tenantId = tenantId;
+    }
+
+    public String getPromptName() {
+        return promptName;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getTenantId() {
+        return tenantId;
+    }
+}
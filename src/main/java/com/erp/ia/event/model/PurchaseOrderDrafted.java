@@ -1,6 +1,8 @@
 package com.erp.ia.event.model;
 
 import com.erp.ia.event.DomainEvent;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class PurchaseOrderDrafted extends DomainEvent {
 
@@ -9,7 +11,11 @@ public class PurchaseOrderDrafted extends DomainEvent {
     private final String supplier;
     private final String auditId;
 
-    public PurchaseOrderDrafted(Long orderId, String orderNumber, String supplier, String auditId) {
+    @JsonCreator
+    public PurchaseOrderDrafted(@JsonProperty("orderId") Long orderId,
+            @JsonProperty("orderNumber") String orderNumber,
+            @JsonProperty("supplier") String supplier,
+            @JsonProperty("auditId") String auditId) {
         super("PURCHASE_ORDER_DRAFTED", 1);
         this.orderId = orderId;
         this.orderNumber = orderNumber;
@@ -17,6 +23,11 @@ public class PurchaseOrderDrafted extends DomainEvent {
         this.auditId = auditId;
     }
 
+    @Override
+    public String getAggregateKey() {
+        return "purchase-order:" + orderId;
+    }
+
     public Long getOrderId() {
         return orderId;
     }
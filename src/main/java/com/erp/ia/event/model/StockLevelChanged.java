@@ -1,24 +1,64 @@
 package com.erp.ia.event.model;
 
 import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.TenantScoped;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.math.BigDecimal;
 
-public class StockLevelChanged extends DomainEvent {
+public class StockLevelChanged extends DomainEvent implements TenantScoped {
 
     private final Long productId;
     private final String warehouse;
     private final BigDecimal previousQuantity;
     private final BigDecimal newQuantity;
     private final String reason;
+    private final String tenantId;
 
-    public StockLevelChanged(Long productId, String warehouse,
-            BigDecimal previousQuantity, BigDecimal newQuantity, String reason) {
+    @JsonCreator
+    public StockLevelChanged(@JsonProperty("productId") Long productId,
+            @JsonProperty("warehouse") String warehouse,
+            @JsonProperty("previousQuantity") BigDecimal previousQuantity,
+            @JsonProperty("newQuantity") BigDecimal newQuantity,
+            @JsonProperty("reason") String reason,
+            @JsonProperty("tenantId") String tenantId) {
         super("STOCK_LEVEL_CHANGED", 1);
         this.productId = productId;
         this.warehouse = warehouse;
         this.previousQuantity = previousQuantity;
         this.newQuantity = newQuantity;
         this.reason = reason;
+        this.tenantId = tenantId;
+    }
+
+    private StockLevelChanged(StockLevelChanged first, StockLevelChanged last) {
+        super("STOCK_LEVEL_CHANGED", 1, last.getEventId(), last.getOccurredAt());
+        this.productId = last.productId;
+        this.warehouse = last.warehouse;
+        this.previousQuantity = first.previousQuantity;
+        this.newQuantity = last.newQuantity;
+        this.reason = last.reason;
+        this.tenantId = last.tenantId;
+        setCorrelationId(last.getCorrelationId());
+    }
+
+    /** One stock row: same product and warehouse. */
+    @Override
+    public String getAggregateKey() {
+        return "stock:" + productId + "@" + warehouse;
+    }
+
+    /**
+     * A chain of changes to one stock row collapses into the first→last
+     * transition, carrying the id of the last event.
+     */
+    @Override
+    public DomainEvent coalesce(DomainEvent later) {
+        if (later instanceof StockLevelChanged next && getAggregateKey().equals(next.getAggregateKey())) {
+            return new StockLevelChanged(this, next);
+        }
+        return null;
     }
 
     public Long getProductId() {
@@ -40,4 +80,9 @@ public class StockLevelChanged extends DomainEvent {
     public String getReason() {
         return reason;
     }
+
+    @Override
+    public String getTenantId() {
+        return tenantId;
+    }
 }
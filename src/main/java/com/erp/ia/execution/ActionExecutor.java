@@ -7,38 +7,66 @@ import com.erp.ia.audit.DecisionLogService;
 import com.erp.ia.audit.model.DecisionLog;
 import com.erp.ia.execution.model.ExecutedAction;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Execution Engine — executes approved ActionPlans with idempotency guarantee.
- * Routes ActionType → ActionHandler dynamically. Wraps everything in a
- * transaction.
+ * Routes ActionType → ActionHandler dynamically.
+ *
+ * Actions are grouped by their handler's conflict key (e.g. product and
+ * warehouse) and the groups are spread over up to {@code maxLanes} lanes,
+ * largest first. Lanes share no conflict key, so they run in parallel on
+ * virtual threads, each in its own transaction; within a lane each handler
+ * gets all of the lane's actions of its type at once. Inside a caller's
+ * transaction the lanes run one after the other in it instead.
  */
 @Service
 public class ActionExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(ActionExecutor.class);
 
-    private final ExecutedActionRepository executedActionRepository;
+    private final IdempotencyStore idempotencyStore;
     private final DecisionLogService decisionLogService;
     private final ObjectMapper objectMapper;
     private final Map<ActionType, ActionHandler> handlerMap;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxLanes;
+    private final ExecutorService lanes = Executors.newVirtualThreadPerTaskExecutor();
 
-    public ActionExecutor(ExecutedActionRepository executedActionRepository,
+    public ActionExecutor(IdempotencyStore idempotencyStore,
             DecisionLogService decisionLogService,
             ObjectMapper objectMapper,
-            List<ActionHandler> handlers) {
-        this.executedActionRepository = executedActionRepository;
+            List<ActionHandler> handlers,
+            PlatformTransactionManager transactionManager,
+            @Value("${execution.max-lanes:4}") int maxLanes) {
+        this.idempotencyStore = idempotencyStore;
         this.decisionLogService = decisionLogService;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxLanes = Math.max(1, maxLanes);
         this.handlerMap = new EnumMap<>(ActionType.class);
         handlers.forEach(h -> {
             ActionHandler previous = handlerMap.put(h.getActionType(), h);
@@ -52,9 +80,12 @@ public class ActionExecutor {
 
     /**
      * Execute all actions in an approved decision's ActionPlan.
-     * Each action checks idempotency key before execution.
+     * Each action's idempotency key is claimed before its handler runs, so a
+     * concurrent or repeated execution never applies it twice. A lane that
+     * fails rolls back alone and reports its actions as failed; the decision
+     * then stays APPROVED, so executing it again runs only the rolled-back
+     * actions.
      */
-    @Transactional
     public List<ExecutionResult> execute(String auditId, String executedBy) {
         DecisionLog decision = decisionLogService.findById(auditId)
                 .orElseThrow(() -> new IllegalArgumentException("Decision not found: " + auditId));
@@ -71,54 +102,196 @@ public class ActionExecutor {
             throw new RuntimeException("Failed to deserialize ActionPlan for decision: " + auditId, e);
         }
 
-        List<ExecutionResult> results = new ArrayList<>();
-
-        for (PlannedAction action : plan.actions()) {
-            // Idempotency check
-            if (executedActionRepository.existsByIdempotencyKey(action.getIdempotencyKey())) {
-                log.info("Action already executed (idempotent): {}", action.getIdempotencyKey());
-                ExecutedAction existing = executedActionRepository.findByIdempotencyKey(action.getIdempotencyKey())
-                        .orElseThrow();
-                results.add(new ExecutionResult(existing.getStatus(), existing.getActionType(),
-                        "Already executed (idempotent)", null));
-                continue;
+        List<PlannedAction> actions = plan.actions();
+        ExecutionResult[] results = new ExecutionResult[actions.size()];
+        Map<String, Integer> firstByKey = new LinkedHashMap<>();
+        Map<Integer, Integer> repeatOf = new HashMap<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Integer first = firstByKey.putIfAbsent(actions.get(i).getIdempotencyKey(), i);
+            if (first != null) {
+                repeatOf.put(i, first); // same key twice in one plan: runs once
             }
+        }
 
-            // Dispatch to registered handler
-            ExecutionResult result;
-            ActionHandler handler = handlerMap.get(action.getType());
-            if (handler != null) {
-                log.info("Dispatching action {} [key={}] to {}",
-                        action.getType(), action.getIdempotencyKey(), handler.getClass().getSimpleName());
-                result = handler.handle(action, auditId, executedBy);
-            } else {
-                log.warn("No ActionHandler registered for type: {}", action.getType());
-                result = ExecutionResult.failed(action.getType().name(),
-                        "No handler registered for action type: " + action.getType());
+        List<List<Integer>> laneIndexes = partition(actions, firstByKey.values());
+        boolean rolledBack = false;
+        if (laneIndexes.size() <= 1 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (List<Integer> lane : laneIndexes) {
+                rolledBack |= !runLane(actions, lane, results, auditId, executedBy);
             }
-
-            // Record execution
-            ExecutedAction record = new ExecutedAction();
-            record.setIdempotencyKey(action.getIdempotencyKey());
-            record.setAuditId(auditId);
-            record.setActionType(action.getType().name());
-            record.setStatus(result.status());
-            record.setExecutedBy(executedBy);
-            try {
-                record.setResultJson(objectMapper.writeValueAsString(result));
-            } catch (Exception e) {
-                record.setResultJson(result.toString());
+        } else {
+            log.info("Executing {} actions of {} in {} parallel lanes", firstByKey.size(), auditId,
+                    laneIndexes.size());
+            List<Future<Boolean>> running = laneIndexes.stream()
+                    .map(lane -> lanes.submit(() -> runLane(actions, lane, results, auditId, executedBy)))
+                    .toList();
+            for (Future<Boolean> lane : running) {
+                rolledBack |= !await(lane);
             }
-            executedActionRepository.save(record);
+        }
 
-            results.add(result);
+        repeatOf.forEach((i, first) -> results[i] = new ExecutionResult(results[first].status(),
+                results[first].actionType(), "Already executed (idempotent)", null));
+
+        if (rolledBack) {
+            // committed lanes hold their keys; a retry runs only the rolled-back actions
+            log.warn("Decision {} partially executed; it stays APPROVED for a retry", auditId);
+            return Arrays.asList(results);
         }
 
         // Update decision status
-        boolean allSuccess = results.stream().allMatch(ExecutionResult::isSuccess);
+        boolean allSuccess = Arrays.stream(results).allMatch(ExecutionResult::isSuccess);
         decisionLogService.updateStatus(auditId,
                 allSuccess ? DecisionLog.DecisionStatus.EXECUTED : DecisionLog.DecisionStatus.REJECTED);
 
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Group action indexes by conflict key and pack the groups into lanes,
+     * largest group first onto the least loaded lane. Each lane keeps plan
+     * order.
+     */
+    List<List<Integer>> partition(List<PlannedAction> actions, Collection<Integer> indexes) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i : indexes) {
+            PlannedAction action = actions.get(i);
+            ActionHandler handler = handlerMap.get(action.getType());
+            String key = handler != null ? handler.conflictKey(action) : "unhandled:" + action.getType();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        int laneCount = Math.min(maxLanes, groups.size());
+        List<List<Integer>> lanes = new ArrayList<>();
+        for (int l = 0; l < laneCount; l++) {
+            lanes.add(new ArrayList<>());
+        }
+        groups.values().stream()
+                .sorted(Comparator.comparingInt(List<Integer>::size).reversed())
+                .forEach(group -> lanes.stream().min(Comparator.comparingInt(List::size)).orElseThrow()
+                        .addAll(group));
+        lanes.forEach(Collections::sort);
+        return lanes;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.shutdown();
+    }
+
+    /** Runs one lane in its own transaction; returns false if it was rolled back. */
+    private boolean runLane(List<PlannedAction> actions, List<Integer> lane, ExecutionResult[] results,
+            String auditId, String executedBy) {
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> executeLane(actions, lane, results, auditId, executedBy));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Execution lane of {} failed and was rolled back: {}", auditId, e.getMessage(), e);
+            for (int i : lane) {
+                results[i] = ExecutionResult.failed(actions.get(i).getType().name(),
+                        "Falha na execução (revertida): " + e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private void executeLane(List<PlannedAction> actions, List<Integer> lane, ExecutionResult[] results,
+            String auditId, String executedBy) {
+        // Idempotency: one lookup for the lane, then claim the new keys
+        List<String> keys = lane.stream().map(i -> actions.get(i).getIdempotencyKey()).toList();
+        Map<String, ExecutedAction> existing = idempotencyStore.findExisting(keys);
+        List<IdempotencyStore.Claim> claims = new ArrayList<>();
+        for (int i : lane) {
+            PlannedAction action = actions.get(i);
+            if (!existing.containsKey(action.getIdempotencyKey())) {
+                claims.add(new IdempotencyStore.Claim(action.getIdempotencyKey(), auditId, action.getType().name(),
+                        executedBy));
+            }
+        }
+        Set<String> claimed = idempotencyStore.claim(claims);
+        if (claimed.size() < claims.size()) {
+            // lost to a concurrent execution, committed by now
+            existing.putAll(idempotencyStore.findExisting(claims.stream()
+                    .map(IdempotencyStore.Claim::idempotencyKey)
+                    .filter(key -> !claimed.contains(key))
+                    .toList()));
+        }
+
+        Map<ActionType, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i : lane) {
+            PlannedAction action = actions.get(i);
+            String key = action.getIdempotencyKey();
+            if (claimed.contains(key)) {
+                pending.computeIfAbsent(action.getType(), t -> new ArrayList<>()).add(i);
+                continue;
+            }
+            log.info("Action already executed (idempotent): {}", key);
+            ExecutedAction done = existing.get(key);
+            results[i] = done != null
+                    ? new ExecutionResult(done.getStatus(), done.getActionType(), "Already executed (idempotent)", null)
+                    : ExecutionResult.failed(action.getType().name(), "Claimed by a concurrent execution");
+        }
+
+        // Dispatch each type's actions to its handler in one batch
+        List<ExecutedAction> outcomes = new ArrayList<>();
+        for (Map.Entry<ActionType, List<Integer>> group : pending.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            List<PlannedAction> batch = indexes.stream().map(actions::get).toList();
+            List<ExecutionResult> batchResults = dispatch(group.getKey(), batch, auditId, executedBy);
+            for (int j = 0; j < indexes.size(); j++) {
+                int i = indexes.get(j);
+                results[i] = batchResults.get(j);
+                outcomes.add(record(actions.get(i), results[i], auditId, executedBy));
+            }
+        }
+        // Record execution
+        idempotencyStore.complete(outcomes);
+    }
+
+    private static boolean await(Future<Boolean> lane) {
+        try {
+            return lane.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing action plan", e);
+        } catch (ExecutionException e) {
+            // runLane reports its own failures; this is a bug in it
+            throw new IllegalStateException("Execution lane failed unexpectedly", e.getCause());
+        }
+    }
+
+    private List<ExecutionResult> dispatch(ActionType type, List<PlannedAction> batch, String auditId,
+            String executedBy) {
+        ActionHandler handler = handlerMap.get(type);
+        if (handler == null) {
+            log.warn("No ActionHandler registered for type: {}", type);
+            return batch.stream()
+                    .map(a -> ExecutionResult.failed(type.name(), "No handler registered for action type: " + type))
+                    .toList();
+        }
+        log.info("Dispatching {} action(s) of type {} to {}", batch.size(), type,
+                handler.getClass().getSimpleName());
+        List<ExecutionResult> results = handler.handleBatch(batch, auditId, executedBy);
+        if (results.size() != batch.size()) {
+            throw new IllegalStateException(handler.getClass().getSimpleName() + " returned " + results.size()
+                    + " results for " + batch.size() + " actions");
+        }
         return results;
     }
+
+    private ExecutedAction record(PlannedAction action, ExecutionResult result, String auditId, String executedBy) {
+        ExecutedAction record = new ExecutedAction();
+        record.setIdempotencyKey(action.getIdempotencyKey());
+        record.setAuditId(auditId);
+        record.setActionType(action.getType().name());
+        record.setStatus(result.status());
+        record.setExecutedBy(executedBy);
+        try {
+            record.setResultJson(objectMapper.writeValueAsString(result));
+        } catch (Exception e) {
+            record.setResultJson(result.toString());
+        }
+        return record;
+    }
 }
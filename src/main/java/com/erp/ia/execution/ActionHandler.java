@@ -3,6 +3,8 @@ package com.erp.ia.execution;
 import com.erp.ia.agent.model.ActionType;
 import com.erp.ia.agent.model.PlannedAction;
 
+import java.util.List;
+
 /**
  * Contract for executing a specific ActionType.
  * Each handler is auto-discovered by Spring and registered by ActionType.
@@ -24,4 +26,24 @@ public interface ActionHandler {
      * @return result with status, message, and optional output
      */
     ExecutionResult handle(PlannedAction action, String auditId, String executedBy);
+
+    /**
+     * What an action writes to, for running a plan in parallel: actions with
+     * different keys never touch the same rows and may run concurrently.
+     * The default puts all actions of this type in one lane.
+     */
+    default String conflictKey(PlannedAction action) {
+        return getActionType().name();
+    }
+
+    /**
+     * Execute all actions of this handler's type from one plan, in order.
+     * Handlers that can share lookups and writes across actions override
+     * this; the default runs them one by one.
+     *
+     * @return one result per action, in the same order
+     */
+    default List<ExecutionResult> handleBatch(List<PlannedAction> actions, String auditId, String executedBy) {
+        return actions.stream().map(action -> handle(action, auditId, executedBy)).toList();
+    }
 }
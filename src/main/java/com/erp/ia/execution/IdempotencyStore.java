@@ -0,0 +1,88 @@
+package com.erp.ia.execution;
+
+import com.erp.ia.execution.model.ExecutedAction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claim-then-execute idempotency over {@code executed_actions}.
+ *
+ * A key is claimed by inserting its row (status {@code PENDING}) with
+ * {@code ON CONFLICT DO NOTHING} before the handler runs, and completed with
+ * the handler's result afterwards, in the same transaction. A concurrent
+ * execution claiming the same key waits on the unique index until the first
+ * commits and then gets nothing, so an action is never applied twice.
+ *
+ * The claim relies on per-row batch update counts, so the PostgreSQL driver
+ * must not run with {@code reWriteBatchedInserts}.
+ */
+@Component
+public class IdempotencyStore {
+
+    static final String PENDING = "PENDING";
+
+    private static final String CLAIM = "INSERT INTO executed_actions "
+            + "(idempotency_key, audit_id, action_type, status, executed_by, executed_at) "
+            + "VALUES (?, ?, ?, '" + PENDING + "', ?, ?) ON CONFLICT DO NOTHING";
+    private static final String COMPLETE = "UPDATE executed_actions SET status = ?, result_json = ?, executed_at = ? "
+            + "WHERE idempotency_key = ?";
+
+    private final ExecutedActionRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyStore(ExecutedActionRepository repository, JdbcTemplate jdbcTemplate) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** A key to claim and what it will run. */
+    public record Claim(String idempotencyKey, String auditId, String actionType, String executedBy) {
+    }
+
+    /** Already recorded executions among {@code keys}, in one query. */
+    public Map<String, ExecutedAction> findExisting(Collection<String> keys) {
+        Map<String, ExecutedAction> existing = new HashMap<>();
+        if (!keys.isEmpty()) {
+            repository.findByIdempotencyKeyIn(keys).forEach(a -> existing.put(a.getIdempotencyKey(), a));
+        }
+        return existing;
+    }
+
+    /** Claim keys in one batch; returns those this transaction now owns. */
+    public Set<String> claim(List<Claim> claims) {
+        if (claims.isEmpty()) {
+            return Set.of();
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        int[] counts = jdbcTemplate.batchUpdate(CLAIM, claims.stream()
+                .map(c -> new Object[] { c.idempotencyKey(), c.auditId(), c.actionType(), c.executedBy(), now })
+                .toList());
+        Set<String> claimed = new HashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                claimed.add(claims.get(i).idempotencyKey());
+            }
+        }
+        return claimed;
+    }
+
+    /** Store the outcome of claimed keys, in one batch. */
+    public void complete(List<ExecutedAction> outcomes) {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(COMPLETE, outcomes.stream()
+                .map(a -> new Object[] { a.getStatus(), a.getResultJson(), now, a.getIdempotencyKey() })
+                .toList());
+    }
+}
@@ -3,7 +3,6 @@ package com.erp.ia.execution.handler;
 import com.erp.ia.agent.model.ActionType;
 import com.erp.ia.agent.model.PlannedAction;
 import com.erp.ia.core.model.Product;
-import com.erp.ia.core.model.Stock;
 import com.erp.ia.core.model.StockMovement;
 import com.erp.ia.core.repository.ProductRepository;
 import com.erp.ia.core.service.StockService;
@@ -16,13 +15,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * Handles ADJUST_STOCK actions.
+ * Handles ADJUST_STOCK actions, one at a time or a whole plan's worth in a
+ * batch.
  * Extracts productId, warehouse, quantity, movementType, reason from params,
- * delegates to StockService.adjustStock(), and publishes StockLevelChanged
- * event.
+ * delegates to StockService.adjustStock() (atomic, concurrency-safe), and
+ * publishes StockLevelChanged with the quantities it reports.
  */
 @Component
 public class AdjustStockHandler implements ActionHandler {
@@ -46,19 +52,147 @@ public class AdjustStockHandler implements ActionHandler {
 
     @Override
     public ExecutionResult handle(PlannedAction action, String auditId, String executedBy) {
+        Parsed parsed = parse(action, auditId);
+        if (parsed.error() != null) {
+            return parsed.error();
+        }
+        Long productId = parsed.productId();
+        String warehouse = parsed.warehouse();
+
+        log.info("Adjusting stock: productId={}, warehouse={}, type={}, qty={}, auditId={}",
+                productId, warehouse, parsed.movementType(), parsed.quantity(), auditId);
+
+        try {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new IllegalArgumentException("Produto não encontrado: " + productId));
+
+            // Quantities come from the adjustment itself, not from separate reads
+            // that a concurrent movement could slip between
+            StockService.Adjustment adjustment = stockService.adjustStock(
+                    product, warehouse, parsed.movementType(), parsed.quantity(), parsed.reason(), executedBy);
+
+            log.info("Stock adjusted: movementId={}, previous={}, new={}",
+                    adjustment.movement().getId(), adjustment.previousQuantity(), adjustment.newQuantity());
+            return succeeded(parsed, adjustment);
+
+        } catch (Exception e) {
+            log.error("Failed to adjust stock: {}", e.getMessage(), e);
+            return ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
+                    "Falha ao ajustar estoque: " + e.getMessage());
+        }
+    }
+
+    /** Movements on different product/warehouse rows never conflict. */
+    @Override
+    public String conflictKey(PlannedAction action) {
+        Long productId = getLongParam(action.getParams(), "productId");
+        if (productId == null) {
+            return getActionType().name();
+        }
+        return "stock:" + productId + "@" + getStringParam(action.getParams(), "warehouse", "MAIN");
+    }
+
+    /**
+     * Whole plan's adjustments at once: products come from one IN query and
+     * StockService applies every movement in a fixed number of round-trips.
+     * Invalid actions fail on their own; a failing batch fails the valid ones.
+     */
+    @Override
+    public List<ExecutionResult> handleBatch(List<PlannedAction> actions, String auditId, String executedBy) {
+        if (actions.size() == 1) {
+            return List.of(handle(actions.get(0), auditId, executedBy));
+        }
+        ExecutionResult[] results = new ExecutionResult[actions.size()];
+        List<Parsed> parsed = new ArrayList<>(actions.size());
+        Set<Long> productIds = new HashSet<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Parsed p = parse(actions.get(i), auditId);
+            parsed.add(p);
+            if (p.error() != null) {
+                results[i] = p.error();
+            } else {
+                productIds.add(p.productId());
+            }
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(productIds).forEach(p -> products.put(p.getId(), p));
+
+        List<Integer> indexes = new ArrayList<>();
+        List<StockService.AdjustmentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Parsed p = parsed.get(i);
+            if (results[i] != null) {
+                continue;
+            }
+            Product product = products.get(p.productId());
+            if (product == null) {
+                results[i] = ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
+                        "Falha ao ajustar estoque: Produto não encontrado: " + p.productId());
+                continue;
+            }
+            indexes.add(i);
+            requests.add(new StockService.AdjustmentRequest(product, p.warehouse(), p.movementType(), p.quantity(),
+                    p.reason(), executedBy));
+        }
+
+        log.info("Adjusting stock in batch: {} movements ({} invalid), auditId={}",
+                requests.size(), actions.size() - requests.size(), auditId);
+        try {
+            List<StockService.Adjustment> adjustments = stockService.adjustStocks(requests);
+            for (int j = 0; j < indexes.size(); j++) {
+                int i = indexes.get(j);
+                results[i] = succeeded(parsed.get(i), adjustments.get(j));
+            }
+        } catch (Exception e) {
+            log.error("Failed to adjust stock batch: {}", e.getMessage(), e);
+            for (int i : indexes) {
+                results[i] = ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
+                        "Falha ao ajustar estoque: " + e.getMessage());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private ExecutionResult succeeded(Parsed parsed, StockService.Adjustment adjustment) {
+        Long productId = parsed.productId();
+        eventBus.publish(new StockLevelChanged(productId, parsed.warehouse(), adjustment.previousQuantity(),
+                adjustment.newQuantity(), parsed.reason(), adjustment.movement().getTenantId()));
+
+        return ExecutionResult.success(
+                ActionType.ADJUST_STOCK.name(),
+                "Estoque ajustado com sucesso para o produto " + productId,
+                Map.of(
+                        "movementId", adjustment.movement().getId(),
+                        "productId", productId,
+                        "warehouse", parsed.warehouse(),
+                        "previousQuantity", adjustment.previousQuantity(),
+                        "newQuantity", adjustment.newQuantity(),
+                        "movementType", parsed.movementType().name()));
+    }
+
+    /** Validated params of one action, or the failure explaining why they are not. */
+    private record Parsed(Long productId, String warehouse, BigDecimal quantity,
+            StockMovement.MovementType movementType, String reason, ExecutionResult error) {
+
+        static Parsed failed(String message) {
+            return new Parsed(null, null, null, null, null,
+                    ExecutionResult.failed(ActionType.ADJUST_STOCK.name(), message));
+        }
+    }
+
+    private Parsed parse(PlannedAction action, String auditId) {
         Map<String, Object> params = action.getParams();
 
         Long productId = getLongParam(params, "productId");
         if (productId == null) {
-            return ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
-                    "Parâmetro obrigatório ausente: productId");
+            return Parsed.failed("Parâmetro obrigatório ausente: productId");
         }
 
         String warehouse = getStringParam(params, "warehouse", "MAIN");
         BigDecimal quantity = getBigDecimalParam(params, "quantity");
         if (quantity == null) {
-            return ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
-                    "Parâmetro obrigatório ausente: quantity");
+            return Parsed.failed("Parâmetro obrigatório ausente: quantity");
         }
 
         String movementTypeStr = getStringParam(params, "movementType", "ADJUST");
@@ -66,55 +200,11 @@ public class AdjustStockHandler implements ActionHandler {
         try {
             movementType = StockMovement.MovementType.valueOf(movementTypeStr.toUpperCase());
         } catch (IllegalArgumentException e) {
-            return ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
-                    "Tipo de movimento inválido: " + movementTypeStr);
+            return Parsed.failed("Tipo de movimento inválido: " + movementTypeStr);
         }
 
         String reason = getStringParam(params, "reason", "Ajuste via agente IA | auditId=" + auditId);
-
-        log.info("Adjusting stock: productId={}, warehouse={}, type={}, qty={}, auditId={}",
-                productId, warehouse, movementType, quantity, auditId);
-
-        try {
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new IllegalArgumentException("Produto não encontrado: " + productId));
-
-            // Capture previous quantity for event
-            BigDecimal previousQuantity = stockService.getStock(productId, warehouse)
-                    .map(Stock::getQuantity)
-                    .orElse(BigDecimal.ZERO);
-
-            StockMovement movement = stockService.adjustStock(
-                    product, warehouse, movementType, quantity, reason, executedBy);
-
-            // Calculate new quantity for event
-            BigDecimal newQuantity = stockService.getStock(productId, warehouse)
-                    .map(Stock::getQuantity)
-                    .orElse(BigDecimal.ZERO);
-
-            log.info("Stock adjusted: movementId={}, previous={}, new={}",
-                    movement.getId(), previousQuantity, newQuantity);
-
-            // Publish domain event
-            eventBus.publish(new StockLevelChanged(
-                    productId, warehouse, previousQuantity, newQuantity, reason));
-
-            return ExecutionResult.success(
-                    ActionType.ADJUST_STOCK.name(),
-                    "Estoque ajustado com sucesso para o produto " + productId,
-                    Map.of(
-                            "movementId", movement.getId(),
-                            "productId", productId,
-                            "warehouse", warehouse,
-                            "previousQuantity", previousQuantity,
-                            "newQuantity", newQuantity,
-                            "movementType", movementType.name()));
-
-        } catch (Exception e) {
-            log.error("Failed to adjust stock: {}", e.getMessage(), e);
-            return ExecutionResult.failed(ActionType.ADJUST_STOCK.name(),
-                    "Falha ao ajustar estoque: " + e.getMessage());
-        }
+        return new Parsed(productId, warehouse, quantity, movementType, reason, null);
     }
 
     private String getStringParam(Map<String, Object> params, String key, String defaultValue) {
@@ -39,6 +39,12 @@ public class DraftPurchaseOrderHandler implements ActionHandler {
         return ActionType.DRAFT_PURCHASE_ORDER;
     }
 
+    /** Drafts for different suppliers are independent. */
+    @Override
+    public String conflictKey(PlannedAction action) {
+        return "supplier:" + getStringParam(action.getParams(), "supplier", "Fornecedor Padrão");
+    }
+
     @Override
     public ExecutionResult handle(PlannedAction action, String auditId, String executedBy) {
         Map<String, Object> params = action.getParams();
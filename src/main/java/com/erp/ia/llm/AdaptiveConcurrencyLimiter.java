@@ -0,0 +1,113 @@
+package com.erp.ia.llm;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD limit on concurrent LLM calls.
+ *
+ * The limit grows by one for each call that completes under the latency
+ * threshold while the limiter is at least half used, and is cut by the backoff
+ * ratio when a call is slow or fails — at most once per window: calls that
+ * were already in flight at the last cut saw the same congestion and do not
+ * cut again. Requests over the limit are shed
+ * immediately rather than queued: the orchestrator already has a deterministic
+ * fallback, and waiting for a slow upstream is exactly what ties up request
+ * threads.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecreaseAt = new AtomicLong(System.nanoTime());
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency bounds: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = new AtomicInteger(Math.clamp(initialLimit, minLimit, maxLimit));
+    }
+
+    /**
+     * Claims a slot, or returns null if the current limit is reached. A
+     * non-null permit must be released exactly once.
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1, System.nanoTime());
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    void onComplete(int inFlightAtStart, long startedAt, long latencyNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        if (latencyNanos < 0) {
+            return;
+        }
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            long last = lastDecreaseAt.get();
+            if (startedAt - last >= 0 && lastDecreaseAt.compareAndSet(last, System.nanoTime())) {
+                limit.updateAndGet(l -> Math.max(minLimit, (int) (l * BACKOFF_RATIO)));
+            }
+        } else if (inFlightAtStart * 2 >= limit.get()) {
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    /**
+     * One admitted call.
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long startedAt;
+        private boolean released;
+
+        private Permit(int inFlightAtStart, long startedAt) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startedAt = startedAt;
+        }
+
+        public void release(boolean failed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            onComplete(inFlightAtStart, startedAt, System.nanoTime() - startedAt, failed);
+        }
+
+        /**
+         * Gives the slot back without a sample, for a call that never reached
+         * the provider.
+         */
+        public void abandon() {
+            if (released) {
+                return;
+            }
+            released = true;
+            onComplete(inFlightAtStart, startedAt, -1, false);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.erp.ia.llm;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Composite LLM provider routing over an ordered chain of providers.
+ *
+ * The first member is called; if it has not answered within its recent p95
+ * latency (the hedge delay), the next member is called as well and the first
+ * usable answer wins, the other call being cancelled. A member that answers
+ * with an error — including an open circuit or a shed request — hands over to
+ * the next member immediately.
+ *
+ * For streams the race is decided by the first chunk: the member that
+ * delivers it owns the listener and the others are aborted, so the listener
+ * never sees content from two providers.
+ */
+public class ChainLlmProvider implements LlmPort {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainLlmProvider.class);
+
+    /**
+     * One named provider in the chain.
+     */
+    public record Member(String name, LlmPort port) {
+    }
+
+    private final List<Member> members;
+    private final List<LatencyWindow> completeLatency;
+    private final List<LatencyWindow> firstChunkLatency;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ChainLlmProvider(List<Member> members, Duration initialHedgeDelay, Duration minHedgeDelay) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("LLM chain needs at least one provider");
+        }
+        this.members = List.copyOf(members);
+        this.completeLatency = new ArrayList<>();
+        this.firstChunkLatency = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            completeLatency.add(new LatencyWindow(initialHedgeDelay, minHedgeDelay));
+            firstChunkLatency.add(new LatencyWindow(initialHedgeDelay, minHedgeDelay));
+        }
+    }
+
+    @Override
+    public LlmResponse complete(LlmRequest request) {
+        return race(completeLatency, null, index -> {
+            long start = System.nanoTime();
+            LlmResponse response = members.get(index).port().complete(request);
+            if (!response.error()) {
+                completeLatency.get(index).record(System.nanoTime() - start);
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, StreamListener listener) {
+        AtomicReference<Member> owner = new AtomicReference<>();
+        return race(firstChunkLatency, owner, index -> {
+            Member member = members.get(index);
+            long start = System.nanoTime();
+            return member.port().stream(request, chunk -> {
+                if (owner.get() == null && owner.compareAndSet(null, member)) {
+                    firstChunkLatency.get(index).record(System.nanoTime() - start);
+                    log.debug("LLM stream won by '{}'", member.name());
+                }
+                return owner.get() == member && listener.onChunk(chunk);
+            });
+        });
+    }
+
+    /**
+     * Runs members in chain order, starting the next one when the current one
+     * fails or outlives its hedge delay. With an {@code owner} (streams), once a
+     * member owns the listener only its outcome counts.
+     */
+    private LlmResponse race(List<LatencyWindow> latencies, AtomicReference<Member> owner,
+            IntFunction<LlmResponse> call) {
+        CompletionService<Attempt> completion = new ExecutorCompletionService<>(executor);
+        Future<?>[] running = new Future<?>[members.size()];
+        int launched = 0;
+        int pending = 0;
+        LlmResponse lastError = null;
+
+        try {
+            while (true) {
+                if (pending == 0) {
+                    if (launched == members.size()) {
+                        break;
+                    }
+                    running[launched] = launch(completion, launched++, call);
+                    pending++;
+                }
+
+                boolean canHedge = launched < members.size() && (owner == null || owner.get() == null);
+                Future<Attempt> done;
+                if (canHedge) {
+                    long delay = latencies.get(launched - 1).hedgeDelayNanos();
+                    done = completion.poll(delay, TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        if (owner == null || owner.get() == null) {
+                            log.info("LLM provider '{}' slower than {}ms — hedging with '{}'",
+                                    members.get(launched - 1).name(), TimeUnit.NANOSECONDS.toMillis(delay),
+                                    members.get(launched).name());
+                            running[launched] = launch(completion, launched++, call);
+                            pending++;
+                        }
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+                pending--;
+
+                Attempt attempt = outcome(done);
+                Member member = members.get(attempt.index());
+                boolean owns = owner != null && owner.get() == member;
+                if (owner != null && owner.get() != null && !owns) {
+                    continue; // aborted loser of a stream race
+                }
+                if (!attempt.response().error() || owns) {
+                    return attempt.response();
+                }
+                log.warn("LLM provider '{}' failed: {}", member.name(), attempt.response().errorMessage());
+                lastError = attempt.response();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LlmResponse.ofError("LLM chain interrupted");
+        } finally {
+            Arrays.stream(running).filter(f -> f != null).forEach(f -> f.cancel(true));
+        }
+
+        return lastError != null ? lastError : LlmResponse.ofError("No LLM provider available");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Future<Attempt> launch(CompletionService<Attempt> completion, int index,
+            IntFunction<LlmResponse> call) {
+        return completion.submit(() -> new Attempt(index, call.apply(index)));
+    }
+
+    private static Attempt outcome(Future<Attempt> done) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            // providers report failures as error responses; this is a bug in one
+            throw new IllegalStateException("LLM provider threw instead of returning an error", e.getCause());
+        }
+    }
+
+    private record Attempt(int index, LlmResponse response) {
+    }
+
+    /**
+     * Recent latencies of one member; the hedge delay is their p95, or the
+     * initial delay until enough samples exist.
+     */
+    static class LatencyWindow {
+
+        private static final int SIZE = 128;
+        private static final int MIN_SAMPLES = 20;
+
+        private final long[] samples = new long[SIZE];
+        private final long initialNanos;
+        private final long minNanos;
+        private int count;
+        private int next;
+
+        LatencyWindow(Duration initial, Duration min) {
+            this.initialNanos = initial.toNanos();
+            this.minNanos = min.toNanos();
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+        }
+
+        synchronized long hedgeDelayNanos() {
+            if (count < MIN_SAMPLES) {
+                return initialNanos;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            long p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+            return Math.max(minNanos, p95);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.erp.ia.llm;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker whose state lives in a single atomic
+ * reference, so every transition is one compare-and-set.
+ *
+ * CLOSED lets calls through and counts consecutive failures; at the threshold
+ * the circuit goes OPEN and rejects calls. Once the open period has elapsed,
+ * exactly one caller wins the OPEN → HALF_OPEN transition and becomes the
+ * probe; everyone else keeps being rejected until the probe reports back.
+ */
+public class CircuitBreaker {
+
+    public enum Phase {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private record State(Phase phase, int failures, long openedAt) {
+    }
+
+    private static final State CLOSED = new State(Phase.CLOSED, 0, 0);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(CLOSED);
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Whether the caller may attempt a call now. A {@code true} obliges the
+     * caller to report the outcome via {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            switch (current.phase()) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    if (clock.getAsLong() - current.openedAt() < openNanos) {
+                        return false;
+                    }
+                    if (state.compareAndSet(current, new State(Phase.HALF_OPEN, current.failures(), 0))) {
+                        return true;
+                    }
+                    // lost the race for the probe slot, re-read
+            }
+        }
+    }
+
+    public void onSuccess() {
+        state.set(CLOSED);
+    }
+
+    /**
+     * Records a failed call.
+     *
+     * @return true if this failure opened (or re-opened) the circuit
+     */
+    public boolean onFailure() {
+        while (true) {
+            State current = state.get();
+            State next;
+            if (current.phase() == Phase.OPEN) {
+                return false;
+            }
+            if (current.phase() == Phase.HALF_OPEN || current.failures() + 1 >= failureThreshold) {
+                next = new State(Phase.OPEN, current.failures() + 1, clock.getAsLong());
+            } else {
+                next = new State(Phase.CLOSED, current.failures() + 1, 0);
+            }
+            if (state.compareAndSet(current, next)) {
+                return next.phase() == Phase.OPEN;
+            }
+        }
+    }
+
+    /**
+     * Records a call given up by its caller before any outcome. A probe that
+     * is abandoned hands the HALF_OPEN slot back, so the next caller probes
+     * instead of the circuit staying half open.
+     */
+    public void onAbandon() {
+        State current = state.get();
+        if (current.phase() == Phase.HALF_OPEN) {
+            state.compareAndSet(current, new State(Phase.OPEN, current.failures(), clock.getAsLong() - openNanos));
+        }
+    }
+
+    public Phase getPhase() {
+        return state.get().phase();
+    }
+
+    public int getConsecutiveFailures() {
+        return state.get().failures();
+    }
+}
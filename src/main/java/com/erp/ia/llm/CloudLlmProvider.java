@@ -8,23 +8,46 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Cloud LLM provider (OpenAI-compatible API).
  * Includes timeout, retry with exponential backoff, and circuit-breaker.
+ * Streaming uses server-sent events ({@code "stream": true}); a stream that
+ * sends nothing for {@code llm.read-timeout} is closed and counts as a failed
+ * attempt, since the request timeout only covers the wait for headers.
+ *
+ * Every call first takes a slot from the {@link AdaptiveConcurrencyLimiter},
+ * then asks the {@link CircuitBreaker}; either one refusing turns into an
+ * error response, which the orchestrator answers with its deterministic
+ * fallback.
  */
 @Component
 @ConditionalOnProperty(name = "llm.provider", havingValue = "cloud")
 public class CloudLlmProvider implements LlmPort {
 
     private static final Logger log = LoggerFactory.getLogger(CloudLlmProvider.class);
+    private static final ScheduledExecutorService IDLE_WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("llm-stream-watchdog").daemon(true).factory());
 
     private final String baseUrl;
     private final String apiKey;
@@ -32,14 +55,10 @@ public class CloudLlmProvider implements LlmPort {
     private final Duration connectTimeout;
     private final Duration readTimeout;
     private final int maxRetries;
-    private final int circuitBreakerThreshold;
     private final ObjectMapper objectMapper;
     private final HttpClient httpClient;
-
-    private int consecutiveFailures = 0;
-    private boolean circuitOpen = false;
-    private long circuitOpenedAt = 0;
-    private static final long CIRCUIT_HALF_OPEN_MS = 30_000;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
 
     public CloudLlmProvider(
             @Value("${llm.cloud.base-url}") String baseUrl,
@@ -49,6 +68,10 @@ public class CloudLlmProvider implements LlmPort {
             @Value("${llm.timeout-read:30s}") Duration readTimeout,
             @Value("${llm.retry-max:2}") int maxRetries,
             @Value("${llm.circuit-breaker-threshold:5}") int circuitBreakerThreshold,
+            @Value("${llm.circuit-breaker-open:30s}") Duration circuitOpenDuration,
+            @Value("${llm.concurrency.initial-limit:8}") int initialLimit,
+            @Value("${llm.concurrency.max-limit:64}") int maxLimit,
+            @Value("${llm.concurrency.latency-threshold:10s}") Duration latencyThreshold,
             ObjectMapper objectMapper) {
         this.baseUrl = baseUrl;
         this.apiKey = apiKey;
@@ -56,8 +79,9 @@ public class CloudLlmProvider implements LlmPort {
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
         this.maxRetries = maxRetries;
-        this.circuitBreakerThreshold = circuitBreakerThreshold;
         this.objectMapper = objectMapper;
+        this.circuitBreaker = new CircuitBreaker(circuitBreakerThreshold, circuitOpenDuration);
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, 1, maxLimit, latencyThreshold);
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(connectTimeout)
                 .build();
@@ -65,11 +89,10 @@ public class CloudLlmProvider implements LlmPort {
 
     @Override
     public LlmResponse complete(LlmRequest request) {
-        if (isCircuitOpen()) {
-            log.warn("Circuit breaker OPEN — returning fallback");
-            return LlmResponse.ofError("LLM service temporarily unavailable (circuit breaker open)");
-        }
+        return guarded(() -> completeWithRetry(request));
+    }
 
+    private LlmResponse completeWithRetry(LlmRequest request) {
         String effectiveModel = request.model() != null ? request.model() : this.model;
 
         for (int attempt = 0; attempt <= maxRetries; attempt++) {
@@ -77,10 +100,18 @@ public class CloudLlmProvider implements LlmPort {
                 LlmResponse response = doRequest(request, effectiveModel);
                 onSuccess();
                 return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return cancelled();
             } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return cancelled();
+                }
                 log.warn("LLM call attempt {} failed: {}", attempt + 1, e.getMessage());
                 if (attempt < maxRetries) {
-                    sleepBackoff(attempt);
+                    if (!sleepBackoff(attempt)) {
+                        return cancelled();
+                    }
                 } else {
                     onFailure();
                     return LlmResponse
@@ -91,26 +122,243 @@ public class CloudLlmProvider implements LlmPort {
         return LlmResponse.ofError("Unexpected error in LLM call");
     }
 
-    private LlmResponse doRequest(LlmRequest request, String effectiveModel) throws Exception {
+    /**
+     * Streams the completion. Retries only happen before the first chunk has
+     * been handed to the listener, so it never sees duplicated content.
+     */
+    @Override
+    public LlmResponse stream(LlmRequest request, StreamListener listener) {
+        return guarded(() -> streamWithRetry(request, listener));
+    }
+
+    private LlmResponse streamWithRetry(LlmRequest request, StreamListener listener) {
+        String effectiveModel = request.model() != null ? request.model() : this.model;
+        AtomicBoolean delivered = new AtomicBoolean(false);
+
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            try {
+                LlmResponse response = doStream(request, effectiveModel, listener, delivered);
+                onSuccess();
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return cancelled();
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return cancelled();
+                }
+                log.warn("LLM stream attempt {} failed: {}", attempt + 1, e.getMessage());
+                if (attempt < maxRetries && !delivered.get()) {
+                    if (!sleepBackoff(attempt)) {
+                        return cancelled();
+                    }
+                } else {
+                    onFailure();
+                    return LlmResponse.ofError("LLM stream failed after " + (attempt + 1) + " attempts: "
+                            + e.getMessage());
+                }
+            }
+        }
+        return LlmResponse.ofError("Unexpected error in LLM stream");
+    }
+
+    /**
+     * Admission control shared by complete and stream.
+     *
+     * A call interrupted by its caller (e.g. the losing side of a hedge) ends
+     * without retrying and reports nothing: the slot is abandoned rather than
+     * failed, and the breaker is only told to free a probe it may have taken.
+     * A call that throws counts as a failure for both, so a probe never stays
+     * half open.
+     */
+    private LlmResponse guarded(Supplier<LlmResponse> call) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            log.warn("LLM concurrency limit {} reached — shedding request", limiter.getLimit());
+            return LlmResponse.ofError("LLM service saturated (concurrency limit reached)");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            permit.abandon();
+            log.warn("Circuit breaker OPEN — returning fallback");
+            return LlmResponse.ofError("LLM service temporarily unavailable (circuit breaker open)");
+        }
+        boolean failed = true;
+        boolean cancelled = false;
+        try {
+            LlmResponse response = call.get();
+            if (Thread.currentThread().isInterrupted()) {
+                cancelled = true;
+                circuitBreaker.onAbandon();
+                return response;
+            }
+            failed = response.error();
+            return response;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        } finally {
+            if (cancelled) {
+                permit.abandon();
+            } else {
+                permit.release(failed);
+            }
+        }
+    }
+
+    private static LlmResponse cancelled() {
+        return LlmResponse.ofError("LLM call cancelled");
+    }
+
+    private LlmResponse doStream(LlmRequest request, String effectiveModel, StreamListener listener,
+            AtomicBoolean delivered) throws Exception {
+        Map<String, Object> body = new HashMap<>(buildBody(request, effectiveModel));
+        body.put("stream", true);
+        body.put("stream_options", Map.of("include_usage", true));
+
+        HttpResponse<InputStream> httpResponse = httpClient.send(buildHttpRequest(body),
+                HttpResponse.BodyHandlers.ofInputStream());
+
+        try (IdleWatchdog watchdog = new IdleWatchdog(httpResponse.body());
+                BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(httpResponse.body(), StandardCharsets.UTF_8))) {
+            if (httpResponse.statusCode() >= 500) {
+                throw new RuntimeException("Server error: " + httpResponse.statusCode());
+            }
+            if (httpResponse.statusCode() >= 400) {
+                return LlmResponse.ofError("LLM API error " + httpResponse.statusCode() + ": "
+                        + String.join("\n", lines.lines().toList()));
+            }
+
+            StringBuilder content = new StringBuilder();
+            String finishReason = "";
+            LlmResponse.Usage usage = new LlmResponse.Usage(0, 0, 0);
+
+            String line;
+            while ((line = watchdog.readLine(lines)) != null) {
+                if (!line.startsWith("data:")) {
+                    continue; // blank separators, comments, event: lines
+                }
+                String data = line.substring(5).strip();
+                if ("[DONE]".equals(data)) {
+                    break;
+                }
+
+                JsonNode chunk = objectMapper.readTree(data);
+                JsonNode choices = chunk.path("choices");
+                if (choices.isArray() && !choices.isEmpty()) {
+                    JsonNode choice = choices.get(0);
+                    String delta = choice.path("delta").path("content").asText("");
+                    if (choice.hasNonNull("finish_reason")) {
+                        finishReason = choice.path("finish_reason").asText("");
+                    }
+                    if (!delta.isEmpty()) {
+                        content.append(delta);
+                        delivered.set(true);
+                        if (!listener.onChunk(delta)) {
+                            log.info("LLM stream stopped by listener after {} chars", content.length());
+                            finishReason = LlmResponse.FINISH_ABORTED;
+                            break;
+                        }
+                    }
+                }
+                JsonNode usageNode = chunk.path("usage");
+                if (usageNode.isObject()) {
+                    usage = new LlmResponse.Usage(
+                            usageNode.path("prompt_tokens").asInt(0),
+                            usageNode.path("completion_tokens").asInt(0),
+                            usageNode.path("total_tokens").asInt(0));
+                }
+            }
+
+            return new LlmResponse(content.toString(), effectiveModel, finishReason, usage, false, null);
+        }
+    }
+
+    /**
+     * Closes a response body that has been silent for {@code readTimeout}, so
+     * a blocked read fails instead of holding the permit and breaker slot.
+     */
+    private final class IdleWatchdog implements AutoCloseable {
+
+        private final InputStream body;
+        private volatile long lastReadAt = System.nanoTime();
+        private volatile boolean stalled;
+        private volatile boolean closed;
+        private ScheduledFuture<?> check;
+
+        IdleWatchdog(InputStream body) {
+            this.body = body;
+            schedule(readTimeout.toNanos());
+        }
+
+        String readLine(BufferedReader reader) throws IOException {
+            try {
+                String line = reader.readLine();
+                lastReadAt = System.nanoTime();
+                return line;
+            } catch (IOException e) {
+                if (stalled) {
+                    throw new HttpTimeoutException("LLM stream idle for more than " + readTimeout);
+                }
+                throw e;
+            }
+        }
+
+        private synchronized void schedule(long delayNanos) {
+            if (!closed) {
+                check = IDLE_WATCHDOG.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void check() {
+            long idle = System.nanoTime() - lastReadAt;
+            if (idle < readTimeout.toNanos()) {
+                schedule(readTimeout.toNanos() - idle);
+                return;
+            }
+            stalled = true;
+            try {
+                body.close();
+            } catch (IOException e) {
+                log.debug("Closing stalled LLM stream failed: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            if (check != null) {
+                check.cancel(false);
+            }
+        }
+    }
+
+    private Map<String, Object> buildBody(LlmRequest request, String effectiveModel) {
         List<Map<String, String>> messages = request.messages().stream()
                 .map(m -> Map.of("role", m.role(), "content", m.content()))
                 .toList();
 
-        Map<String, Object> body = Map.of(
+        return Map.of(
                 "model", effectiveModel,
                 "messages", messages,
                 "temperature", request.temperature(),
                 "max_tokens", request.maxTokens());
+    }
 
+    private HttpRequest buildHttpRequest(Map<String, Object> body) throws Exception {
         String jsonBody = objectMapper.writeValueAsString(body);
 
-        HttpRequest httpRequest = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/chat/completions"))
                 .header("Content-Type", "application/json")
                 .header("Authorization", "Bearer " + apiKey)
                 .timeout(readTimeout)
                 .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
                 .build();
+    }
+
+    private LlmResponse doRequest(LlmRequest request, String effectiveModel) throws Exception {
+        HttpRequest httpRequest = buildHttpRequest(buildBody(request, effectiveModel));
 
         HttpResponse<String> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
 
@@ -143,36 +391,25 @@ public class CloudLlmProvider implements LlmPort {
                 false, null);
     }
 
-    private boolean isCircuitOpen() {
-        if (!circuitOpen)
-            return false;
-        if (System.currentTimeMillis() - circuitOpenedAt > CIRCUIT_HALF_OPEN_MS) {
-            log.info("Circuit breaker half-open — allowing one attempt");
-            circuitOpen = false;
-            return false;
-        }
-        return true;
-    }
-
-    private synchronized void onSuccess() {
-        consecutiveFailures = 0;
-        circuitOpen = false;
+    private void onSuccess() {
+        circuitBreaker.onSuccess();
     }
 
-    private synchronized void onFailure() {
-        consecutiveFailures++;
-        if (consecutiveFailures >= circuitBreakerThreshold) {
-            circuitOpen = true;
-            circuitOpenedAt = System.currentTimeMillis();
-            log.error("Circuit breaker OPENED after {} consecutive failures", consecutiveFailures);
+    private void onFailure() {
+        if (circuitBreaker.onFailure()) {
+            log.error("Circuit breaker OPENED after {} consecutive failures",
+                    circuitBreaker.getConsecutiveFailures());
         }
     }
 
-    private void sleepBackoff(int attempt) {
+    /** @return false if interrupted while waiting */
+    private boolean sleepBackoff(int attempt) {
         try {
             Thread.sleep((long) Math.pow(2, attempt) * 500);
+            return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return false;
         }
     }
 }
@@ -0,0 +1,294 @@
+package com.erp.ia.llm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates streamed LLM output token by token against the shape of a typed
+ * contract, so a completion that can no longer match can be aborted early.
+ *
+ * The expected shape is derived from the contract record: nested records are
+ * objects, collections are arrays, maps accept any object and everything else
+ * is a scalar. Components annotated {@code @NotNull}/{@code @NotBlank} must be
+ * present and non-null. Free text before the JSON (a code fence, "Here is the
+ * result:") is tolerated up to a limit, like {@link LlmOutputValidator#extractJson}.
+ *
+ * This is only an early-abort filter: the full output is still parsed and
+ * Bean-validated by {@link LlmOutputValidator} afterwards. One instance per stream.
+ */
+public class IncrementalJsonValidator {
+
+    public enum State {
+        /** Output may still match the contract. */
+        IN_PROGRESS,
+        /**
+         * The top-level JSON object is closed. The stream still runs to its
+         * end so trailing metadata (usage, finish reason) is not lost.
+         */
+        COMPLETE,
+        /** Output can no longer match the contract. */
+        INVALID
+    }
+
+    public static final int DEFAULT_MAX_PREAMBLE_CHARS = 512;
+
+    private static final Map<Class<?>, Shape> SHAPES = new ConcurrentHashMap<>();
+
+    private final Shape rootShape;
+    private final int maxPreambleChars;
+    private final JsonParser parser;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+
+    private State state = State.IN_PROGRESS;
+    private String reason;
+    private int preambleChars;
+    private boolean jsonStarted;
+
+    public IncrementalJsonValidator(ObjectMapper objectMapper, Class<?> contractClass) {
+        this(objectMapper, contractClass, DEFAULT_MAX_PREAMBLE_CHARS);
+    }
+
+    public IncrementalJsonValidator(ObjectMapper objectMapper, Class<?> contractClass, int maxPreambleChars) {
+        this.rootShape = SHAPES.computeIfAbsent(contractClass, IncrementalJsonValidator::shapeOf);
+        this.maxPreambleChars = maxPreambleChars;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (Exception e) {
+            throw new IllegalStateException("Non-blocking JSON parser unavailable", e);
+        }
+    }
+
+    /**
+     * Feed the next streamed chunk.
+     *
+     * @return false only once the output can no longer be valid; a complete
+     *         output keeps returning true and ignores what follows
+     */
+    public boolean accept(String chunk) {
+        if (state != State.IN_PROGRESS || chunk == null || chunk.isEmpty()) {
+            return state != State.INVALID;
+        }
+
+        String json = chunk;
+        if (!jsonStarted) {
+            int brace = chunk.indexOf('{');
+            if (brace < 0) {
+                preambleChars += chunk.length();
+                if (preambleChars > maxPreambleChars) {
+                    fail("no JSON object after " + preambleChars + " chars");
+                }
+                return state != State.INVALID;
+            }
+            preambleChars += brace;
+            if (preambleChars > maxPreambleChars) {
+                fail("no JSON object after " + preambleChars + " chars");
+                return false;
+            }
+            jsonStarted = true;
+            json = chunk.substring(brace);
+        }
+
+        try {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (state == State.IN_PROGRESS && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+                if (token == null) {
+                    break;
+                }
+                onToken(token);
+            }
+        } catch (Exception e) {
+            fail("malformed JSON: " + e.getMessage());
+        }
+        return state != State.INVALID;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Why the output was rejected, or null if it was not.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    // ── Token handling ──
+
+    private void onToken(JsonToken token) throws Exception {
+        if (token == JsonToken.FIELD_NAME) {
+            stack.peek().pendingField = parser.currentName();
+            return;
+        }
+        if (token == JsonToken.END_OBJECT) {
+            Frame frame = stack.pop();
+            for (String required : frame.shape.required) {
+                if (!frame.seen.contains(required)) {
+                    fail("missing required field '" + required + "'");
+                    return;
+                }
+            }
+            if (stack.isEmpty()) {
+                state = State.COMPLETE;
+            }
+            return;
+        }
+        if (token == JsonToken.END_ARRAY) {
+            stack.pop();
+            return;
+        }
+
+        // A value: the root, an object member or an array element
+        Shape expected;
+        String field = null;
+        Frame parent = stack.peek();
+        if (parent == null) {
+            if (token != JsonToken.START_OBJECT) {
+                fail("top-level value is " + token + ", expected an object");
+                return;
+            }
+            expected = rootShape;
+        } else if (parent.shape.kind == Kind.ARRAY) {
+            expected = parent.shape.element;
+        } else {
+            field = parent.pendingField;
+            expected = parent.shape.fields.getOrDefault(field, Shape.ANY);
+        }
+
+        if (!expected.accepts(token)) {
+            fail((field != null ? "field '" + field + "'" : "value") + " cannot be " + token);
+            return;
+        }
+        if (field != null) {
+            boolean required = parent.shape.required.contains(field);
+            if (required && token == JsonToken.VALUE_NULL) {
+                fail("required field '" + field + "' is null");
+                return;
+            }
+            if (required && expected.notBlank && token == JsonToken.VALUE_STRING
+                    && parser.getText().isBlank()) {
+                fail("required field '" + field + "' is blank");
+                return;
+            }
+            parent.seen.add(field);
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            stack.push(new Frame(expected.kind == Kind.ANY || expected.kind == Kind.MAP ? Shape.ANY : expected));
+        }
+    }
+
+    private void fail(String why) {
+        state = State.INVALID;
+        reason = why;
+    }
+
+    // ── Contract shape ──
+
+    private enum Kind {
+        OBJECT, ARRAY, SCALAR, MAP, ANY
+    }
+
+    private static final class Shape {
+        static final Shape ANY = new Shape(Kind.ANY);
+        static final Shape SCALAR = new Shape(Kind.SCALAR);
+
+        final Kind kind;
+        final Map<String, Shape> fields = new HashMap<>();
+        final Set<String> required = new HashSet<>();
+        Shape element = ANY;
+        boolean notBlank;
+
+        Shape(Kind kind) {
+            this.kind = kind;
+        }
+
+        boolean accepts(JsonToken token) {
+            if (token == JsonToken.VALUE_NULL || kind == Kind.ANY) {
+                return true;
+            }
+            return switch (kind) {
+                case OBJECT, MAP -> token == JsonToken.START_OBJECT;
+                case ARRAY -> token == JsonToken.START_ARRAY;
+                default -> token.isScalarValue();
+            };
+        }
+    }
+
+    private static final class Frame {
+        final Shape shape;
+        final Set<String> seen = new HashSet<>();
+        String pendingField;
+
+        Frame(Shape shape) {
+            this.shape = shape;
+        }
+    }
+
+    private static Shape shapeOf(Type type) {
+        Class<?> raw = type instanceof ParameterizedType p ? (Class<?>) p.getRawType()
+                : type instanceof Class<?> c ? c : Object.class;
+
+        if (raw.isRecord()) {
+            Shape shape = new Shape(Kind.OBJECT);
+            for (RecordComponent component : raw.getRecordComponents()) {
+                Shape fieldShape = shapeOf(component.getGenericType());
+                // Constraint annotations don't target record components; they land on the accessor
+                Method accessor = component.getAccessor();
+                boolean notBlank = accessor.isAnnotationPresent(NotBlank.class);
+                if (notBlank) {
+                    fieldShape = copyNotBlank(fieldShape);
+                }
+                if (notBlank || accessor.isAnnotationPresent(NotNull.class)) {
+                    shape.required.add(component.getName());
+                }
+                shape.fields.put(component.getName(), fieldShape);
+            }
+            return shape;
+        }
+        if (Collection.class.isAssignableFrom(raw) || raw.isArray()) {
+            Shape shape = new Shape(Kind.ARRAY);
+            if (type instanceof ParameterizedType p) {
+                shape.element = shapeOf(p.getActualTypeArguments()[0]);
+            } else if (raw.isArray()) {
+                shape.element = shapeOf(raw.getComponentType());
+            }
+            return shape;
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            return new Shape(Kind.MAP);
+        }
+        if (raw == Object.class) {
+            return Shape.ANY;
+        }
+        return Shape.SCALAR;
+    }
+
+    private static Shape copyNotBlank(Shape shape) {
+        if (shape.kind != Kind.SCALAR) {
+            return shape;
+        }
+        Shape copy = new Shape(Kind.SCALAR);
+        copy.notBlank = true;
+        return copy;
+    }
+}
@@ -0,0 +1,49 @@
+package com.erp.ia.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Builds the {@link ChainLlmProvider} when {@code llm.provider=chain}. Cloud
+ * members share the global timeout, retry, circuit-breaker and concurrency
+ * settings, each with its own breaker and limiter.
+ */
+@Configuration
+@ConditionalOnProperty(name = "llm.provider", havingValue = "chain")
+@EnableConfigurationProperties(LlmChainProperties.class)
+public class LlmChainConfig {
+
+    @Bean
+    public LlmPort chainLlmProvider(LlmChainProperties properties,
+            @Value("${llm.timeout-connect:5s}") Duration connectTimeout,
+            @Value("${llm.timeout-read:30s}") Duration readTimeout,
+            @Value("${llm.retry-max:2}") int maxRetries,
+            @Value("${llm.circuit-breaker-threshold:5}") int circuitBreakerThreshold,
+            @Value("${llm.circuit-breaker-open:30s}") Duration circuitOpenDuration,
+            @Value("${llm.concurrency.initial-limit:8}") int initialLimit,
+            @Value("${llm.concurrency.max-limit:64}") int maxLimit,
+            @Value("${llm.concurrency.latency-threshold:10s}") Duration latencyThreshold,
+            ObjectMapper objectMapper) {
+        if (properties.providers() == null || properties.providers().isEmpty()) {
+            throw new IllegalStateException("llm.provider=chain requires llm.chain.providers");
+        }
+        List<ChainLlmProvider.Member> members = properties.providers().stream()
+                .map(p -> new ChainLlmProvider.Member(p.name(), switch (p.type()) {
+                    case "cloud" -> new CloudLlmProvider(p.baseUrl(), p.apiKey(), p.model(),
+                            connectTimeout, readTimeout, maxRetries, circuitBreakerThreshold,
+                            circuitOpenDuration, initialLimit, maxLimit, latencyThreshold, objectMapper);
+                    case "ollama" -> new OllamaLlmProvider(p.baseUrl(), p.model(), objectMapper);
+                    default -> throw new IllegalStateException(
+                            "Unknown LLM provider type '" + p.type() + "' for '" + p.name() + "'");
+                }))
+                .toList();
+        return new ChainLlmProvider(members, properties.hedgeDelay(), properties.minHedgeDelay());
+    }
+}
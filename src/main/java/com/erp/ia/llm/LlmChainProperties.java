@@ -0,0 +1,24 @@
+package com.erp.ia.llm;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for {@code llm.provider: chain}: the ordered providers and the
+ * hedge delay used until a provider has enough latency samples.
+ */
+@ConfigurationProperties(prefix = "llm.chain")
+public record LlmChainProperties(
+        @DefaultValue("2s") Duration hedgeDelay,
+        @DefaultValue("200ms") Duration minHedgeDelay,
+        List<Provider> providers) {
+
+    /**
+     * One provider; {@code type} is {@code cloud} or {@code ollama}.
+     */
+    public record Provider(String name, String type, String baseUrl, String apiKey, String model) {
+    }
+}
@@ -11,6 +11,30 @@ public interface LlmPort {
 
     LlmResponse complete(LlmRequest request);
 
+    /**
+     * Streaming variant of {@link #complete}: content chunks are handed to the
+     * listener as they arrive, and the provider stops reading (finish reason
+     * {@code "aborted"}) as soon as the listener returns false. The returned
+     * response holds the content received up to that point.
+     *
+     * Providers without native streaming fall back to a single chunk.
+     */
+    default LlmResponse stream(LlmRequest request, StreamListener listener) {
+        LlmResponse response = complete(request);
+        if (response != null && !response.error() && response.content() != null) {
+            listener.onChunk(response.content());
+        }
+        return response;
+    }
+
+    @FunctionalInterface
+    interface StreamListener {
+        /**
+         * @return false to stop the stream early
+         */
+        boolean onChunk(String chunk);
+    }
+
     record LlmRequest(
             String model,
             List<Message> messages,
@@ -30,6 +54,8 @@ public interface LlmPort {
         public record Usage(int promptTokens, int completionTokens, int totalTokens) {
         }
 
+        public static final String FINISH_ABORTED = "aborted";
+
         public static LlmResponse ofError(String message) {
             return new LlmResponse(null, null, null, null, true, message);
         }
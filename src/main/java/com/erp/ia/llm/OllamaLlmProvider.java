@@ -13,11 +13,15 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Local LLM provider via Ollama HTTP API.
+ * Streaming reads the newline-delimited JSON of {@code /api/chat} with
+ * {@code "stream": true}.
  */
 @Component
 @ConditionalOnProperty(name = "llm.provider", havingValue = "ollama")
@@ -47,26 +51,7 @@ public class OllamaLlmProvider implements LlmPort {
         try {
             String effectiveModel = request.model() != null ? request.model() : this.model;
 
-            List<Map<String, String>> messages = request.messages().stream()
-                    .map(m -> Map.of("role", m.role(), "content", m.content()))
-                    .toList();
-
-            Map<String, Object> body = Map.of(
-                    "model", effectiveModel,
-                    "messages", messages,
-                    "stream", false,
-                    "options", Map.of(
-                            "temperature", request.temperature(),
-                            "num_predict", request.maxTokens()));
-
-            String jsonBody = objectMapper.writeValueAsString(body);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/chat"))
-                    .header("Content-Type", "application/json")
-                    .timeout(Duration.ofSeconds(60))
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                    .build();
+            HttpRequest httpRequest = buildHttpRequest(request, effectiveModel, false);
 
             HttpResponse<String> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
 
@@ -85,4 +70,84 @@ public class OllamaLlmProvider implements LlmPort {
             return LlmResponse.ofError("Ollama call failed: " + e.getMessage());
         }
     }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, StreamListener listener) {
+        String effectiveModel = request.model() != null ? request.model() : this.model;
+        try {
+            HttpResponse<Stream<String>> httpResponse = httpClient.send(
+                    buildHttpRequest(request, effectiveModel, true), HttpResponse.BodyHandlers.ofLines());
+
+            try (Stream<String> lines = httpResponse.body()) {
+                if (httpResponse.statusCode() >= 400) {
+                    return LlmResponse.ofError("Ollama error " + httpResponse.statusCode() + ": "
+                            + String.join("\n", lines.toList()));
+                }
+
+                StringBuilder content = new StringBuilder();
+                String finishReason = "stop";
+                int promptTokens = 0;
+                int completionTokens = 0;
+
+                Iterator<String> it = lines.iterator();
+                while (it.hasNext()) {
+                    String line = it.next();
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode chunk = objectMapper.readTree(line);
+                    if (chunk.hasNonNull("error")) {
+                        return LlmResponse.ofError("Ollama error: " + chunk.get("error").asText());
+                    }
+
+                    String delta = chunk.path("message").path("content").asText("");
+                    if (!delta.isEmpty()) {
+                        content.append(delta);
+                        if (!listener.onChunk(delta)) {
+                            log.info("Ollama stream stopped by listener after {} chars", content.length());
+                            finishReason = LlmResponse.FINISH_ABORTED;
+                            break;
+                        }
+                    }
+                    if (chunk.path("done").asBoolean(false)) {
+                        finishReason = chunk.path("done_reason").asText("stop");
+                        promptTokens = chunk.path("prompt_eval_count").asInt(0);
+                        completionTokens = chunk.path("eval_count").asInt(0);
+                        break;
+                    }
+                }
+
+                return new LlmResponse(content.toString(), effectiveModel, finishReason,
+                        new LlmResponse.Usage(promptTokens, completionTokens, promptTokens + completionTokens),
+                        false, null);
+            }
+        } catch (Exception e) {
+            log.error("Ollama stream failed: {}", e.getMessage(), e);
+            return LlmResponse.ofError("Ollama stream failed: " + e.getMessage());
+        }
+    }
+
+    private HttpRequest buildHttpRequest(LlmRequest request, String effectiveModel, boolean stream)
+            throws Exception {
+        List<Map<String, String>> messages = request.messages().stream()
+                .map(m -> Map.of("role", m.role(), "content", m.content()))
+                .toList();
+
+        Map<String, Object> body = Map.of(
+                "model", effectiveModel,
+                "messages", messages,
+                "stream", stream,
+                "options", Map.of(
+                        "temperature", request.temperature(),
+                        "num_predict", request.maxTokens()));
+
+        String jsonBody = objectMapper.writeValueAsString(body);
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/api/chat"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .build();
+    }
 }
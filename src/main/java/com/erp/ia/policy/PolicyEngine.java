@@ -3,16 +3,23 @@ package com.erp.ia.policy;
 import com.erp.ia.agent.model.ActionPlan;
 import com.erp.ia.agent.model.AgentRequest;
 import com.erp.ia.audit.model.DecisionPolicyResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Policy Engine — validates ActionPlan against all registered rules.
  * This is the "ABS brake" of the system.
+ *
+ * Each rule evaluation is timed into {@code policy.rule.duration}, tagged by
+ * rule, agent, tenant and result.
  */
 @Component
 public class PolicyEngine {
@@ -20,9 +27,11 @@ public class PolicyEngine {
     private static final Logger log = LoggerFactory.getLogger(PolicyEngine.class);
 
     private final List<PolicyRule> rules;
+    private final MeterRegistry meterRegistry;
 
-    public PolicyEngine(List<PolicyRule> rules) {
+    public PolicyEngine(List<PolicyRule> rules, MeterRegistry meterRegistry) {
         this.rules = rules;
+        this.meterRegistry = meterRegistry;
         log.info("PolicyEngine initialized with {} rules", rules.size());
     }
 
@@ -30,11 +39,28 @@ public class PolicyEngine {
      * Validate an ActionPlan. Returns PASS only if ALL rules pass.
      */
     public PolicyResult validate(ActionPlan plan, AgentRequest request) {
+        return validate(plan, request, "none");
+    }
+
+    /**
+     * Same as {@link #validate(ActionPlan, AgentRequest)}, tagging rule timings
+     * with the agent that produced the plan.
+     */
+    public PolicyResult validate(ActionPlan plan, AgentRequest request, String agentName) {
         List<DecisionPolicyResult> allResults = new ArrayList<>();
         boolean blocked = false;
+        String tenant = Objects.requireNonNullElse(request.tenantId(), "none");
 
         for (PolicyRule rule : rules) {
+            long start = System.nanoTime();
             PolicyResult result = rule.evaluate(plan, request);
+            Timer.builder("policy.rule.duration")
+                    .tag("rule", rule.getName())
+                    .tag("agent", agentName)
+                    .tag("tenant", tenant)
+                    .tag("result", result.status())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             allResults.addAll(result.ruleResults());
             if (!result.isPass()) {
                 blocked = true;
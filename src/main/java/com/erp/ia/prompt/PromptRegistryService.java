@@ -1,31 +1,113 @@
 package com.erp.ia.prompt;
 
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.prompt.model.CompiledPrompt;
 import com.erp.ia.prompt.model.PromptTemplate;
 import com.erp.ia.prompt.model.PromptTemplate.PromptStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Versioned prompt registry: create, retrieve active, rollback, manage
  * lifecycle.
+ *
+ * Active prompts are served from an immutable tenant → name → prompt map,
+ * loaded at startup and replaced wholesale (copy-on-write) whenever a prompt
+ * is activated. Activations swap the map only after their transaction
+ * commits, then publish PromptActivated; every node, this one included,
+ * reloads that prompt from the database when the event arrives, so a shared
+ * event bus keeps a cluster consistent. Until the preload has run, lookups go
+ * to the database.
+ *
+ * Placeholders are checked when a version is created: each must be a built-in
+ * variable or be declared in the version's {@code variables} JSON array.
  */
 @Service
 public class PromptRegistryService {
 
+    private static final Logger log = LoggerFactory.getLogger(PromptRegistryService.class);
+
+    /** Variables the orchestrator always fills. */
+    public static final Set<String> BUILT_IN_VARIABLES = Set.of("tenantId", "storeId", "intent", "evidence");
+
     private final PromptRepository promptRepository;
+    private final EventBus eventBus;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Map<String, Map<String, PromptTemplate>>> activePrompts = new AtomicReference<>();
 
-    public PromptRegistryService(PromptRepository promptRepository) {
+    public PromptRegistryService(PromptRepository promptRepository, EventBus eventBus, ObjectMapper objectMapper) {
         this.promptRepository = promptRepository;
+        this.eventBus = eventBus;
+        this.objectMapper = objectMapper;
+        eventBus.subscribe("PROMPT_ACTIVATED", event -> {
+            PromptActivated activated = (PromptActivated) event;
+            refresh(activated.getPromptName(), activated.getTenantId());
+        });
     }
 
-    /** Get the latest ACTIVE prompt by name. */
-    public Optional<PromptTemplate> getActivePrompt(String name, String tenantId) {
-        return promptRepository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
+    /** Load every ACTIVE prompt into the cache. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        Map<String, Map<String, PromptTemplate>> loaded = new HashMap<>();
+        for (PromptTemplate prompt : promptRepository.findByStatus(PromptStatus.ACTIVE)) {
+            loaded.computeIfAbsent(prompt.getTenantId(), t -> new HashMap<>())
+                    .merge(prompt.getName(), prompt, (a, b) -> a.getVersion() >= b.getVersion() ? a : b);
+        }
+        Map<String, Map<String, PromptTemplate>> snapshot = new HashMap<>();
+        loaded.forEach((tenant, byName) -> snapshot.put(tenant, Map.copyOf(byName)));
+        activePrompts.set(Map.copyOf(snapshot));
+        log.info("Prompt cache loaded: {} active prompts across {} tenants",
+                snapshot.values().stream().mapToInt(Map::size).sum(), snapshot.size());
+    }
+
+    /**
+     * Re-read one prompt's active version from the database and swap it into
+     * the cache. Also the invalidation hook for activations made elsewhere.
+     */
+    public void refresh(String name, String tenantId) {
+        if (activePrompts.get() == null || name == null || tenantId == null) {
+            return; // the cache holds no prompt without a name or tenant
+        }
+        Optional<PromptTemplate> current = promptRepository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
                 name, PromptStatus.ACTIVE, tenantId);
+        activePrompts.updateAndGet(all -> {
+            Map<String, PromptTemplate> byName = new HashMap<>(all.getOrDefault(tenantId, Map.of()));
+            current.ifPresentOrElse(p -> byName.put(name, p), () -> byName.remove(name));
+            Map<String, Map<String, PromptTemplate>> copy = new HashMap<>(all);
+            copy.put(tenantId, Map.copyOf(byName));
+            return Map.copyOf(copy);
+        });
+        log.debug("Prompt cache refreshed for '{}' / tenant '{}'", name, tenantId);
+    }
+
+    /** Get the latest ACTIVE prompt by name; empty for a null name or tenant. */
+    public Optional<PromptTemplate> getActivePrompt(String name, String tenantId) {
+        if (name == null || tenantId == null) {
+            return Optional.empty();
+        }
+        Map<String, Map<String, PromptTemplate>> all = activePrompts.get();
+        if (all == null) {
+            return promptRepository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
+                    name, PromptStatus.ACTIVE, tenantId);
+        }
+        return Optional.ofNullable(all.getOrDefault(tenantId, Map.of()).get(name));
     }
 
     /** Get a specific version of a prompt. */
@@ -43,10 +125,13 @@ public class PromptRegistryService {
      * - Auto-increments version.
      * - Deprecates previous active versions.
      * - New version starts as ACTIVE.
+     * - Rejects placeholders that are neither built-in nor declared.
      */
     @Transactional
     public PromptTemplate createVersion(String name, String content, String variables,
             String changeNote, String tenantId) {
+        validateVariables(content, variables);
+
         List<PromptTemplate> existing = promptRepository.findByNameAndTenantIdOrderByVersionDesc(name, tenantId);
 
         int nextVersion = existing.isEmpty() ? 1 : existing.get(0).getVersion() + 1;
@@ -65,7 +150,10 @@ public class PromptRegistryService {
         newPrompt.setEffectiveFrom(Instant.now());
         newPrompt.setChangeNote(changeNote);
         newPrompt.setTenantId(tenantId);
-        return promptRepository.save(newPrompt);
+        PromptTemplate saved = promptRepository.save(newPrompt);
+
+        announceActivation(name, saved.getVersion(), tenantId);
+        return saved;
     }
 
     /**
@@ -88,6 +176,47 @@ public class PromptRegistryService {
 
         target.setStatus(PromptStatus.ACTIVE);
         target.setEffectiveFrom(Instant.now());
-        return promptRepository.save(target);
+        PromptTemplate saved = promptRepository.save(target);
+
+        announceActivation(name, targetVersion, tenantId);
+        return saved;
+    }
+
+    private void validateVariables(String content, String variables) {
+        Set<String> declared = Set.of();
+        if (variables != null && !variables.isBlank()) {
+            try {
+                declared = Set.copyOf(Arrays.asList(objectMapper.readValue(variables, String[].class)));
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Prompt variables must be a JSON array of names: " + variables);
+            }
+        }
+        Set<String> allowed = declared;
+        List<String> unknown = CompiledPrompt.compile(content).variables().stream()
+                .filter(v -> !BUILT_IN_VARIABLES.contains(v) && !allowed.contains(v))
+                .toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown prompt variables " + unknown
+                    + " — declare them or use one of " + BUILT_IN_VARIABLES);
+        }
+    }
+
+    /**
+     * Announce the activation through the outbox, which delivers it only if
+     * this transaction commits, and swap the local cache once the change is
+     * durable; a rolled-back activation leaves both untouched.
+     */
+    private void announceActivation(String name, int version, String tenantId) {
+        eventBus.publish(new PromptActivated(name, version, tenantId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(name, tenantId);
+                }
+            });
+        } else {
+            refresh(name, tenantId);
+        }
     }
 }
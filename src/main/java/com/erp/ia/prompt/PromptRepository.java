@@ -13,4 +13,6 @@ public interface PromptRepository extends JpaRepository<PromptTemplate, Long> {
 
     Optional<PromptTemplate> findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
             String name, PromptTemplate.PromptStatus status, String tenantId);
+
+    List<PromptTemplate> findByStatus(PromptTemplate.PromptStatus status);
 }
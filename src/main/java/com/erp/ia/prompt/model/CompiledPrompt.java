@@ -0,0 +1,111 @@
+package com.erp.ia.prompt.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Prompt content parsed once into alternating literal chunks and
+ * {@code {{variable}}} slots. Rendering resolves each slot once, sizes the
+ * buffer exactly and appends the pieces, instead of rescanning the whole
+ * template per placeholder.
+ */
+public final class CompiledPrompt {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    /** literals[i] precedes slots[i]; the last literal has no slot after it. */
+    private final String[] literals;
+    private final String[] slots;
+    private final int literalLength;
+    private final Set<String> variables;
+
+    private CompiledPrompt(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        Set<String> names = new LinkedHashSet<>();
+        Collections.addAll(names, slots);
+        this.variables = Collections.unmodifiableSet(names);
+    }
+
+    public static CompiledPrompt compile(String content) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int pos = 0;
+        int literalStart = 0;
+        while (true) {
+            int open = content.indexOf(OPEN, pos);
+            if (open < 0) {
+                break;
+            }
+            int close = content.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+            String name = content.substring(open + OPEN.length(), close).strip();
+            if (!isIdentifier(name)) {
+                pos = open + 1; // not a placeholder, keep it as text
+                continue;
+            }
+            literals.add(content.substring(literalStart, open));
+            slots.add(name);
+            pos = close + CLOSE.length();
+            literalStart = pos;
+        }
+        literals.add(content.substring(literalStart));
+        return new CompiledPrompt(literals.toArray(String[]::new), slots.toArray(String[]::new));
+    }
+
+    /** Distinct placeholder names, in order of first appearance. */
+    public Set<String> variables() {
+        return variables;
+    }
+
+    /**
+     * Render with {@code values} looked up once per slot. A slot without a
+     * value is kept as its {@code {{name}}} placeholder.
+     */
+    public String render(Function<String, ? extends CharSequence> values) {
+        CharSequence[] resolved = new CharSequence[slots.length];
+        int length = literalLength;
+        for (int i = 0; i < slots.length; i++) {
+            CharSequence value = values.apply(slots[i]);
+            resolved[i] = value;
+            length += value != null ? value.length() : slots[i].length() + OPEN.length() + CLOSE.length();
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            if (resolved[i] != null) {
+                out.append(resolved[i]);
+            } else {
+                out.append(OPEN).append(slots[i]).append(CLOSE);
+            }
+        }
+        out.append(literals[slots.length]);
+        return out.toString();
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isJavaIdentifierPart(c) && c != '.' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
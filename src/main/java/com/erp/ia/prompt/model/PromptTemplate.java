@@ -45,6 +45,9 @@ public class PromptTemplate {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
+    @Transient
+    private volatile CompiledPrompt compiled;
+
     public PromptTemplate() {
     }
 
@@ -58,11 +61,20 @@ public class PromptTemplate {
      * Renders the prompt by replacing {{variable}} placeholders.
      */
     public String render(java.util.Map<String, String> vars) {
-        String rendered = content;
-        for (var entry : vars.entrySet()) {
-            rendered = rendered.replace("{{" + entry.getKey() + "}}", entry.getValue());
+        return compiled().render(vars::get);
+    }
+
+    /**
+     * Content compiled into segments, once per instance; active prompts are
+     * cached instances, so this is once per version.
+     */
+    public CompiledPrompt compiled() {
+        CompiledPrompt result = compiled;
+        if (result == null) {
+            result = CompiledPrompt.compile(content);
+            compiled = result;
         }
-        return rendered;
+        return result;
     }
 
     // --- Getters & Setters ---
@@ -97,6 +109,7 @@ public class PromptTemplate {
 
     public void setContent(String content) {
         this.content = content;
+        this.compiled = null;
     }
 
     public String getVariables() {
@@ -1,5 +1,7 @@
 package com.erp.ia.tool;
 
+import java.util.Set;
+
 /**
  * Typed tool interface. Each tool has strongly-typed input and output DTOs.
  */
@@ -13,4 +15,12 @@ public interface AgentTool<I, O> {
     Class<O> getOutputType();
 
     O execute(I input);
+
+    /**
+     * Domain event types that make cached results of this tool stale.
+     * Tools that return nothing here are only expired by TTL.
+     */
+    default Set<String> invalidatedBy() {
+        return Set.of();
+    }
 }
@@ -0,0 +1,57 @@
+package com.erp.ia.tool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Opaque continuation token for keyset pagination on an id column. Pages are
+ * read as {@code id > lastId ORDER BY id LIMIT n}, so each page costs one
+ * index range scan however deep the caller has paged.
+ */
+public final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("id:" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Id to continue after; 0 for a null or blank cursor (first page). */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("id:")) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return Long.parseLong(raw.substring(3));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Trim a page fetched with {@code limit + 1} rows to {@code limit} and
+     * return the cursor for the next page, or null when this was the last.
+     */
+    public static <T> String next(List<T> rows, int limit, ToLongFunction<T> id) {
+        if (rows.size() <= limit) {
+            return null;
+        }
+        return encode(id.applyAsLong(rows.get(limit - 1)));
+    }
+
+    /** Clamp a requested page size to {@code [1, max]}, using the default when absent. */
+    public static int limit(Integer requested, int defaultLimit, int maxLimit) {
+        if (requested == null || requested <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(requested, maxLimit);
+    }
+}
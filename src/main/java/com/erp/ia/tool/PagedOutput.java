@@ -0,0 +1,11 @@
+package com.erp.ia.tool;
+
+/**
+ * Tool output holding one keyset page of a larger result. Agents read the
+ * first page only, so a non-null cursor means the evidence is partial.
+ */
+public interface PagedOutput {
+
+    /** Token for the next page, or null when this is the last. */
+    String nextCursor();
+}
@@ -2,17 +2,31 @@ package com.erp.ia.tool;
 
 import com.erp.ia.core.model.Product;
 import com.erp.ia.core.repository.ProductRepository;
+import com.erp.ia.core.service.ProductSearchService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Component
 public class ProductQueryTool implements AgentTool<ProductQueryTool.Input, ProductQueryTool.Output> {
 
     private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final int defaultLimit;
+    private final int maxLimit;
 
-    public ProductQueryTool(ProductRepository productRepository) {
+    public ProductQueryTool(ProductRepository productRepository, ProductSearchService productSearchService,
+            @Value("${tool.page.default-limit:500}") int defaultLimit,
+            @Value("${tool.page.max-limit:2000}") int maxLimit) {
         this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
     }
 
     @Override
@@ -36,24 +50,40 @@ public class ProductQueryTool implements AgentTool<ProductQueryTool.Input, Produ
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Output execute(Input input) {
-        List<Product> products;
         if (input.sku != null) {
-            products = productRepository.findBySku(input.sku).map(List::of).orElse(List.of());
-        } else if (input.category != null) {
-            products = productRepository.findByCategory(input.category);
-        } else if (input.query != null) {
-            products = productRepository.findByNameContainingIgnoreCase(input.query);
+            return toOutput(productRepository.findBySku(input.sku).filter(Product::isActive)
+                    .map(List::of).orElse(List.of()), null);
+        }
+
+        String tenantId = input.tenantId != null ? input.tenantId : "default";
+        int limit = KeysetCursor.limit(input.limit, defaultLimit, maxLimit);
+        if (input.category == null && input.query != null) {
+            // ranked best matches, a single page
+            return toOutput(productSearchService.search(tenantId, input.query, limit), null);
+        }
+
+        long afterId = KeysetCursor.decode(input.cursor);
+        Limit fetch = Limit.of(limit + 1);
+        List<Product> products;
+        if (input.category != null) {
+            products = productRepository.findByCategoryAndActiveTrueAndIdGreaterThanOrderByIdAsc(
+                    input.category, afterId, fetch);
         } else {
-            products = productRepository.findByTenantId(input.tenantId != null ? input.tenantId : "default");
+            products = productRepository.findByTenantIdAndActiveTrueAndIdGreaterThanOrderByIdAsc(
+                    tenantId, afterId, fetch);
         }
 
+        String nextCursor = KeysetCursor.next(products, limit, Product::getId);
+        return toOutput(nextCursor != null ? products.subList(0, limit) : products, nextCursor);
+    }
+
+    private static Output toOutput(List<Product> products, String nextCursor) {
         List<ProductItem> items = products.stream()
-                .filter(Product::isActive)
                 .map(p -> new ProductItem(p.getId(), p.getSku(), p.getName(), p.getCategory(), p.getUnit()))
                 .toList();
-
-        return new Output(items, items.size());
+        return new Output(items, items.size(), nextCursor);
     }
 
     // --- Typed DTOs ---
@@ -64,9 +94,42 @@ public class ProductQueryTool implements AgentTool<ProductQueryTool.Input, Produ
         public String category;
         public String tenantId;
         public Boolean belowMinimum; // unused here, but accepted from agent plan
+        public String cursor; // nextCursor of the previous page
+        public Integer limit;
     }
 
-    public record Output(List<ProductItem> products, int totalCount) {
+    /**
+     * @param totalCount products in this page
+     * @param nextCursor token for the next page, or null when this is the last
+     */
+    public record Output(List<ProductItem> products, int totalCount, String nextCursor)
+            implements TabularOutput, PagedOutput {
+
+        /** Shared through the result cache, so it never holds a list the producer can change. */
+        public Output {
+            products = List.copyOf(products);
+        }
+
+        public Output(List<ProductItem> products, int totalCount) {
+            this(products, totalCount, null);
+        }
+
+        @Override
+        public List<String> columns() {
+            return List.of("id", "sku", "name", "category", "unit");
+        }
+
+        @Override
+        public List<List<Object>> rankedRows() {
+            return products.stream()
+                    .map(p -> Arrays.<Object>asList(p.id(), p.sku(), p.name(), p.category(), p.unit()))
+                    .toList();
+        }
+
+        @Override
+        public Map<String, Object> summary() {
+            return Map.of("totalCount", totalCount, "hasMore", nextCursor != null);
+        }
     }
 
     public record ProductItem(Long id, String sku, String name, String category, String unit) {
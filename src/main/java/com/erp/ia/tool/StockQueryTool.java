@@ -1,19 +1,39 @@
 package com.erp.ia.tool;
 
-import com.erp.ia.core.model.Stock;
+import com.erp.ia.core.model.StockLevel;
 import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.core.service.StockReadModel;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class StockQueryTool implements AgentTool<StockQueryTool.Input, StockQueryTool.Output> {
 
     private final StockRepository stockRepository;
+    private final StockReadModel readModel;
+    private final int defaultLimit;
+    private final int maxLimit;
 
-    public StockQueryTool(StockRepository stockRepository) {
+    public StockQueryTool(StockRepository stockRepository, StockReadModel readModel,
+            @Value("${tool.page.default-limit:500}") int defaultLimit,
+            @Value("${tool.page.max-limit:2000}") int maxLimit) {
         this.stockRepository = stockRepository;
+        this.readModel = readModel;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
     }
 
     @Override
@@ -36,24 +56,65 @@ public class StockQueryTool implements AgentTool<StockQueryTool.Input, StockQuer
         return Output.class;
     }
 
+    @Override
+    public Set<String> invalidatedBy() {
+        // Drafted orders change what agents should recommend from the same stock
+        // picture, so they invalidate along with the stock movements themselves.
+        return Set.of("STOCK_LEVEL_CHANGED", "PURCHASE_ORDER_DRAFTED");
+    }
+
+    // Answered from the in-process read model, with its watermark. The database
+    // is read instead until the model is first built. Tools run on worker
+    // threads, outside any caller transaction, so both see committed data only.
+    // Projection queries join products in SQL, so no LAZY association is touched.
+    // Tenant-wide queries are read one keyset page at a time (limit + 1 rows to
+    // know whether another page follows); a single product's rows are few.
     @Override
     public Output execute(Input input) {
-        List<Stock> stocks;
+        String tenantId = input.tenantId != null ? input.tenantId : "default";
         if (input.productId != null) {
-            stocks = stockRepository.findByProductId(input.productId);
-        } else if (input.warehouse != null) {
-            stocks = stockRepository.findByWarehouse(input.warehouse);
-        } else {
-            stocks = stockRepository.findByTenantId(input.tenantId != null ? input.tenantId : "default");
+            Optional<StockReadModel.Result> fromModel = readModel.levelsByProduct(input.productId);
+            return fromModel.map(r -> toOutput(r.levels(), null, r.watermark()))
+                    .orElseGet(() -> toOutput(stockRepository.findLevelsByProduct(input.productId), null, null));
         }
 
-        List<StockItem> items = stocks.stream()
-                .map(s -> new StockItem(
-                        s.getProduct().getId(), s.getProduct().getSku(), s.getProduct().getName(),
-                        s.getWarehouse(), s.getQuantity(), s.getMinQuantity(), s.isBelowMinimum()))
-                .toList();
+        int limit = KeysetCursor.limit(input.limit, defaultLimit, maxLimit);
+        long afterId = KeysetCursor.decode(input.cursor);
+        Optional<StockReadModel.Result> fromModel = queryModel(input, tenantId, afterId, limit + 1);
+        List<StockLevel> levels = fromModel.map(StockReadModel.Result::levels)
+                .orElseGet(() -> queryDatabase(input, tenantId, afterId, Limit.of(limit + 1)));
+        Instant watermark = fromModel.map(StockReadModel.Result::watermark).orElse(null);
+
+        String nextCursor = KeysetCursor.next(levels, limit, StockLevel::stockId);
+        return toOutput(nextCursor != null ? levels.subList(0, limit) : levels, nextCursor, watermark);
+    }
+
+    private Optional<StockReadModel.Result> queryModel(Input input, String tenantId, long afterId, int fetch) {
+        if (Boolean.TRUE.equals(input.belowMinimum)) {
+            return readModel.levelsBelowMinimum(tenantId, afterId, fetch);
+        }
+        if (input.warehouse != null) {
+            return readModel.levelsByTenantAndWarehouse(tenantId, input.warehouse, afterId, fetch);
+        }
+        return readModel.levelsByTenant(tenantId, afterId, fetch);
+    }
 
-        return new Output(items, items.stream().anyMatch(StockItem::belowMinimum));
+    private List<StockLevel> queryDatabase(Input input, String tenantId, long afterId, Limit fetch) {
+        if (Boolean.TRUE.equals(input.belowMinimum)) {
+            return stockRepository.findLevelsBelowMinimumAfter(tenantId, afterId, fetch);
+        }
+        if (input.warehouse != null) {
+            return stockRepository.findLevelsByTenantAndWarehouseAfter(tenantId, input.warehouse, afterId, fetch);
+        }
+        return stockRepository.findLevelsByTenantAfter(tenantId, afterId, fetch);
+    }
+
+    private static Output toOutput(List<StockLevel> levels, String nextCursor, Instant watermark) {
+        List<StockItem> items = levels.stream()
+                .map(l -> new StockItem(l.productId(), l.sku(), l.name(), l.warehouse(), l.quantity(),
+                        l.minQuantity(), l.belowMinimum()))
+                .toList();
+        return new Output(items, items.stream().anyMatch(StockItem::belowMinimum), nextCursor, watermark);
     }
 
     // --- Typed DTOs ---
@@ -62,13 +123,68 @@ public class StockQueryTool implements AgentTool<StockQueryTool.Input, StockQuer
         public Long productId;
         public String warehouse;
         public String tenantId;
+        public Boolean belowMinimum; // only rows with quantity < minQuantity
+        public String cursor; // nextCursor of the previous page
+        public Integer limit;
     }
 
-    public record Output(List<StockItem> stocks, boolean hasItemsBelowMinimum) {
+    /**
+     * @param nextCursor token for the next page, or null when this is the last
+     * @param watermark  how current the read model was, or null when read from
+     *                   the database; reported on the evidence only, kept out of
+     *                   the payload so it does not change the LLM cache key
+     */
+    public record Output(List<StockItem> stocks, boolean hasItemsBelowMinimum, String nextCursor,
+            @JsonIgnore Instant watermark) implements TabularOutput, PagedOutput, WatermarkedOutput {
+
+        /** Shared through the result cache, so it never holds a list the producer can change. */
+        public Output {
+            stocks = List.copyOf(stocks);
+        }
+
+        public Output(List<StockItem> stocks, boolean hasItemsBelowMinimum) {
+            this(stocks, hasItemsBelowMinimum, null, null);
+        }
+
+        /** Below-minimum first, then by how close quantity is to the minimum. */
+        private static final Comparator<StockItem> RELEVANCE = Comparator
+                .comparing(StockItem::belowMinimum).reversed()
+                .thenComparing(StockItem::coverage);
+
+        @Override
+        public List<String> columns() {
+            return List.of("productId", "sku", "name", "warehouse", "quantity", "minQuantity", "belowMinimum");
+        }
+
+        @Override
+        public List<List<Object>> rankedRows() {
+            return stocks.stream()
+                    .sorted(RELEVANCE)
+                    .map(s -> Arrays.<Object>asList(s.productId(), s.sku(), s.name(), s.warehouse(), s.quantity(),
+                            s.minQuantity(), s.belowMinimum()))
+                    .toList();
+        }
+
+        @Override
+        public Map<String, Object> summary() {
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("hasItemsBelowMinimum", hasItemsBelowMinimum);
+            summary.put("totalItems", stocks.size());
+            summary.put("hasMore", nextCursor != null);
+            return summary;
+        }
     }
 
     public record StockItem(
             Long productId, String sku, String name, String warehouse,
             BigDecimal quantity, BigDecimal minQuantity, boolean belowMinimum) {
+
+        /** quantity / minQuantity; items without a minimum sort last. */
+        BigDecimal coverage() {
+            if (minQuantity == null || minQuantity.signum() <= 0 || quantity == null) {
+                return BigDecimal.valueOf(Long.MAX_VALUE);
+            }
+            return quantity.divide(minQuantity, 4, RoundingMode.HALF_UP);
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.erp.ia.tool;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tool output made of uniform rows, which the evidence compactor encodes as a
+ * CSV table instead of repeating field names per row.
+ */
+public interface TabularOutput {
+
+    List<String> columns();
+
+    /**
+     * Rows in relevance order, most relevant first: when the token budget runs
+     * out, the tail is dropped.
+     */
+    List<List<Object>> rankedRows();
+
+    /** Scalar facts about the whole result, kept even when rows are dropped. */
+    default Map<String, Object> summary() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,64 @@
+package com.erp.ia.tool;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Request-scoped (L1) memo of tool results. One scope is created per context
+ * assembly, so identical tool calls in the same plan run only once — even when
+ * they are in flight concurrently on different threads. A call waiting for
+ * another thread's execution gives up after {@code joinTimeout} or when
+ * interrupted.
+ */
+public final class ToolCallScope {
+
+    private final Map<String, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+    private final Duration joinTimeout;
+
+    public ToolCallScope(Duration joinTimeout) {
+        this.joinTimeout = joinTimeout;
+    }
+
+    Object computeIfAbsent(String key, Supplier<Object> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = results.putIfAbsent(key, mine);
+        if (existing != null) {
+            return join(existing, joinTimeout);
+        }
+        try {
+            Object value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            results.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a call shared with another thread, rethrowing its failure.
+     */
+    static Object join(CompletableFuture<Object> future, Duration timeout) {
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared tool call");
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Shared tool call did not complete within " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Shared tool call failed", e.getCause());
+        }
+    }
+}
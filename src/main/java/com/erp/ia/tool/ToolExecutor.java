@@ -1,5 +1,6 @@
 package com.erp.ia.tool;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,10 @@ import java.util.Map;
 
 /**
  * Executes agent tools with validation, logging, and timeout.
+ *
+ * Results are memoized on two levels, keyed by tool name plus the normalized
+ * input DTO: the caller's {@link ToolCallScope} (L1, one request) and the
+ * shared {@link ToolResultCache} (L2, tenant-partitioned with TTL).
  */
 @Component
 public class ToolExecutor {
@@ -17,26 +22,56 @@ public class ToolExecutor {
 
     private final ToolRegistry toolRegistry;
     private final ObjectMapper objectMapper;
+    private final ToolResultCache resultCache;
 
-    public ToolExecutor(ToolRegistry toolRegistry, ObjectMapper objectMapper) {
+    public ToolExecutor(ToolRegistry toolRegistry, ObjectMapper objectMapper, ToolResultCache resultCache) {
         this.toolRegistry = toolRegistry;
         this.objectMapper = objectMapper;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Execute a tool by name with parameters, without a request scope.
+     */
+    public Object executeTool(String toolName, Map<String, Object> parameters) {
+        return executeTool(toolName, parameters, null);
     }
 
     /**
      * Execute a tool by name with parameters.
-     * Converts Map parameters to the tool's typed input DTO.
+     * Converts Map parameters to the tool's typed input DTO; identical calls
+     * within {@code scope} are executed once.
      */
     @SuppressWarnings("unchecked")
-    public Object executeTool(String toolName, Map<String, Object> parameters) {
+    public Object executeTool(String toolName, Map<String, Object> parameters, ToolCallScope scope) {
         AgentTool<Object, Object> tool = (AgentTool<Object, Object>) toolRegistry.findByName(toolName)
                 .orElseThrow(() -> new IllegalArgumentException("Tool not found: " + toolName));
 
-        long start = System.currentTimeMillis();
+        Object input;
+        JsonNode normalized;
         try {
-            // Convert map to typed input
-            Object input = objectMapper.convertValue(parameters, tool.getInputType());
+            // Convert map to typed input; its JSON form is the cache key
+            input = objectMapper.convertValue(parameters, tool.getInputType());
+            normalized = objectMapper.valueToTree(input);
+        } catch (Exception e) {
+            log.error("Tool {} rejected input {}: {}", toolName, parameters, e.getMessage());
+            throw new RuntimeException("Tool execution failed: " + toolName, e);
+        }
+
+        String key = normalized.toString();
+        String tenantId = normalized.hasNonNull("tenantId") ? normalized.get("tenantId").asText() : "default";
+
+        if (scope == null) {
+            return resultCache.get(tenantId, toolName, key, () -> invoke(tool, input, parameters));
+        }
+        return scope.computeIfAbsent(toolName + '|' + key,
+                () -> resultCache.get(tenantId, toolName, key, () -> invoke(tool, input, parameters)));
+    }
 
+    private Object invoke(AgentTool<Object, Object> tool, Object input, Map<String, Object> parameters) {
+        String toolName = tool.getName();
+        long start = System.currentTimeMillis();
+        try {
             log.info("Executing tool: {} with input: {}", toolName, parameters);
             Object result = tool.execute(input);
             long duration = System.currentTimeMillis() - start;
@@ -0,0 +1,212 @@
+package com.erp.ia.tool;
+
+import com.erp.ia.event.BatchEventSubscriber;
+import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.TenantScoped;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cross-request (L2) cache of tool results, partitioned by tenant.
+ *
+ * Each tenant gets its own LRU bounded by {@code tool.cache.max-entries-per-tenant};
+ * entries expire after {@code tool.cache.ttl}. Tools declare which domain
+ * events make their results stale ({@link AgentTool#invalidatedBy()}) and the
+ * matching entries are dropped when those events arrive: in the event's tenant
+ * when it is {@link TenantScoped}, in every tenant otherwise. Concurrent misses
+ * for the same key share a single tool execution; the callers that wait for it
+ * give up after {@code tool.cache.join-timeout}.
+ *
+ * Cached results are handed to every request that asks for them, so tool
+ * outputs must be immutable.
+ *
+ * Metrics: {@code tool.cache.requests{result=hit|miss}} and
+ * {@code tool.cache.evictions{cause=size|expired|event}}.
+ */
+@Component
+public class ToolResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolResultCache.class);
+    private static final int INVALIDATION_BATCH = 512;
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int maxEntriesPerTenant;
+    private final Duration joinTimeout;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter eventEvictions;
+
+    public ToolResultCache(ToolRegistry toolRegistry, EventBus eventBus, MeterRegistry meterRegistry,
+            @Value("${tool.cache.enabled:true}") boolean enabled,
+            @Value("${tool.cache.ttl:30s}") Duration ttl,
+            @Value("${tool.cache.max-entries-per-tenant:500}") int maxEntriesPerTenant,
+            @Value("${tool.cache.join-timeout:5s}") Duration joinTimeout) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxEntriesPerTenant = maxEntriesPerTenant;
+        this.joinTimeout = joinTimeout;
+
+        this.hits = meterRegistry.counter("tool.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("tool.cache.requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("tool.cache.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("tool.cache.evictions", "cause", "expired");
+        this.eventEvictions = meterRegistry.counter("tool.cache.evictions", "cause", "event");
+
+        Map<String, Set<String>> toolsByEvent = new HashMap<>();
+        for (AgentTool<?, ?> tool : toolRegistry.getAll()) {
+            for (String eventType : tool.invalidatedBy()) {
+                toolsByEvent.computeIfAbsent(eventType, k -> new HashSet<>()).add(tool.getName());
+            }
+        }
+        // one invalidation per burst of events, however many piled up
+        toolsByEvent.forEach((eventType, toolNames) -> eventBus.subscribeBatch(eventType,
+                BatchEventSubscriber.Options.drain(INVALIDATION_BATCH),
+                events -> invalidate(toolNames, events)));
+    }
+
+    private void invalidate(Set<String> toolNames, List<DomainEvent> events) {
+        Set<String> tenants = new HashSet<>();
+        for (DomainEvent event : events) {
+            String tenantId = event instanceof TenantScoped scoped ? scoped.getTenantId() : null;
+            if (tenantId == null) {
+                toolNames.forEach(this::invalidateTool);
+                return;
+            }
+            tenants.add(tenantId);
+        }
+        for (String tenantId : tenants) {
+            toolNames.forEach(toolName -> invalidateTool(toolName, tenantId));
+        }
+    }
+
+    /**
+     * Return the cached result for {@code key}, or run {@code loader} and cache it.
+     * Failures, including errors, are not cached.
+     */
+    public Object get(String tenantId, String toolName, String key, Supplier<Object> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Partition partition = partitions.computeIfAbsent(tenantId, t -> new Partition());
+        String entryKey = toolName + '|' + key;
+        long now = System.nanoTime();
+
+        CompletableFuture<Object> future;
+        CompletableFuture<Object> mine = null;
+        synchronized (partition) {
+            Entry entry = partition.get(entryKey);
+            if (entry != null && entry.expiresAt - now > 0) {
+                hits.increment();
+                future = entry.value;
+            } else {
+                if (entry != null) {
+                    expiredEvictions.increment();
+                }
+                misses.increment();
+                mine = new CompletableFuture<>();
+                partition.put(entryKey, new Entry(mine, now + ttl.toNanos()));
+                future = mine;
+            }
+        }
+
+        if (mine != null) {
+            try {
+                mine.complete(loader.get());
+            } catch (Throwable e) {
+                // errors too, or the entry and its waiters would hang on a future nobody completes
+                synchronized (partition) {
+                    Entry current = partition.get(entryKey);
+                    if (current != null && current.value == mine) {
+                        partition.remove(entryKey);
+                    }
+                }
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return ToolCallScope.join(future, joinTimeout);
+    }
+
+    /**
+     * Drop every cached result of a tool, across all tenants.
+     */
+    public void invalidateTool(String toolName) {
+        int removed = 0;
+        for (Partition partition : partitions.values()) {
+            removed += partition.removeTool(toolName);
+        }
+        if (removed > 0) {
+            eventEvictions.increment(removed);
+            log.debug("Invalidated {} cached results of {}", removed, toolName);
+        }
+    }
+
+    /**
+     * Drop every cached result of a tool for one tenant.
+     */
+    public void invalidateTool(String toolName, String tenantId) {
+        Partition partition = partitions.get(tenantId);
+        int removed = partition != null ? partition.removeTool(toolName) : 0;
+        if (removed > 0) {
+            eventEvictions.increment(removed);
+            log.debug("Invalidated {} cached results of {} for tenant {}", removed, toolName, tenantId);
+        }
+    }
+
+    private record Entry(CompletableFuture<Object> value, long expiresAt) {
+    }
+
+    /**
+     * Access-ordered LRU for one tenant. Guarded by its own monitor.
+     */
+    private class Partition extends LinkedHashMap<String, Entry> {
+
+        Partition() {
+            super(16, 0.75f, true);
+        }
+
+        synchronized int removeTool(String toolName) {
+            String prefix = toolName + '|';
+            int removed = 0;
+            var it = keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().startsWith(prefix)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntriesPerTenant) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.erp.ia.tool;
+
+import java.time.Instant;
+
+/**
+ * Tool output served from an in-process projection rather than read from the
+ * database, stating how current it is.
+ */
+public interface WatermarkedOutput {
+
+    /** Changes up to this instant are reflected; null when read from the database. */
+    Instant watermark();
+}
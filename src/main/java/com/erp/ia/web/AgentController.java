@@ -1,48 +1,230 @@
 package com.erp.ia.web;
 
 import com.erp.ia.agent.AgentOrchestrator;
+import com.erp.ia.agent.AgentProgressListener;
 import com.erp.ia.agent.model.AgentRequest;
 import com.erp.ia.agent.model.AgentResponse;
+import com.erp.ia.context.Evidence;
+import com.erp.ia.policy.PolicyResult;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 @RestController
 @RequestMapping("/api/v1/agent")
 @Tag(name = "Agent", description = "AI Agent cognitive interface — suggest actions via natural language")
 public class AgentController {
 
+    private static final Logger log = LoggerFactory.getLogger(AgentController.class);
+
     private final AgentOrchestrator orchestrator;
+    private final Duration streamTimeout;
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public AgentController(AgentOrchestrator orchestrator) {
+    public AgentController(AgentOrchestrator orchestrator,
+            @Value("${agent.stream-timeout:120s}") Duration streamTimeout) {
         this.orchestrator = orchestrator;
+        this.streamTimeout = streamTimeout;
     }
 
     @PostMapping
     @Operation(summary = "Process an intent", description = "Receives a natural-language intent and returns a structured response with action plan and audit ID")
     public ResponseEntity<AgentResponse> processIntent(@Valid @RequestBody IntentRequest request) {
+        AgentResponse response = orchestrator.process(toAgentRequest(request));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Streaming variant: the pipeline runs on a virtual thread, so the servlet
+     * thread is released immediately, and each phase is pushed as an SSE event
+     * ({@code routed}, {@code evidence}, {@code token}, {@code policy}). The
+     * final {@code completed} event carries the same body as
+     * {@link #processIntent} once the decision is committed; failures end the
+     * stream with an {@code error} event. When the client leaves or the stream
+     * times out the pipeline is interrupted and no decision is logged.
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Process an intent (SSE)", description = "Same as POST /api/v1/agent, streaming progress as server-sent events")
+    public SseEmitter streamIntent(@Valid @RequestBody IntentRequest request) {
+        AgentRequest agentRequest = toAgentRequest(request);
+        SseProgressListener listener = new SseProgressListener(new SseEmitter(streamTimeout.toMillis()));
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+
+        listener.pipeline = streamExecutor.submit(() -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                AgentResponse response = orchestrator.process(agentRequest, listener);
+                listener.finish("completed", response);
+            } catch (Exception e) {
+                if (listener.isCancelled()) {
+                    log.info("Streamed intent '{}' abandoned, client left", agentRequest.intent());
+                } else {
+                    log.warn("Streamed intent '{}' failed: {}", agentRequest.intent(), e.getMessage());
+                }
+                listener.finish("error", errorBody(e));
+            } finally {
+                MDC.clear();
+            }
+        });
+        listener.emitter.onTimeout(() -> listener.clientGone("stream timed out"));
+        listener.emitter.onError(e -> listener.clientGone(e.getMessage()));
+        listener.emitter.onCompletion(() -> listener.clientGone("stream closed"));
+        streamExecutor.execute(listener::drain);
+
+        return listener.emitter;
+    }
+
+    private AgentRequest toAgentRequest(IntentRequest request) {
         String correlationId = MDC.get("correlationId");
         if (correlationId == null) {
             correlationId = UUID.randomUUID().toString();
         }
 
-        AgentRequest agentRequest = new AgentRequest(
+        return new AgentRequest(
                 request.intent(),
                 request.context() != null ? request.context() : Map.of(),
                 request.tenantId() != null ? request.tenantId() : "default",
                 request.storeId() != null ? request.storeId() : "default",
                 correlationId,
                 request.user());
+    }
 
-        AgentResponse response = orchestrator.process(agentRequest);
-        return ResponseEntity.ok(response);
+    /**
+     * Same error codes as {@link GlobalExceptionHandler}, as an SSE payload.
+     */
+    private Map<String, Object> errorBody(Exception e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (e instanceof IllegalArgumentException) {
+            body.put("error", "NOT_FOUND");
+            body.put("message", e.getMessage());
+        } else if (e instanceof IllegalStateException) {
+            body.put("error", "CONFLICT");
+            body.put("message", e.getMessage());
+        } else {
+            body.put("error", "INTERNAL_ERROR");
+            body.put("message", "Erro interno do servidor. Verifique os logs com o correlationId.");
+        }
+        body.put("correlationId", MDC.get("correlationId"));
+        return body;
+    }
+
+    /**
+     * Forwards orchestrator progress to the emitter. Callbacks, some on tool
+     * threads, only enqueue; a single drain thread writes to the emitter and
+     * completes it after the final event. Once the client has gone events are
+     * dropped, the pipeline is interrupted and the drain thread is released
+     * even if the pipeline never ran.
+     */
+    private static class SseProgressListener implements AgentProgressListener {
+
+        private record Event(String name, Object data, boolean last) {
+        }
+
+        private final SseEmitter emitter;
+        private static final Event GONE = new Event("gone", null, true);
+
+        private final BlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+        private volatile Future<?> pipeline;
+        private volatile boolean clientGone;
+        private volatile boolean finished;
+
+        SseProgressListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onRouted(String agentName) {
+            send("routed", Map.of("agent", agentName));
+        }
+
+        @Override
+        public void onEvidence(Evidence evidence) {
+            send("evidence", evidence);
+        }
+
+        @Override
+        public void onLlmChunk(String chunk) {
+            send("token", Map.of("text", chunk));
+        }
+
+        @Override
+        public void onPolicy(PolicyResult policyResult) {
+            send("policy", Map.of("status", policyResult.status(), "reasons", policyResult.reasons()));
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return clientGone;
+        }
+
+        void send(String name, Object data) {
+            if (!clientGone) {
+                queue.add(new Event(name, data, false));
+            }
+        }
+
+        /** Queue the last event; the drain thread completes the emitter after it. */
+        void finish(String name, Object data) {
+            finished = true;
+            queue.add(new Event(name, data, true));
+        }
+
+        void clientGone(String reason) {
+            if (finished || clientGone) {
+                return;
+            }
+            clientGone = true;
+            log.info("SSE client gone ({}), stopping the pipeline", reason);
+            queue.add(GONE);
+            pipeline.cancel(true);
+        }
+
+        void drain() {
+            try {
+                Event event;
+                do {
+                    event = queue.take();
+                    if (!clientGone) {
+                        write(event);
+                    }
+                } while (!event.last());
+                if (!clientGone) {
+                    emitter.complete();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(Event event) {
+            try {
+                emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                clientGone("write failed: " + e.getMessage());
+            }
+        }
     }
 
     public record IntentRequest(
@@ -0,0 +1,16 @@
+-- =============================================
+-- V10: Transactional outbox. Domain events are written here in the same
+-- transaction as the change they describe and relayed to the event bus
+-- after commit (rows are deleted once delivered)
+-- =============================================
+
+CREATE TABLE event_outbox (
+    id              BIGSERIAL       PRIMARY KEY,
+    event_id        VARCHAR(36)     NOT NULL UNIQUE,
+    event_type      VARCHAR(100)    NOT NULL,
+    event_class     VARCHAR(255)    NOT NULL,
+    aggregate_key   VARCHAR(255)    NOT NULL,
+    payload         TEXT            NOT NULL,
+    attempts        INT             NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,18 @@
+-- =============================================
+-- V11: Dead letters of the transactional outbox. A row whose delivery keeps
+-- failing (or whose payload can no longer be read) is moved here so the
+-- relay can move on
+-- =============================================
+
+CREATE TABLE event_outbox_dead (
+    id              BIGINT          PRIMARY KEY,
+    event_id        VARCHAR(36)     NOT NULL,
+    event_type      VARCHAR(100)    NOT NULL,
+    event_class     VARCHAR(255)    NOT NULL,
+    aggregate_key   VARCHAR(255)    NOT NULL,
+    payload         TEXT            NOT NULL,
+    attempts        INT             NOT NULL,
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP       NOT NULL,
+    dead_at         TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
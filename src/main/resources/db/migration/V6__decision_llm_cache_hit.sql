@@ -0,0 +1,5 @@
+-- =============================================
+-- V6: Record whether a decision's LLM answer was served from the response cache
+-- =============================================
+
+ALTER TABLE decision_logs ADD COLUMN llm_cache_hit BOOLEAN NOT NULL DEFAULT FALSE;
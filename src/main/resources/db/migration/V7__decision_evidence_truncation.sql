@@ -0,0 +1,5 @@
+-- =============================================
+-- V7: Record which evidence was cut to fit the prompt token budget
+-- =============================================
+
+ALTER TABLE decision_logs ADD COLUMN evidence_truncation TEXT;
@@ -0,0 +1,5 @@
+-- =============================================
+-- V8: Indexes for the StockLevel projection queries
+-- =============================================
+
+CREATE INDEX idx_stocks_tenant_warehouse ON stocks(tenant_id, warehouse);
@@ -0,0 +1,7 @@
+-- =============================================
+-- V9: optimistic version on stocks. Bumped by every write, including the
+-- atomic quantity deltas in StockRepository, so an entity-based update
+-- never silently overwrites a concurrent adjustment
+-- =============================================
+
+ALTER TABLE stocks ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -6,6 +6,7 @@ import com.erp.ia.audit.model.DecisionLog;
 import com.erp.ia.context.ContextAssembler;
 import com.erp.ia.context.ContextSnapshot;
 import com.erp.ia.context.Evidence;
+import com.erp.ia.context.EvidenceCompactor;
 import com.erp.ia.llm.LlmOutputValidator;
 import com.erp.ia.llm.LlmPort;
 import com.erp.ia.llm.LlmPort.LlmResponse;
@@ -14,13 +15,17 @@ import com.erp.ia.prompt.PromptRegistryService;
 import com.erp.ia.prompt.model.PromptTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -40,24 +45,29 @@ class AgentOrchestratorTest {
     private PolicyEngine policyEngine;
     @Mock
     private DecisionLogService decisionLogService;
-    @Mock
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private LlmPort llmPort;
     @Mock
     private PromptRegistryService promptRegistryService;
     @Mock
     private LlmOutputValidator llmOutputValidator;
     @Mock
+    private LlmResponseCache llmResponseCache;
+    @Mock
     private AgentDefinition mockAgent;
 
     private AgentOrchestrator orchestrator;
     private ObjectMapper objectMapper;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
         orchestrator = new AgentOrchestrator(
                 agentRegistry, contextAssembler, policyEngine, decisionLogService,
-                objectMapper, llmPort, promptRegistryService, llmOutputValidator);
+                objectMapper, llmPort, promptRegistryService, llmOutputValidator, llmResponseCache,
+                new EvidenceCompactor(objectMapper, 6000), meterRegistry);
     }
 
     // ── Deterministic fallback tests ──
@@ -70,7 +80,7 @@ class AgentOrchestratorTest {
         when(mockAgent.getName()).thenReturn("inventory-agent");
         when(mockAgent.usesLlm()).thenReturn(true);
         when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
-        when(contextAssembler.assemble(any(), any(), any()))
+        when(contextAssembler.assemble(any(), any(), any(), any()))
                 .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
         // No prompt found → triggers deterministic fallback
         when(promptRegistryService.getActivePrompt("inventory-agent", "default"))
@@ -111,7 +121,7 @@ class AgentOrchestratorTest {
         when(mockAgent.getName()).thenReturn("inventory-agent");
         when(mockAgent.usesLlm()).thenReturn(true);
         when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
-        when(contextAssembler.assemble(any(), any(), any()))
+        when(contextAssembler.assemble(any(), any(), any(), any()))
                 .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
 
         // Prompt found
@@ -155,6 +165,81 @@ class AgentOrchestratorTest {
         verify(llmPort).complete(any());
         // Verify deterministic synthesize was NOT called
         verify(mockAgent, never()).synthesize(any(), any());
+
+        assertEquals(1, meterRegistry.get("agent.llm.latency")
+                .tags("agent", "inventory-agent", "tenant", "default", "outcome", "ok").timer().count());
+        assertEquals(100.0, meterRegistry.get("agent.llm.tokens").tags("type", "prompt").counter().count());
+        assertEquals(50.0, meterRegistry.get("agent.llm.tokens").tags("type", "completion").counter().count());
+        assertEquals(1, meterRegistry.get("agent.phase").tags("phase", "validation").timer().count());
+    }
+
+    @Test
+    void shouldAuditMeasuredToolDuration() {
+        AgentRequest request = new AgentRequest("stock", Map.of(), "default", "default", "corr-t", "user1");
+        Evidence evidence = new Evidence("StockQueryTool", "estoque", Instant.now(), List.of())
+                .withDuration(Duration.ofMillis(42));
+
+        when(agentRegistry.findByIntent("stock")).thenReturn(Optional.of(mockAgent));
+        when(mockAgent.getName()).thenReturn("inventory-agent");
+        when(mockAgent.usesLlm()).thenReturn(false);
+        when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
+        when(contextAssembler.assemble(any(), any(), any(), any()))
+                .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of(evidence)));
+        when(mockAgent.synthesize(any(), any()))
+                .thenReturn(new AgentResponse("OK", null, List.of(evidence), null));
+
+        DecisionLog log = new DecisionLog();
+        log.setId("duration-id");
+        when(decisionLogService.logDecision(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any()))
+                .thenReturn(log);
+
+        orchestrator.process(request);
+
+        assertEquals(42L, log.getToolCalls().get(0).getDurationMs());
+        for (String phase : List.of("route", "plan", "context", "audit")) {
+            assertEquals(1, meterRegistry.get("agent.phase")
+                    .tags("phase", phase, "agent", "inventory-agent", "tenant", "default").timer().count(), phase);
+        }
+    }
+
+    @Test
+    void shouldServeCachedLlmAnswerWithoutCallingLlm() {
+        AgentRequest request = new AgentRequest("stock", Map.of(), "default", "default", "corr-6", "user1");
+
+        when(agentRegistry.findByIntent("stock")).thenReturn(Optional.of(mockAgent));
+        when(mockAgent.getName()).thenReturn("inventory-agent");
+        when(mockAgent.usesLlm()).thenReturn(true);
+        when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
+        when(contextAssembler.assemble(any(), any(), any(), any()))
+                .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
+
+        PromptTemplate prompt = new PromptTemplate("inventory-agent", 1, "System prompt with {{evidence}}");
+        when(promptRegistryService.getActivePrompt("inventory-agent", "default"))
+                .thenReturn(Optional.of(prompt));
+
+        String llmJson = "{\"response\": \"Estoque analisado\"}";
+        LlmResponseCache.Key key = new LlmResponseCache.Key("inventory-agent", "default", "inventory-agent", 1,
+                "digest", "stock");
+        when(llmResponseCache.key(eq("inventory-agent"), eq("default"), eq(prompt), any(), eq("stock")))
+                .thenReturn(key);
+        when(llmResponseCache.get(key)).thenReturn(Optional.of(
+                new LlmResponse(llmJson, "gpt-4", "stop", new LlmResponse.Usage(100, 50, 150), false, null)));
+        when(llmOutputValidator.validateAndParse(eq(llmJson), eq(LlmAgentOutput.class)))
+                .thenReturn(new LlmAgentOutput("Estoque analisado", null, null));
+
+        DecisionLog log = new DecisionLog();
+        log.setId("cached-id");
+        when(decisionLogService.logDecision(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any()))
+                .thenReturn(log);
+
+        AgentResponse response = orchestrator.process(request);
+
+        assertEquals("Estoque analisado", response.response());
+        verify(llmPort, never()).complete(any());
+        verify(llmResponseCache, never()).put(any(), any());
+        verify(decisionLogService).save(argThat(DecisionLog::isLlmCacheHit));
     }
 
     @Test
@@ -165,7 +250,7 @@ class AgentOrchestratorTest {
         when(mockAgent.getName()).thenReturn("inventory-agent");
         when(mockAgent.usesLlm()).thenReturn(true);
         when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
-        when(contextAssembler.assemble(any(), any(), any()))
+        when(contextAssembler.assemble(any(), any(), any(), any()))
                 .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
 
         // Prompt found
@@ -205,7 +290,7 @@ class AgentOrchestratorTest {
         when(mockAgent.getName()).thenReturn("inventory-agent");
         when(mockAgent.usesLlm()).thenReturn(true);
         when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
-        when(contextAssembler.assemble(any(), any(), any()))
+        when(contextAssembler.assemble(any(), any(), any(), any()))
                 .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
 
         // Prompt found
@@ -250,7 +335,7 @@ class AgentOrchestratorTest {
         when(mockAgent.getName()).thenReturn("inventory-agent");
         when(mockAgent.usesLlm()).thenReturn(false); // Agent opts out
         when(mockAgent.plan(any())).thenReturn(AgentPlan.empty());
-        when(contextAssembler.assemble(any(), any(), any()))
+        when(contextAssembler.assemble(any(), any(), any(), any()))
                 .thenReturn(new ContextSnapshot("inventory-agent", "stock", List.of()));
         when(mockAgent.synthesize(any(), any()))
                 .thenReturn(new AgentResponse("Direct response", null, List.of(), null));
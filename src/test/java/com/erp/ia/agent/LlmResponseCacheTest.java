@@ -0,0 +1,115 @@
+package com.erp.ia.agent;
+
+import com.erp.ia.context.Evidence;
+import com.erp.ia.event.DomainEvent;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.EventSubscriber;
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.event.model.StockLevelChanged;
+import com.erp.ia.llm.LlmPort.LlmResponse;
+import com.erp.ia.prompt.model.PromptTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LlmResponseCacheTest {
+
+    private final Map<String, EventSubscriber> subscribers = new HashMap<>();
+    private LlmResponseCache cache;
+    private final PromptTemplate prompt = new PromptTemplate("inventory-agent", 2, "content");
+    private final LlmResponse answer = new LlmResponse("{\"response\": \"ok\"}", "m", "stop", null, false, null);
+
+    @BeforeEach
+    void setUp() {
+        EventBus eventBus = mock(EventBus.class);
+        doAnswer(inv -> subscribers.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(eventBus).subscribe(any(), any());
+        doCallRealMethod().when(eventBus).subscribeBatch(any(), any(), any());
+        cache = new LlmResponseCache(eventBus, new SimpleMeterRegistry(), true, Duration.ofMinutes(5), 100);
+    }
+
+    @Test
+    void keyShouldIgnoreTimestampMapOrderAndIntentFormatting() {
+        Map<String, Object> ab = new LinkedHashMap<>();
+        ab.put("a", 1);
+        ab.put("b", 2);
+        Map<String, Object> ba = new LinkedHashMap<>();
+        ba.put("b", 2);
+        ba.put("a", 1);
+
+        LlmResponseCache.Key first = cache.key("inventory-agent", "default", prompt,
+                List.of(new Evidence("StockQueryTool", "q", Instant.EPOCH, ab)), "Reorder ");
+        LlmResponseCache.Key second = cache.key("inventory-agent", "default", prompt,
+                List.of(new Evidence("StockQueryTool", "q", Instant.now(), ba)), "  reorder");
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void keyShouldChangeWithEvidenceOrPromptVersion() {
+        List<Evidence> evidence = List.of(new Evidence("StockQueryTool", "q", Map.of("qty", 3)));
+        LlmResponseCache.Key base = cache.key("inventory-agent", "default", prompt, evidence, "reorder");
+
+        assertNotEquals(base, cache.key("inventory-agent", "default", prompt,
+                List.of(new Evidence("StockQueryTool", "q", Map.of("qty", 4))), "reorder"));
+        assertNotEquals(base, cache.key("inventory-agent", "default",
+                new PromptTemplate("inventory-agent", 3, "content"), evidence, "reorder"));
+    }
+
+    @Test
+    void shouldEvictOnPromptActivation() {
+        LlmResponseCache.Key key = cache.key("inventory-agent", "default", prompt, List.of(), "reorder");
+        cache.put(key, answer);
+        assertTrue(cache.get(key).isPresent());
+
+        subscribers.get("PROMPT_ACTIVATED").onEvent(new PromptActivated("inventory-agent", 1, "default"));
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    void shouldClearOnStockChange() {
+        LlmResponseCache.Key key = cache.key("inventory-agent", "default", prompt, List.of(), "reorder");
+        cache.put(key, answer);
+
+        subscribers.get("STOCK_LEVEL_CHANGED").onEvent(mock(DomainEvent.class));
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    void shouldEvictOnlyTheStockChangesTenant() {
+        LlmResponseCache.Key own = cache.key("inventory-agent", "default", prompt, List.of(), "reorder");
+        LlmResponseCache.Key other = cache.key("inventory-agent", "tenant-b", prompt, List.of(), "reorder");
+        cache.put(own, answer);
+        cache.put(other, answer);
+
+        subscribers.get("STOCK_LEVEL_CHANGED").onEvent(
+                new StockLevelChanged(1L, "WH-01", BigDecimal.ONE, BigDecimal.TEN, "sale", "default"));
+
+        assertTrue(cache.get(own).isEmpty());
+        assertTrue(cache.get(other).isPresent());
+    }
+
+    @Test
+    void shouldEvictPromptForNullTenant() {
+        LlmResponseCache.Key key = cache.key("inventory-agent", null, prompt, List.of(), "reorder");
+        cache.put(key, answer);
+        cache.put(cache.key("inventory-agent", "default", prompt, List.of(), "reorder"), answer);
+
+        cache.evictPrompt("inventory-agent", null);
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+}
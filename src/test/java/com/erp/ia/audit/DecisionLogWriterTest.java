@@ -0,0 +1,120 @@
+package com.erp.ia.audit;
+
+import com.erp.ia.audit.model.DecisionLog;
+import com.erp.ia.audit.model.DecisionPolicyResult;
+import com.erp.ia.audit.model.DecisionToolCall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+/**
+ * Not @Transactional: the writer commits in its own transaction, which is the
+ * behaviour under test.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DecisionLogWriterTest {
+
+    @Autowired
+    private DecisionLogService decisionLogService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DecisionLog newDecision(String correlationId) {
+        DecisionLog decision = decisionLogService.logDecision("inventory-agent", "stock", correlationId,
+                null, null, "{}", null, null, null, "default", "default");
+        decision.addToolCall(new DecisionToolCall("StockQueryTool", "{}", "[]", 12L));
+        decision.addPolicyResult(new DecisionPolicyResult("MaxQuantityRule", "PASS", null));
+        return decision;
+    }
+
+    private int count(String table, String decisionId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + ("decision_logs".equals(table) ? "id" : "decision_log_id")
+                        + " = ?",
+                Integer.class, decisionId);
+    }
+
+    @Test
+    void concurrentWritesAreCommittedWithChildrenBeforeAck() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<DecisionLog>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String corr = "writer-" + i;
+            futures.add(pool.submit(() -> decisionLogService.save(newDecision(corr))));
+        }
+
+        for (Future<DecisionLog> future : futures) {
+            String id = future.get().getId();
+            assertEquals(1, count("decision_logs", id));
+            assertEquals(1, count("decision_tool_calls", id));
+            assertEquals(1, count("decision_policy_results", id));
+        }
+        pool.shutdown();
+
+        assertTrue(decisionLogService.findById(futures.get(0).get().getId()).isPresent());
+    }
+
+    @Test
+    void synchronousModeWritesOnCallerThread() {
+        DecisionLogWriter syncWriter = new DecisionLogWriter(jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), false, 1, 16, Duration.ofSeconds(5));
+        DecisionLog decision = newDecision("writer-sync");
+        decision.setStatus(DecisionLog.DecisionStatus.REJECTED);
+        decision.setLlmCacheHit(true);
+
+        syncWriter.write(decision);
+
+        DecisionLog stored = decisionLogService.findById(decision.getId()).orElseThrow();
+        assertEquals(DecisionLog.DecisionStatus.REJECTED, stored.getStatus());
+        assertTrue(stored.isLlmCacheHit());
+        assertEquals(1, count("decision_tool_calls", decision.getId()));
+    }
+
+    @Test
+    void timedOutWriteIsWithdrawnFromQueue() throws Exception {
+        JdbcTemplate blockingJdbc = mock(JdbcTemplate.class);
+        PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        CountDownLatch inFlush = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(blockingJdbc.batchUpdate(startsWith("INSERT INTO decision_logs"), anyList())).thenAnswer(inv -> {
+            inFlush.countDown();
+            release.await();
+            return new int[] { 1 };
+        });
+        DecisionLogWriter writer = new DecisionLogWriter(blockingJdbc, txManager,
+                new SimpleMeterRegistry(), true, 16, 16, Duration.ofMillis(200));
+
+        Thread first = Thread.ofVirtual().start(() -> writer.write(newDecision("writer-first")));
+        inFlush.await();
+        assertThrows(RuntimeException.class, () -> writer.write(newDecision("writer-late")));
+
+        release.countDown();
+        first.join();
+        writer.shutdown();
+
+        verify(blockingJdbc, times(1)).batchUpdate(startsWith("INSERT INTO decision_logs"), anyList());
+    }
+}
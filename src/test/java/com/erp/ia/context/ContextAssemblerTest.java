@@ -0,0 +1,131 @@
+package com.erp.ia.context;
+
+import com.erp.ia.agent.model.AgentPlan;
+import com.erp.ia.agent.model.AgentRequest;
+import com.erp.ia.tool.ToolExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ContextAssemblerTest {
+
+    private ToolExecutor toolExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private ContextAssembler assembler;
+    private final AgentRequest request = new AgentRequest("stock", Map.of(), "default", "default", "corr", "user");
+
+    @BeforeEach
+    void setUp() {
+        toolExecutor = mock(ToolExecutor.class);
+        meterRegistry = new SimpleMeterRegistry();
+        assembler = new ContextAssembler(toolExecutor, meterRegistry, Duration.ofMillis(300), Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldRunToolsInParallelAndKeepPlanOrder() {
+        when(toolExecutor.executeTool(eq("SlowTool"), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(200);
+            return "slow";
+        });
+        when(toolExecutor.executeTool(eq("OtherSlowTool"), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(200);
+            return "other";
+        });
+
+        AgentPlan plan = new AgentPlan(List.of(
+                new AgentPlan.ToolCall("SlowTool", "first", Map.of()),
+                new AgentPlan.ToolCall("OtherSlowTool", "second", Map.of())));
+
+        long start = System.nanoTime();
+        ContextSnapshot snapshot = assembler.assemble(request, "agent", plan);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of("SlowTool", "OtherSlowTool"),
+                snapshot.getEvidences().stream().map(Evidence::source).toList());
+        assertEquals("slow", snapshot.getEvidences().get(0).payload());
+        assertEquals("other", snapshot.getEvidences().get(1).payload());
+        assertTrue(elapsedMs < 390, "Tools should overlap, took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void shouldTurnSlowToolIntoTimeoutEvidence() {
+        when(toolExecutor.executeTool(eq("HangingTool"), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(5_000);
+            return "never";
+        });
+        when(toolExecutor.executeTool(eq("FastTool"), any(), any())).thenReturn("fast");
+
+        AgentPlan plan = new AgentPlan(List.of(
+                new AgentPlan.ToolCall("HangingTool", "hangs", Map.of()),
+                new AgentPlan.ToolCall("FastTool", "fast", Map.of())));
+
+        ContextSnapshot snapshot = assembler.assemble(request, "agent", plan);
+
+        assertEquals(2, snapshot.getEvidences().size());
+        Map<?, ?> timeout = assertInstanceOf(Map.class, snapshot.getEvidences().get(0).payload());
+        assertEquals("TIMEOUT", timeout.get("status"));
+        assertEquals("fast", snapshot.getEvidences().get(1).payload());
+        assertEquals(300L, snapshot.getEvidences().get(0).durationMs());
+        assertNotNull(snapshot.getEvidences().get(1).durationMs());
+    }
+
+    @Test
+    void shouldReportPlanDeadlineWhenItFiresFirst() {
+        assembler = new ContextAssembler(toolExecutor, meterRegistry, Duration.ofSeconds(2), Duration.ofMillis(200));
+        when(toolExecutor.executeTool(eq("HangingTool"), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(5_000);
+            return "never";
+        });
+
+        AgentPlan plan = new AgentPlan(List.of(new AgentPlan.ToolCall("HangingTool", "hangs", Map.of())));
+
+        ContextSnapshot snapshot = assembler.assemble(request, "agent", plan);
+
+        Map<?, ?> timeout = assertInstanceOf(Map.class, snapshot.getEvidences().get(0).payload());
+        assertEquals(200L, timeout.get("timeoutMs"));
+        assertEquals(200L, snapshot.getEvidences().get(0).durationMs());
+    }
+
+    @Test
+    void shouldTimeEachToolCallByOutcome() {
+        when(toolExecutor.executeTool(eq("HangingTool"), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(5_000);
+            return "never";
+        });
+        when(toolExecutor.executeTool(eq("FastTool"), any(), any())).thenReturn("fast");
+
+        AgentPlan plan = new AgentPlan(List.of(
+                new AgentPlan.ToolCall("HangingTool", "hangs", Map.of()),
+                new AgentPlan.ToolCall("FastTool", "fast", Map.of())));
+
+        assembler.assemble(request, "agent", plan);
+
+        assertEquals(1, meterRegistry.get("agent.tool.duration")
+                .tags("agent", "agent", "tenant", "default", "tool", "FastTool", "outcome", "ok")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("agent.tool.duration")
+                .tags("tool", "HangingTool", "outcome", "timeout")
+                .timer().count());
+        assertNull(meterRegistry.find("agent.tool.duration").tags("tool", "HangingTool", "outcome", "error")
+                .timer());
+    }
+
+    @Test
+    void shouldPropagateToolFailure() {
+        when(toolExecutor.executeTool(eq("BrokenTool"), any(), any()))
+                .thenThrow(new RuntimeException("Tool execution failed: BrokenTool"));
+
+        AgentPlan plan = new AgentPlan(List.of(new AgentPlan.ToolCall("BrokenTool", "fails", Map.of())));
+
+        assertThrows(RuntimeException.class, () -> assembler.assemble(request, "agent", plan));
+    }
+}
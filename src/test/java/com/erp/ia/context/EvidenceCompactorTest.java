@@ -0,0 +1,94 @@
+package com.erp.ia.context;
+
+import com.erp.ia.tool.ProductQueryTool;
+import com.erp.ia.tool.StockQueryTool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvidenceCompactorTest {
+
+    private final EvidenceCompactor compactor = new EvidenceCompactor(new ObjectMapper(), 6000);
+
+    @Test
+    void shouldEncodeTabularOutputAsCsvWithinBudget() {
+        var output = new StockQueryTool.Output(List.of(
+                new StockQueryTool.StockItem(1L, "SKU-1", "Parafuso, sextavado", "WH-01",
+                        new BigDecimal("10.00"), new BigDecimal("5"), false)), false);
+
+        EvidenceCompactor.Compacted compacted = compactor.compact(
+                List.of(new Evidence("StockQueryTool", "estoque", output)), 0);
+
+        assertFalse(compacted.truncated());
+        assertTrue(compacted.text().contains("productId,sku,name,warehouse,quantity,minQuantity,belowMinimum\n"));
+        assertTrue(compacted.text().contains("1,SKU-1,\"Parafuso, sextavado\",WH-01,10,5,false\n"));
+    }
+
+    @Test
+    void shouldKeepBelowMinimumItemsWhenBudgetIsTight() {
+        List<StockQueryTool.StockItem> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(new StockQueryTool.StockItem((long) i, "SKU-" + i, "Produto " + i, "WH-01",
+                    BigDecimal.valueOf(100), BigDecimal.TEN, false));
+        }
+        items.add(new StockQueryTool.StockItem(999L, "SKU-CRIT", "Crítico", "WH-01",
+                BigDecimal.ONE, BigDecimal.TEN, true));
+
+        EvidenceCompactor.Compacted compacted = compactor.compact(
+                List.of(new Evidence("StockQueryTool", "estoque", new StockQueryTool.Output(items, true))), 300);
+
+        assertTrue(compacted.estimatedTokens() <= 300, "took " + compacted.estimatedTokens());
+        assertTrue(compacted.text().contains("SKU-CRIT"));
+        assertTrue(compacted.text().contains("hasItemsBelowMinimum=true"));
+        EvidenceCompactor.Truncation truncation = compacted.truncations().get(0);
+        assertEquals("rows", truncation.unit());
+        assertEquals(501, truncation.total());
+        assertTrue(truncation.kept() > 0 && truncation.kept() < 501);
+    }
+
+    @Test
+    void shouldFlagPagesLeftUnread() {
+        var output = new StockQueryTool.Output(List.of(
+                new StockQueryTool.StockItem(1L, "SKU-1", "Parafuso", "WH-01",
+                        BigDecimal.TEN, BigDecimal.ONE, false)), false, "next-page", null);
+
+        EvidenceCompactor.Compacted compacted = compactor.compact(
+                List.of(new Evidence("StockQueryTool", "estoque", output)), 0);
+
+        assertTrue(compacted.text().contains("resultado parcial"));
+        EvidenceCompactor.Truncation truncation = compacted.truncations().get(0);
+        assertEquals("pages", truncation.unit());
+        assertEquals(1, truncation.kept());
+    }
+
+    @Test
+    void shouldShareBudgetAcrossEvidences() {
+        List<ProductQueryTool.ProductItem> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            products.add(new ProductQueryTool.ProductItem((long) i, "SKU-" + i, "Produto " + i, "geral", "UN"));
+        }
+
+        EvidenceCompactor.Compacted compacted = compactor.compact(List.of(
+                new Evidence("ProductQueryTool", "produtos", new ProductQueryTool.Output(products, 1000)),
+                new Evidence("OtherTool", "resumo", Map.of("status", "ok"))), 400);
+
+        assertTrue(compacted.text().contains("{\"status\":\"ok\"}"));
+        assertEquals(1, compacted.truncations().size());
+        assertEquals("ProductQueryTool", compacted.truncations().get(0).source());
+    }
+
+    @Test
+    void shouldCutOversizedJsonPayload() {
+        EvidenceCompactor.Compacted compacted = compactor.compact(
+                List.of(new Evidence("RawTool", "dump", Map.of("blob", "x".repeat(10_000)))), 100);
+
+        assertEquals("chars", compacted.truncations().get(0).unit());
+        assertTrue(compacted.text().contains("[truncado]"));
+    }
+}
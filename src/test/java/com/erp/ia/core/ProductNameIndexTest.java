@@ -0,0 +1,75 @@
+package com.erp.ia.core;
+
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.service.ProductNameIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductNameIndexTest {
+
+    private ProductNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductNameIndex();
+        index.load(List.of(
+                product(1L, "Parafuso sextavado M8", "default"),
+                product(2L, "Parafuso M8", "default"),
+                product(3L, "Porca M8", "default"),
+                product(4L, "Parafuso M8", "other")));
+    }
+
+    @Test
+    void shouldRankSubstringMatchesBySimilarity() {
+        assertEquals(List.of(2L, 1L), index.search("default", "parafuso", 10));
+    }
+
+    @Test
+    void shouldTolerateTypos() {
+        assertEquals(List.of(2L), index.search("default", "Parafuzo M8", 1));
+    }
+
+    @Test
+    void shouldMatchQueriesShorterThanAGram() {
+        assertEquals(3, index.search("default", "m8", 10).size());
+    }
+
+    @Test
+    void shouldScopeToTenantAndLimit() {
+        assertEquals(List.of(4L), index.search("other", "parafuso", 10));
+        assertEquals(1, index.search("default", "parafuso", 1).size());
+    }
+
+    @Test
+    void shouldApplyWritesAfterLoad() {
+        index.put(5L, "default", "Arruela lisa", true);
+        index.put(2L, "default", "Parafuso M8", false);
+        index.remove(3L);
+
+        assertEquals(List.of(5L), index.search("default", "arruela", 10));
+        assertEquals(List.of(1L), index.search("default", "parafuso", 10));
+        assertTrue(index.search("default", "porca", 10).isEmpty());
+    }
+
+    @Test
+    void shouldIgnoreWritesBeforeLoad() {
+        ProductNameIndex fresh = new ProductNameIndex();
+        fresh.put(1L, "default", "Parafuso", true);
+
+        assertFalse(fresh.isEnabled());
+        assertEquals(0, fresh.size());
+    }
+
+    private Product product(Long id, String name, String tenantId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setSku("SKU-" + id);
+        product.setName(name);
+        product.setTenantId(tenantId);
+        return product;
+    }
+}
@@ -0,0 +1,105 @@
+package com.erp.ia.core;
+
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.repository.ProductRepository;
+import com.erp.ia.core.service.ProductNameIndex;
+import com.erp.ia.core.service.ProductSearchService;
+import com.erp.ia.tool.ProductQueryTool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: index updates are applied after commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchServiceTest {
+
+    private static final String TENANT = "search-test";
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductSearchService productSearchService;
+    @Autowired
+    private ProductQueryTool productQueryTool;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAll(productRepository.findByTenantId(TENANT));
+    }
+
+    @Test
+    void shouldFindCommittedProductsRanked() {
+        Product second = save("SRCH-1", "Parafuso sextavado M8 zincado");
+        Product first = save("SRCH-2", "Parafuso M8");
+
+        List<Product> found = productSearchService.search(TENANT, "parafuso", 10);
+
+        assertEquals(List.of(first.getId(), second.getId()), found.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void shouldDropDeactivatedProducts() {
+        Product product = save("SRCH-3", "Arruela lisa");
+        product.setActive(false);
+        productRepository.save(product);
+
+        assertTrue(productSearchService.search(TENANT, "arruela", 10).isEmpty());
+    }
+
+    @Test
+    void toolShouldReturnLimitedRankedMatches() {
+        save("SRCH-4", "Porca M8");
+        save("SRCH-5", "Porca M10");
+        ProductQueryTool.Input input = new ProductQueryTool.Input();
+        input.tenantId = TENANT;
+        input.query = "porca";
+        input.limit = 1;
+
+        ProductQueryTool.Output output = productQueryTool.execute(input);
+
+        assertEquals(1, output.totalCount());
+        assertNull(output.nextCursor());
+    }
+
+    @Test
+    void fallbackShouldMatchWildcardsLiterally() {
+        // index never loaded: the substring query answers
+        ProductSearchService fallback = new ProductSearchService(productRepository, new ProductNameIndex(), dataSource);
+        Product percent = save("SRCH-6", "Desconto 10% lote");
+        save("SRCH-7", "Desconto 100 lote");
+        Product underscore = save("SRCH-8", "Cabo_flex 2m");
+        save("SRCH-9", "Cabo-flex 2m");
+
+        assertEquals(List.of(percent.getId()), fallback.search(TENANT, "10%", 10).stream()
+                .map(Product::getId).toList());
+        assertEquals(List.of(underscore.getId()), fallback.search(TENANT, "o_f", 10).stream()
+                .map(Product::getId).toList());
+        // same pattern the PostgreSQL search uses
+        assertEquals(List.of("SRCH-6"), jdbcTemplate.queryForList("SELECT sku FROM products WHERE tenant_id = ? "
+                + "AND lower(name) LIKE '%' || lower(?) || '%' ESCAPE '\\'", String.class, TENANT,
+                ProductRepository.escapeLike("10%")));
+    }
+
+    private Product save(String sku, String name) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName(name);
+        product.setTenantId(TENANT);
+        return productRepository.save(product);
+    }
+}
@@ -0,0 +1,221 @@
+package com.erp.ia.core;
+
+import com.erp.ia.core.model.StockLevel;
+import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.core.service.StockReadModel;
+import com.erp.ia.event.BatchEventSubscriber;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.model.StockLevelChanged;
+import com.erp.ia.tool.StockQueryTool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReadModelTest {
+
+    private final AtomicReference<BatchEventSubscriber> subscriber = new AtomicReference<>();
+    private StockRepository stockRepository;
+    private StockReadModel model;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        EventBus eventBus = mock(EventBus.class);
+        doAnswer(inv -> {
+            subscriber.set(inv.getArgument(2));
+            return null;
+        }).when(eventBus).subscribeBatch(eq("STOCK_LEVEL_CHANGED"), any(), any());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        model = new StockReadModel(stockRepository, eventBus, transactionManager, true, Duration.ZERO);
+    }
+
+    @Test
+    void shouldFallBackUntilBuilt() {
+        assertFalse(model.isReady());
+        assertTrue(model.levelsByTenant("default", 0, 10).isEmpty());
+        assertTrue(model.levelsByProduct(1L).isEmpty());
+    }
+
+    @Test
+    void shouldIndexByTenantWarehouseAndBelowMinimum() {
+        build(level(1, 10L, "WH-01", 2, 10, "default"), level(2, 11L, "WH-02", 50, 10, "default"),
+                level(3, 12L, "WH-01", 1, 10, "other"), level(4, 10L, "WH-02", 20, 10, "default"));
+
+        assertEquals(List.of(1L, 2L, 4L), stockIds(model.levelsByTenant("default", 0, 10).orElseThrow()));
+        assertEquals(List.of(2L, 4L), stockIds(model.levelsByTenant("default", 1, 10).orElseThrow()));
+        assertEquals(List.of(1L), stockIds(model.levelsByTenantAndWarehouse("default", "WH-01", 0, 10)
+                .orElseThrow()));
+        assertEquals(List.of(1L), stockIds(model.levelsBelowMinimum("default", 0, 10).orElseThrow()));
+        assertEquals(List.of(1L, 4L), stockIds(model.levelsByProduct(10L).orElseThrow()));
+        assertNotNull(model.levelsByTenant("default", 0, 10).orElseThrow().watermark());
+    }
+
+    @Test
+    void shouldApplyStockChangesAndMoveBelowMinimumStatus() {
+        build(level(1, 10L, "WH-01", 2, 10, "default"), level(2, 11L, "WH-01", 50, 10, "default"));
+        StockLevelChanged restock = new StockLevelChanged(10L, "WH-01", BigDecimal.TWO, BigDecimal.valueOf(30),
+                "receipt", "default");
+        StockLevelChanged sale = new StockLevelChanged(11L, "WH-01", BigDecimal.valueOf(50), BigDecimal.ONE,
+                "sale", "default");
+
+        subscriber.get().onEvents(List.of(restock, sale));
+
+        StockReadModel.Result below = model.levelsBelowMinimum("default", 0, 10).orElseThrow();
+        assertEquals(List.of(2L), stockIds(below));
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(
+                model.levelsByProduct(10L).orElseThrow().levels().get(0).quantity()));
+        assertEquals(sale.getOccurredAt(), below.watermark());
+        verify(stockRepository, never()).findLevelsByProduct(any());
+    }
+
+    @Test
+    void shouldLoadRowsFirstSeenThroughEvents() {
+        build(level(1, 10L, "WH-01", 2, 10, "default"));
+        when(stockRepository.findLevelsByProduct(10L)).thenReturn(List.of(
+                level(1, 10L, "WH-01", 2, 10, "default"), level(7, 10L, "WH-09", 5, 0, "default")));
+
+        subscriber.get().onEvents(List.of(new StockLevelChanged(10L, "WH-09", BigDecimal.ZERO,
+                BigDecimal.valueOf(5), "receipt", "default")));
+
+        assertEquals(List.of(1L, 7L), stockIds(model.levelsByTenant("default", 0, 10).orElseThrow()));
+    }
+
+    @Test
+    void shouldNotOverwriteChangeAppliedWhileReloading() {
+        build(level(1, 10L, "WH-01", 2, 10, "default"));
+        when(stockRepository.findLevelsByProduct(10L)).thenAnswer(inv -> {
+            // a newer change to a known row lands between the query and the write
+            subscriber.get().onEvents(List.of(new StockLevelChanged(10L, "WH-01", BigDecimal.TWO,
+                    BigDecimal.valueOf(40), "receipt", "default")));
+            return List.of(level(1, 10L, "WH-01", 2, 10, "default"), level(7, 10L, "WH-09", 5, 0, "default"));
+        });
+
+        subscriber.get().onEvents(List.of(new StockLevelChanged(10L, "WH-09", BigDecimal.ZERO,
+                BigDecimal.valueOf(5), "receipt", "default")));
+
+        List<StockLevel> levels = model.levelsByProduct(10L).orElseThrow().levels();
+        assertEquals(2, levels.size());
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(levels.get(0).quantity()));
+    }
+
+    @Test
+    void shouldApplyChangesReceivedDuringRebuild() {
+        when(stockRepository.streamAllLevels()).thenAnswer(inv -> {
+            // committed after the snapshot query started, delivered while it runs
+            subscriber.get().onEvents(List.of(new StockLevelChanged(10L, "WH-01", BigDecimal.TWO,
+                    BigDecimal.valueOf(40), "receipt", "default")));
+            assertTrue(model.levelsByProduct(10L).isEmpty(), "queries fall back while rebuilding");
+            return Stream.of(level(1, 10L, "WH-01", 2, 10, "default"));
+        });
+
+        model.rebuild();
+
+        assertTrue(model.isReady());
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(
+                model.levelsByProduct(10L).orElseThrow().levels().get(0).quantity()));
+        assertTrue(model.levelsBelowMinimum("default", 0, 10).orElseThrow().levels().isEmpty());
+    }
+
+    @Test
+    void shouldServePreviousSnapshotWhileRebuildingAndPickUpEdits() {
+        build(level(1, 10L, "WH-01", 20, 10, "default"));
+        when(stockRepository.streamAllLevels()).thenAnswer(inv -> {
+            subscriber.get().onEvents(List.of(new StockLevelChanged(10L, "WH-01", BigDecimal.valueOf(20),
+                    BigDecimal.valueOf(40), "receipt", "default")));
+            assertEquals(0, BigDecimal.valueOf(40).compareTo(
+                    model.levelsByProduct(10L).orElseThrow().levels().get(0).quantity()));
+            // minimum raised without an event, visible only to the reload
+            return Stream.of(level(1, 10L, "WH-01", 20, 50, "default"));
+        });
+
+        model.rebuild();
+
+        StockLevel rebuilt = model.levelsByProduct(10L).orElseThrow().levels().get(0);
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(rebuilt.quantity()));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(rebuilt.minQuantity()));
+        assertEquals(List.of(1L), stockIds(model.levelsBelowMinimum("default", 0, 10).orElseThrow()));
+    }
+
+    @Test
+    void shouldRebuildOnSchedule() {
+        EventBus eventBus = mock(EventBus.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(stockRepository.streamAllLevels()).thenAnswer(inv -> Stream.of(level(1, 10L, "WH-01", 2, 10, "default")));
+        StockReadModel scheduled = new StockReadModel(stockRepository, eventBus, transactionManager, true,
+                Duration.ofMillis(50));
+
+        scheduled.preload();
+        try {
+            verify(stockRepository, timeout(2_000).atLeast(3)).streamAllLevels();
+        } finally {
+            scheduled.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepWatermarkPerTenant() {
+        build(level(1, 10L, "WH-01", 2, 10, "default"), level(2, 11L, "WH-01", 50, 10, "tenant-b"));
+        Instant built = model.levelsByTenant("default", 0, 10).orElseThrow().watermark();
+        StockLevelChanged sale = new StockLevelChanged(11L, "WH-01", BigDecimal.valueOf(50), BigDecimal.ONE,
+                "sale", "tenant-b");
+
+        subscriber.get().onEvents(List.of(sale));
+
+        assertEquals(built, model.levelsByTenant("default", 0, 10).orElseThrow().watermark());
+        assertEquals(built, model.levelsByProduct(10L).orElseThrow().watermark());
+        assertEquals(sale.getOccurredAt(), model.levelsByTenant("tenant-b", 0, 10).orElseThrow().watermark());
+        assertEquals(sale.getOccurredAt(), model.levelsByProduct(11L).orElseThrow().watermark());
+    }
+
+    @Test
+    void toolShouldAnswerFromModelWithWatermark() throws Exception {
+        build(level(1, 10L, "WH-01", 2, 10, "default"), level(2, 11L, "WH-01", 50, 10, "default"));
+        StockQueryTool tool = new StockQueryTool(stockRepository, model, 500, 2000);
+        StockQueryTool.Input input = new StockQueryTool.Input();
+        input.limit = 1;
+
+        StockQueryTool.Output first = tool.execute(input);
+        input.cursor = first.nextCursor();
+        StockQueryTool.Output second = tool.execute(input);
+
+        assertEquals("SKU-10", first.stocks().get(0).sku());
+        assertTrue(first.hasItemsBelowMinimum());
+        assertNotNull(first.watermark());
+        assertFalse(first.summary().containsKey("asOf"));
+        assertFalse(new ObjectMapper().findAndRegisterModules().writeValueAsString(first).contains("watermark"),
+                "Watermark stays out of the payload and so out of the LLM cache key");
+        assertEquals("SKU-11", second.stocks().get(0).sku());
+        assertNull(second.nextCursor());
+        verify(stockRepository, never()).findLevelsByTenantAfter(any(), anyLong(), any());
+    }
+
+    private void build(StockLevel... levels) {
+        when(stockRepository.streamAllLevels()).thenReturn(Stream.of(levels));
+        model.rebuild();
+    }
+
+    private static StockLevel level(long stockId, Long productId, String warehouse, int quantity, int min,
+            String tenantId) {
+        return new StockLevel(stockId, productId, "SKU-" + productId, "Produto " + productId, warehouse,
+                BigDecimal.valueOf(quantity), BigDecimal.valueOf(min), tenantId);
+    }
+
+    private static List<Long> stockIds(StockReadModel.Result result) {
+        return result.levels().stream().map(StockLevel::stockId).toList();
+    }
+}
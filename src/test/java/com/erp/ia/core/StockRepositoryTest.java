@@ -0,0 +1,159 @@
+package com.erp.ia.core;
+
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.model.Stock;
+import com.erp.ia.core.model.StockLevel;
+import com.erp.ia.core.repository.ProductRepository;
+import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.core.service.StockReadModel;
+import com.erp.ia.event.EventBus;
+import com.erp.ia.tool.ProductQueryTool;
+import com.erp.ia.tool.StockQueryTool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class StockRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private StockQueryTool stockQueryTool;
+    @Autowired
+    private EventBus eventBus;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ProductQueryTool productQueryTool;
+
+    @BeforeEach
+    void seedData() {
+        stock(product("SKU-LOW", "default"), "WH-01", 2, 10, "default");
+        stock(product("SKU-OK", "default"), "WH-02", 50, 10, "default");
+        stock(product("SKU-OTHER", "other"), "WH-01", 1, 10, "other");
+    }
+
+    @Test
+    void shouldFilterBelowMinimumInQuery() {
+        List<StockLevel> levels = stockRepository.findLevelsBelowMinimum("default");
+
+        assertEquals(1, levels.size());
+        StockLevel low = levels.get(0);
+        assertEquals("SKU-LOW", low.sku());
+        assertEquals("Produto SKU-LOW", low.name());
+        assertTrue(low.belowMinimum());
+    }
+
+    @Test
+    void shouldScopeWarehouseQueryToTenant() {
+        List<StockLevel> levels = stockRepository.findLevelsByTenantAndWarehouseAfter("default", "WH-01", 0L,
+                Limit.of(10));
+
+        assertEquals(List.of("SKU-LOW"), levels.stream().map(StockLevel::sku).toList());
+    }
+
+    @Test
+    void shouldProjectAllTenantLevels() {
+        List<StockLevel> levels = stockRepository.findLevelsByTenantAfter("default", 0L, Limit.of(10));
+
+        assertEquals(List.of("SKU-LOW", "SKU-OK"), levels.stream().map(StockLevel::sku).toList());
+    }
+
+    @Test
+    void shouldPageStockByKeysetCursor() {
+        // The read model only holds committed rows; read this test's own through the database
+        StockQueryTool databaseTool = new StockQueryTool(stockRepository,
+                new StockReadModel(stockRepository, eventBus, transactionManager, false, Duration.ZERO), 500, 2000);
+        stock(product("SKU-3", "default"), "WH-03", 5, 1, "default");
+        List<String> skus = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            StockQueryTool.Input input = new StockQueryTool.Input();
+            input.cursor = cursor;
+            input.limit = 2;
+            StockQueryTool.Output page = databaseTool.execute(input);
+            page.stocks().forEach(s -> skus.add(s.sku()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of("SKU-LOW", "SKU-OK", "SKU-3"), skus);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    void shouldPageActiveProductsByKeysetCursor() {
+        Product inactive = product("SKU-OFF", "default");
+        inactive.setActive(false);
+        productRepository.save(inactive);
+
+        ProductQueryTool.Input input = new ProductQueryTool.Input();
+        input.limit = 1;
+        ProductQueryTool.Output first = productQueryTool.execute(input);
+        input.cursor = first.nextCursor();
+        ProductQueryTool.Output second = productQueryTool.execute(input);
+
+        assertEquals("SKU-LOW", first.products().get(0).sku());
+        assertEquals("SKU-OK", second.products().get(0).sku());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void shouldPreferCategoryOverNameQuery() {
+        Product tool = product("SKU-CAT", "default");
+        tool.setCategory("ferramentas");
+        productRepository.save(tool);
+
+        ProductQueryTool.Input input = new ProductQueryTool.Input();
+        input.category = "ferramentas";
+        input.query = "SKU-LOW";
+
+        assertEquals(List.of("SKU-CAT"), productQueryTool.execute(input).products().stream()
+                .map(ProductQueryTool.ProductItem::sku).toList());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        StockQueryTool.Input input = new StockQueryTool.Input();
+        input.cursor = "not-a-cursor";
+
+        assertThrows(IllegalArgumentException.class, () -> stockQueryTool.execute(input));
+    }
+
+    private Product product(String sku, String tenantId) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Produto " + sku);
+        product.setUnit("un");
+        product.setTenantId(tenantId);
+        return productRepository.save(product);
+    }
+
+    private void stock(Product product, String warehouse, int quantity, int minQuantity, String tenantId) {
+        Stock stock = new Stock();
+        stock.setProduct(product);
+        stock.setWarehouse(warehouse);
+        stock.setQuantity(BigDecimal.valueOf(quantity));
+        stock.setMinQuantity(BigDecimal.valueOf(minQuantity));
+        stock.setTenantId(tenantId);
+        stockRepository.save(stock);
+    }
+}
@@ -0,0 +1,154 @@
+package com.erp.ia.core;
+
+import com.erp.ia.core.model.Product;
+import com.erp.ia.core.model.StockMovement.MovementType;
+import com.erp.ia.core.repository.ProductRepository;
+import com.erp.ia.core.repository.StockRepository;
+import com.erp.ia.core.service.StockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: each adjustment commits on its own, as in production.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockServiceConcurrencyTest {
+
+    private static final String TENANT = "concurrency-test";
+    private static final String WAREHOUSE = "WH-HOT";
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product("HOT-" + System.nanoTime(), "Produto concorrido", "un");
+        product.setTenantId(TENANT);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stock_movements WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM stocks WHERE product_id = ?", product.getId());
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentDeltasOnFirstMovement() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        runConcurrently(threads, perThread, i -> stockService.adjustStock(product, WAREHOUSE,
+                i % 5 == 0 ? MovementType.OUT : MovementType.IN, BigDecimal.ONE, "teste", "test"));
+
+        // per thread: 40 IN, 10 OUT
+        BigDecimal expected = BigDecimal.valueOf(threads * 30L);
+        assertEquals(0, expected.compareTo(quantity()));
+        assertEquals(threads * perThread, stockRepository.findQuantity(product.getId(), WAREHOUSE, TENANT)
+                .orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldReportQuantitiesOfEachAdjustment() {
+        stockService.adjustStock(product, WAREHOUSE, MovementType.IN, BigDecimal.TEN, "entrada", "test");
+        StockService.Adjustment out = stockService.adjustStock(product, WAREHOUSE, MovementType.OUT,
+                BigDecimal.valueOf(3), "saída", "test");
+        StockService.Adjustment adjust = stockService.adjustStock(product, WAREHOUSE, MovementType.ADJUST,
+                BigDecimal.valueOf(4), "inventário", "test");
+
+        assertEquals(0, BigDecimal.TEN.compareTo(out.previousQuantity()));
+        assertEquals(0, BigDecimal.valueOf(7).compareTo(out.newQuantity()));
+        assertEquals(0, BigDecimal.valueOf(7).compareTo(adjust.previousQuantity()));
+        assertEquals(0, BigDecimal.valueOf(4).compareTo(quantity()));
+        assertEquals(TENANT, adjust.movement().getTenantId());
+    }
+
+    @Test
+    void shouldKeepQuantityConsistentWhenAbsoluteAdjustmentsRace() throws Exception {
+        stockService.adjustStock(product, WAREHOUSE, MovementType.ADJUST, BigDecimal.ZERO, "início", "test");
+
+        runConcurrently(4, 25, i -> stockService.adjustStock(product, WAREHOUSE,
+                i % 2 == 0 ? MovementType.ADJUST : MovementType.IN, BigDecimal.valueOf(i % 2 == 0 ? 100 : 1),
+                "teste", "test"));
+
+        BigDecimal finalQuantity = quantity();
+        assertTrue(finalQuantity.compareTo(BigDecimal.valueOf(100)) >= 0
+                && finalQuantity.compareTo(BigDecimal.valueOf(150)) <= 0, "quantity " + finalQuantity);
+    }
+
+    @Test
+    void shouldApplyBatchInRequestOrder() {
+        stockService.adjustStock(product, WAREHOUSE, MovementType.IN, BigDecimal.TEN, "entrada", "test");
+
+        List<StockService.Adjustment> adjustments = stockService.adjustStocks(List.of(
+                request(WAREHOUSE, MovementType.OUT, 4),
+                request("WH-NEW", MovementType.IN, 7),
+                request(WAREHOUSE, MovementType.ADJUST, 20),
+                request(WAREHOUSE, MovementType.IN, 1)));
+
+        assertEquals(4, adjustments.size());
+        assertEquals(0, BigDecimal.TEN.compareTo(adjustments.get(0).previousQuantity()));
+        assertEquals(0, BigDecimal.valueOf(6).compareTo(adjustments.get(0).newQuantity()));
+        assertEquals(0, BigDecimal.valueOf(7).compareTo(adjustments.get(1).newQuantity()));
+        assertEquals(0, BigDecimal.valueOf(6).compareTo(adjustments.get(2).previousQuantity()));
+        assertEquals(0, BigDecimal.valueOf(21).compareTo(adjustments.get(3).newQuantity()));
+        assertEquals(0, BigDecimal.valueOf(21).compareTo(quantity()));
+        assertTrue(adjustments.stream().allMatch(a -> a.movement().getId() != null));
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_movements WHERE product_id = ?", Integer.class, product.getId()));
+    }
+
+    private StockService.AdjustmentRequest request(String warehouse, MovementType type, int quantity) {
+        return new StockService.AdjustmentRequest(product, warehouse, type, BigDecimal.valueOf(quantity), "lote",
+                "test");
+    }
+
+    private BigDecimal quantity() {
+        return stockRepository.findQuantity(product.getId(), WAREHOUSE, TENANT).orElseThrow().getQuantity();
+    }
+
+    private void runConcurrently(int threads, int perThread, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    task.accept(i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+}
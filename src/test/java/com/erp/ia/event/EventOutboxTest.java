@@ -0,0 +1,257 @@
+package com.erp.ia.event;
+
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.event.model.StockLevelChanged;
+import com.erp.ia.prompt.PromptRegistryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Not @Transactional: delivery depends on the publishing transaction
+ * committing or rolling back.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class EventOutboxTest {
+
+    @Autowired
+    private EventBus eventBus;
+    @Autowired
+    private EventOutbox outbox;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PromptRegistryService promptRegistryService;
+
+    private int pending(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event_outbox WHERE event_id = ?", Integer.class,
+                eventId);
+    }
+
+    @Test
+    void shouldDeliverAfterCommitWithSameEvent() throws InterruptedException {
+        String warehouse = "WH-OUTBOX-" + System.nanoTime();
+        List<StockLevelChanged> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        eventBus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            if (event instanceof StockLevelChanged changed && warehouse.equals(changed.getWarehouse())) {
+                received.add(changed);
+                latch.countDown();
+            }
+        });
+        StockLevelChanged event = new StockLevelChanged(7L, warehouse, BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventBus.publish(event);
+            assertEquals(1, pending(event.getEventId()));
+            assertTrue(received.isEmpty(), "Nothing is delivered before commit");
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        StockLevelChanged delivered = received.get(0);
+        assertEquals(event.getEventId(), delivered.getEventId());
+        assertEquals(event.getOccurredAt(), delivered.getOccurredAt());
+        assertEquals(0, BigDecimal.ONE.compareTo(delivered.getNewQuantity()));
+        assertEquals(7L, delivered.getProductId());
+    }
+
+    @Test
+    void shouldDropEventsOfRolledBackTransaction() {
+        String warehouse = "WH-OUTBOX-RB-" + System.nanoTime();
+        List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            if (event instanceof StockLevelChanged changed && warehouse.equals(changed.getWarehouse())) {
+                received.add(changed);
+            }
+        });
+        StockLevelChanged event = new StockLevelChanged(8L, warehouse, BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventBus.publish(event);
+            status.setRollbackOnly();
+        });
+        outbox.relayPending();
+
+        assertEquals(0, pending(event.getEventId()));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void shouldDeliverDirectlyOutsideTransaction() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        String warehouse = "WH-OUTBOX-DIRECT-" + System.nanoTime();
+        eventBus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            if (event instanceof StockLevelChanged changed && warehouse.equals(changed.getWarehouse())) {
+                latch.countDown();
+            }
+        });
+        StockLevelChanged event = new StockLevelChanged(9L, warehouse, BigDecimal.ONE, BigDecimal.TEN,
+                "receipt", "default");
+
+        eventBus.publish(event);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, pending(event.getEventId()));
+    }
+
+    @Test
+    void shouldMovePoisonEventToDeadLetterAndGoOn() throws InterruptedException {
+        StockLevelChanged poison = new StockLevelChanged(10L, "WH-POISON", BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+        StockLevelChanged next = new StockLevelChanged(11L, "WH-POISON", BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        EventBus failing = mock(EventBus.class);
+        doAnswer(inv -> {
+            DomainEvent event = inv.getArgument(0);
+            if (event.getEventId().equals(poison.getEventId())) {
+                throw new IllegalStateException("bus down");
+            }
+            delivered.add(event.getEventId());
+            return null;
+        }).when(failing).publish(any());
+        EventOutbox poisoned = new EventOutbox(jdbcTemplate, objectMapper, transactionManager, failing,
+                new SimpleMeterRegistry(), 16, Duration.ofSeconds(1), 2);
+
+        outbox.shutdown(); // keep the application relay off these rows
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                poisoned.append(poison);
+                poisoned.append(next);
+            });
+
+            poisoned.relayPending();
+            assertEquals(1, pending(poison.getEventId()), "First failure only counts an attempt");
+            assertFalse(delivered.contains(next.getEventId()), "Later events wait behind a failing one");
+
+            poisoned.relayPending();
+            assertEquals(0, pending(poison.getEventId()));
+            assertEquals(0, pending(next.getEventId()));
+            assertTrue(delivered.contains(next.getEventId()));
+            assertEquals(2, jdbcTemplate.queryForObject(
+                    "SELECT attempts FROM event_outbox_dead WHERE event_id = ?", Integer.class, poison.getEventId()));
+        } finally {
+            outbox.start();
+        }
+    }
+
+    @Test
+    void shouldKeepRowWhileDeliveryLaneIsFull() throws InterruptedException {
+        InMemoryEventBus lane = new InMemoryEventBus(new SimpleMeterRegistry(), 1, 1,
+                InMemoryEventBus.OverflowPolicy.DROP, Duration.ZERO, 1, Duration.ofMillis(1), 10);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        lane.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(event.getEventId());
+        });
+        EventOutbox relay = new EventOutbox(jdbcTemplate, objectMapper, transactionManager, lane,
+                new SimpleMeterRegistry(), 16, Duration.ofSeconds(1), 5);
+        StockLevelChanged first = new StockLevelChanged(12L, "WH-FULL", BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+        StockLevelChanged queued = new StockLevelChanged(13L, "WH-FULL", BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+        StockLevelChanged overflow = new StockLevelChanged(14L, "WH-FULL", BigDecimal.TEN, BigDecimal.ONE,
+                "sale", "default");
+
+        outbox.shutdown(); // keep the application relay off these rows
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.executeWithoutResult(status -> relay.append(first));
+            relay.relayPending();
+            assertTrue(entered.await(5, TimeUnit.SECONDS)); // the worker holds first, the lane is empty
+
+            tx.executeWithoutResult(status -> {
+                relay.append(queued);
+                relay.append(overflow);
+            });
+            relay.relayPending();
+            assertEquals(0, pending(queued.getEventId()));
+            assertEquals(1, pending(overflow.getEventId()), "A rejected event stays in the outbox");
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT attempts FROM event_outbox WHERE event_id = ?", Integer.class, overflow.getEventId()));
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pending(overflow.getEventId()) > 0 && System.currentTimeMillis() < deadline) {
+                relay.relayPending(); // rejected again until the worker frees the lane
+                Thread.sleep(20);
+            }
+            while (delivered.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(List.of(first.getEventId(), queued.getEventId(), overflow.getEventId()), delivered);
+        } finally {
+            release.countDown();
+            lane.shutdown();
+            outbox.start();
+        }
+    }
+
+    @Test
+    void shouldRecordPromptActivationInTheActivatingTransaction() throws InterruptedException {
+        String name = "outbox-prompt-" + System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(1);
+        eventBus.subscribe("PROMPT_ACTIVATED", event -> {
+            if (event instanceof PromptActivated activated && name.equals(activated.getPromptName())) {
+                latch.countDown();
+            }
+        });
+        String pendingActivations = "SELECT COUNT(*) FROM event_outbox WHERE event_type = 'PROMPT_ACTIVATED' "
+                + "AND payload LIKE ?";
+
+        Integer inTransaction = new TransactionTemplate(transactionManager).execute(status -> {
+            promptRegistryService.createVersion(name, "v1 {{evidence}}", null, "first", "default");
+            return jdbcTemplate.queryForObject(pendingActivations, Integer.class, "%" + name + "%");
+        });
+
+        assertEquals(1, inTransaction, "Event is appended before commit, not from afterCommit");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, promptRegistryService.getActivePrompt(name, "default").orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldNotAnnouncePromptActivationThatRolledBack() {
+        String name = "outbox-prompt-" + System.nanoTime();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            promptRegistryService.createVersion(name, "v1 {{evidence}}", null, "first", "default");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event_outbox WHERE payload LIKE ?",
+                Integer.class, "%" + name + "%"));
+        assertTrue(promptRegistryService.getActivePrompt(name, "default").isEmpty());
+    }
+}
@@ -0,0 +1,190 @@
+package com.erp.ia.event;
+
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.event.model.StockLevelChanged;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileEventBusTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<FileEventBus> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(FileEventBus::shutdown);
+    }
+
+    @Test
+    void shouldDeliverAppendedEventsInOrder() throws Exception {
+        FileEventBus bus = open(DataSize.ofMegabytes(1));
+        List<BigDecimal> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(50);
+        bus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            seen.add(((StockLevelChanged) event).getNewQuantity());
+            latch.countDown();
+        });
+
+        for (int i = 0; i < 50; i++) {
+            bus.publish(change(i));
+            bus.publish(new PromptActivated("inventory-agent", i, "default"));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(BigDecimal.valueOf(i), seen.get(i));
+        }
+    }
+
+    @Test
+    void shouldReplayAcrossSegmentsAfterRestart() throws Exception {
+        FileEventBus bus = open(DataSize.ofKilobytes(4));
+        StockLevelChanged first = change(0);
+        bus.publish(first);
+        Instant middle = null;
+        for (int i = 1; i < 100; i++) {
+            if (i == 60) {
+                Thread.sleep(5);
+                middle = Instant.now();
+            }
+            bus.publish(change(i));
+        }
+        bus.shutdown();
+        opened.remove(bus);
+
+        FileEventBus reopened = open(DataSize.ofKilobytes(4));
+        assertEquals(100, reopened.endOffset());
+        assertTrue(segmentCount() > 1);
+
+        List<DomainEvent> all = new ArrayList<>();
+        assertEquals(100, reopened.replay("STOCK_LEVEL_CHANGED", FileEventBus.Position.earliest(), all::add));
+        assertEquals(first.getEventId(), all.get(0).getEventId());
+        assertEquals(first.getOccurredAt(), all.get(0).getOccurredAt());
+
+        List<DomainEvent> fromOffset = new ArrayList<>();
+        reopened.replay("STOCK_LEVEL_CHANGED", FileEventBus.Position.offset(90), fromOffset::add);
+        assertEquals(10, fromOffset.size());
+        assertEquals(BigDecimal.valueOf(90), ((StockLevelChanged) fromOffset.get(0)).getNewQuantity());
+
+        List<DomainEvent> fromTime = new ArrayList<>();
+        reopened.replay("STOCK_LEVEL_CHANGED", FileEventBus.Position.time(middle), fromTime::add);
+        assertEquals(BigDecimal.valueOf(60), ((StockLevelChanged) fromTime.get(0)).getNewQuantity());
+    }
+
+    @Test
+    void shouldResumeDurableSubscriptionFromCommittedOffset() throws Exception {
+        FileEventBus bus = open(DataSize.ofMegabytes(1));
+        CountDownLatch firstRun = new CountDownLatch(3);
+        bus.subscribeDurable("projection", "STOCK_LEVEL_CHANGED", FileEventBus.Position.earliest(),
+                BatchEventSubscriber.Options.drain(10), events -> events.forEach(e -> firstRun.countDown()));
+        for (int i = 0; i < 3; i++) {
+            bus.publish(change(i));
+        }
+        assertTrue(firstRun.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100); // offset is committed after the batch returns
+        bus.shutdown();
+        opened.remove(bus);
+
+        FileEventBus reopened = open(DataSize.ofMegabytes(1));
+        reopened.publish(change(3));
+        List<DomainEvent> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch secondRun = new CountDownLatch(1);
+        reopened.subscribeDurable("projection", "STOCK_LEVEL_CHANGED", FileEventBus.Position.earliest(),
+                BatchEventSubscriber.Options.drain(10), events -> {
+                    seen.addAll(events);
+                    events.forEach(e -> secondRun.countDown());
+                });
+
+        assertTrue(secondRun.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, seen.size());
+        assertEquals(BigDecimal.valueOf(3), ((StockLevelChanged) seen.get(0)).getNewQuantity());
+    }
+
+    @Test
+    void shouldDropTornRecordOnRecovery() throws Exception {
+        FileEventBus bus = open(DataSize.ofMegabytes(1));
+        bus.publish(change(0));
+        bus.publish(change(1));
+        bus.shutdown();
+        opened.remove(bus);
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int firstLength = file.readInt();
+            file.seek(8L + firstLength + 8 + 20); // inside the second record's payload
+            file.write(0x7f);
+        }
+
+        FileEventBus reopened = open(DataSize.ofMegabytes(1));
+        assertEquals(1, reopened.endOffset());
+        assertEquals(1, reopened.append(change(2)));
+    }
+
+    @Test
+    void shouldRecordSkippedBatchAsDeadLetterAcrossRestart() throws Exception {
+        FileEventBus bus = open(DataSize.ofMegabytes(1));
+        CountDownLatch attempted = new CountDownLatch(1);
+        bus.subscribeDurable("fragile", "STOCK_LEVEL_CHANGED", FileEventBus.Position.earliest(),
+                BatchEventSubscriber.Options.drain(10), events -> {
+                    attempted.countDown();
+                    throw new IllegalStateException("projection\tbroken");
+                });
+        bus.publish(change(0));
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        bus.shutdown();
+        opened.remove(bus);
+
+        List<FileEventBus.DeadLetter> deadLetters = open(DataSize.ofMegabytes(1)).deadLetters();
+        assertEquals(1, deadLetters.size());
+        FileEventBus.DeadLetter deadLetter = deadLetters.get(0);
+        assertEquals(0, deadLetter.fromOffset());
+        assertEquals(0, deadLetter.toOffset());
+        assertEquals(1, deadLetter.attempts());
+        assertEquals("projection broken", deadLetter.error());
+        assertEquals(1, segmentCount());
+    }
+
+    private FileEventBus open(DataSize segmentSize) throws IOException {
+        FileEventBus bus = new FileEventBus(JsonMapper.builder().findAndAddModules().build(),
+                new SimpleMeterRegistry(), dir, segmentSize, 100, false, 1, Duration.ofMillis(1));
+        opened.add(bus);
+        return bus;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static StockLevelChanged change(int quantity) {
+        return new StockLevelChanged(1L, "WH-01", BigDecimal.ZERO, BigDecimal.valueOf(quantity), "sale", "default");
+    }
+}
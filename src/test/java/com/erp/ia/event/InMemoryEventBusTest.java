@@ -1,11 +1,18 @@
 package com.erp.ia.event;
 
 import com.erp.ia.event.model.StockLevelChanged;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,7 +21,7 @@ class InMemoryEventBusTest {
 
     @Test
     void shouldPublishAndReceiveEvent() throws InterruptedException {
-        InMemoryEventBus bus = new InMemoryEventBus();
+        InMemoryEventBus bus = bus(8, 1024, InMemoryEventBus.OverflowPolicy.BLOCK, 3);
         CountDownLatch latch = new CountDownLatch(1);
         AtomicReference<DomainEvent> received = new AtomicReference<>();
 
@@ -24,7 +31,7 @@ class InMemoryEventBusTest {
         });
 
         StockLevelChanged event = new StockLevelChanged(
-                1L, "WH-01", BigDecimal.TEN, BigDecimal.valueOf(5), "sale");
+                1L, "WH-01", BigDecimal.TEN, BigDecimal.valueOf(5), "sale", "default");
         bus.publish(event);
 
         assertTrue(latch.await(2, TimeUnit.SECONDS));
@@ -34,13 +41,153 @@ class InMemoryEventBusTest {
 
     @Test
     void shouldNotDeliverToUnsubscribedType() throws InterruptedException {
-        InMemoryEventBus bus = new InMemoryEventBus();
+        InMemoryEventBus bus = bus(8, 1024, InMemoryEventBus.OverflowPolicy.BLOCK, 3);
         CountDownLatch latch = new CountDownLatch(1);
 
         bus.subscribe("OTHER_TYPE", event -> latch.countDown());
 
-        bus.publish(new StockLevelChanged(1L, "WH", BigDecimal.ONE, BigDecimal.ZERO, "test"));
+        bus.publish(new StockLevelChanged(1L, "WH", BigDecimal.ONE, BigDecimal.ZERO, "test", "default"));
 
         assertFalse(latch.await(500, TimeUnit.MILLISECONDS));
     }
+
+    @Test
+    void shouldDeliverSameKeyInPublishOrder() throws InterruptedException {
+        InMemoryEventBus bus = bus(4, 1024, InMemoryEventBus.OverflowPolicy.BLOCK, 1);
+        List<BigDecimal> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(200);
+        bus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            StockLevelChanged changed = (StockLevelChanged) event;
+            if (changed.getProductId() == 1L) {
+                if (changed.getNewQuantity().intValue() % 7 == 0) {
+                    sleep(2);
+                }
+                seen.add(changed.getNewQuantity());
+            }
+            latch.countDown();
+        });
+
+        List<BigDecimal> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(BigDecimal.valueOf(i));
+            bus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ZERO, BigDecimal.valueOf(i), "sale", "default"));
+            bus.publish(new StockLevelChanged(2L, "WH-01", BigDecimal.ZERO, BigDecimal.valueOf(i), "sale", "default"));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void shouldRejectPublishWhenLaneIsFullUnderDropPolicy() throws InterruptedException {
+        InMemoryEventBus bus = bus(1, 2, InMemoryEventBus.OverflowPolicy.DROP, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe("STOCK_LEVEL_CHANGED", event -> await(release));
+
+        int rejected = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                bus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ZERO, BigDecimal.valueOf(i), "sale",
+                        "default"));
+            } catch (RejectedExecutionException e) {
+                rejected++;
+            }
+        }
+        release.countDown();
+
+        // one taken by the blocked worker, two queued, the rest rejected
+        assertTrue(rejected >= 7);
+        assertTrue(bus.deadLetters().isEmpty(), "Overflow is the publisher's to retry, not a dead letter");
+    }
+
+    @Test
+    void shouldRetryThenDeadLetterFailingSubscriberInOrder() throws InterruptedException {
+        InMemoryEventBus bus = bus(1, 16, InMemoryEventBus.OverflowPolicy.BLOCK, 3);
+        AtomicInteger calls = new AtomicInteger();
+        bus.subscribe("STOCK_LEVEL_CHANGED", event -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        });
+
+        bus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ZERO, BigDecimal.ONE, "sale", "default"));
+        bus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ONE, BigDecimal.TEN, "sale", "default"));
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (bus.deadLetters().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        List<InMemoryEventBus.DeadLetter> dead = bus.deadLetters();
+        assertEquals(2, dead.size());
+        assertEquals(3, dead.get(0).attempts());
+        assertEquals("boom", dead.get(0).error());
+        assertEquals(BigDecimal.ONE, ((StockLevelChanged) dead.get(0).event()).getNewQuantity());
+        assertEquals(BigDecimal.TEN, ((StockLevelChanged) dead.get(1).event()).getNewQuantity());
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    void shouldDeliverBurstAsCoalescedBatch() throws InterruptedException {
+        InMemoryEventBus bus = bus(1, 1024, InMemoryEventBus.OverflowPolicy.BLOCK, 1);
+        List<List<DomainEvent>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        bus.subscribeBatch("STOCK_LEVEL_CHANGED",
+                new BatchEventSubscriber.Options(100, Duration.ofMillis(300), true), events -> {
+                    batches.add(events);
+                    latch.countDown();
+                });
+
+        StockLevelChanged last = null;
+        for (int i = 0; i < 10; i++) {
+            bus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.valueOf(i), BigDecimal.valueOf(i + 1),
+                    "sale", "default"));
+            last = new StockLevelChanged(2L, "WH-01", BigDecimal.valueOf(i), BigDecimal.valueOf(i + 1),
+                    "sale", "default");
+            bus.publish(last);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        List<DomainEvent> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        StockLevelChanged first = (StockLevelChanged) batch.get(0);
+        assertEquals(1L, first.getProductId());
+        assertEquals(BigDecimal.ZERO, first.getPreviousQuantity());
+        assertEquals(BigDecimal.TEN, first.getNewQuantity());
+        assertEquals(last.getEventId(), batch.get(1).getEventId());
+    }
+
+    @Test
+    void shouldNotCoalesceAcrossKeysOrIncompatibleEvents() {
+        StockLevelChanged a1 = new StockLevelChanged(1L, "WH-01", BigDecimal.ZERO, BigDecimal.ONE, "sale", "default");
+        StockLevelChanged b = new StockLevelChanged(1L, "WH-02", BigDecimal.ZERO, BigDecimal.ONE, "sale", "default");
+        StockLevelChanged a2 = new StockLevelChanged(1L, "WH-01", BigDecimal.ONE, BigDecimal.TEN, "sale", "default");
+
+        List<DomainEvent> out = InMemoryEventBus.coalesce(List.of(a1, b, a2));
+
+        assertEquals(2, out.size());
+        assertEquals(BigDecimal.TEN, ((StockLevelChanged) out.get(0)).getNewQuantity());
+        assertSame(b, out.get(1));
+    }
+
+    private InMemoryEventBus bus(int partitions, int capacity, InMemoryEventBus.OverflowPolicy policy,
+            int maxAttempts) {
+        return new InMemoryEventBus(new SimpleMeterRegistry(), partitions, capacity, policy, Duration.ofSeconds(1),
+                maxAttempts, Duration.ofMillis(1), 100);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package com.erp.ia.execution;
+
+import com.erp.ia.agent.model.ActionPlan;
+import com.erp.ia.agent.model.ActionType;
+import com.erp.ia.agent.model.PlannedAction;
+import com.erp.ia.agent.model.RiskLevel;
+import com.erp.ia.audit.DecisionLogService;
+import com.erp.ia.audit.model.DecisionLog;
+import com.erp.ia.execution.model.ExecutedAction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActionExecutorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DecisionLogService decisionLogService;
+    private IdempotencyStore idempotencyStore;
+    private PlatformTransactionManager transactionManager;
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        decisionLogService = mock(DecisionLogService.class);
+        idempotencyStore = mock(IdempotencyStore.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(idempotencyStore.findExisting(any())).thenReturn(new HashMap<>());
+        when(idempotencyStore.claim(anyList())).thenAnswer(inv -> {
+            List<IdempotencyStore.Claim> claims = inv.getArgument(0);
+            Set<String> keys = new HashSet<>();
+            claims.forEach(c -> keys.add(c.idempotencyKey()));
+            return keys;
+        });
+    }
+
+    @Test
+    void shouldRunIndependentPartitionsInParallelAndKeepPlanOrder() throws Exception {
+        List<PlannedAction> actions = List.of(
+                adjust(1L), adjust(2L), adjust(3L), adjust(4L));
+        ActionExecutor executor = executor(4, new SlowHandler(300));
+        approved("audit-1", actions);
+
+        long start = System.nanoTime();
+        List<ExecutionResult> results = executor.execute("audit-1", "admin");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(4, results.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("product " + (i + 1), results.get(i).message());
+        }
+        assertTrue(elapsedMs < 900, "lanes should overlap, took " + elapsedMs);
+        assertEquals(4, threads.size());
+        verify(decisionLogService).updateStatus("audit-1", DecisionLog.DecisionStatus.EXECUTED);
+    }
+
+    @Test
+    void shouldKeepConflictingActionsInOneLane() {
+        ActionExecutor executor = executor(4, new SlowHandler(0));
+        List<PlannedAction> actions = List.of(adjust(1L), adjust(2L), adjust(1L), adjust(3L), adjust(1L));
+
+        List<List<Integer>> lanes = executor.partition(actions, List.of(0, 1, 2, 3, 4));
+
+        assertEquals(3, lanes.size());
+        assertEquals(List.of(0, 2, 4), lanes.get(0));
+    }
+
+    @Test
+    void shouldFailOnlyTheLaneThatThrowsAndRetryIt() throws Exception {
+        Map<String, ExecutedAction> completed = new ConcurrentHashMap<>();
+        doAnswer(inv -> {
+            List<ExecutedAction> outcomes = inv.getArgument(0);
+            outcomes.forEach(o -> completed.put(o.getIdempotencyKey(), o));
+            return null;
+        }).when(idempotencyStore).complete(anyList());
+        when(idempotencyStore.findExisting(any())).thenAnswer(inv -> {
+            Map<String, ExecutedAction> found = new HashMap<>();
+            for (String key : inv.<Collection<String>>getArgument(0)) {
+                if (completed.containsKey(key)) {
+                    found.put(key, completed.get(key));
+                }
+            }
+            return found;
+        });
+        AtomicBoolean deadlock = new AtomicBoolean(true);
+        List<Object> handled = new CopyOnWriteArrayList<>();
+        ActionExecutor executor = executor(4, new SlowHandler(0) {
+            @Override
+            public List<ExecutionResult> handleBatch(List<PlannedAction> batch, String auditId, String by) {
+                Object productId = batch.get(0).getParams().get("productId");
+                if ("2".equals(String.valueOf(productId)) && deadlock.getAndSet(false)) {
+                    throw new IllegalStateException("deadlock");
+                }
+                handled.add(productId);
+                return super.handleBatch(batch, auditId, by);
+            }
+        });
+        approved("audit-2", List.of(adjust(1L), adjust(2L)));
+
+        List<ExecutionResult> results = executor.execute("audit-2", "admin");
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).message().contains("deadlock"));
+        verify(decisionLogService, never()).updateStatus(anyString(), any());
+
+        List<ExecutionResult> retried = executor.execute("audit-2", "admin");
+
+        assertEquals("Already executed (idempotent)", retried.get(0).message());
+        assertEquals("product 2", retried.get(1).message());
+        assertEquals(2, handled.size());
+        verify(decisionLogService).updateStatus("audit-2", DecisionLog.DecisionStatus.EXECUTED);
+    }
+
+    private ActionExecutor executor(int lanes, ActionHandler handler) {
+        return new ActionExecutor(idempotencyStore, decisionLogService, objectMapper, List.of(handler),
+                transactionManager, lanes);
+    }
+
+    private void approved(String auditId, List<PlannedAction> actions) throws Exception {
+        DecisionLog decision = new DecisionLog();
+        decision.setStatus(DecisionLog.DecisionStatus.APPROVED);
+        decision.setActionPlan(objectMapper.writeValueAsString(new ActionPlan("plano", actions)));
+        when(decisionLogService.findById(auditId)).thenReturn(Optional.of(decision));
+    }
+
+    private PlannedAction adjust(Long productId) {
+        return new PlannedAction(ActionType.ADJUST_STOCK, Map.of("productId", productId), RiskLevel.LOW, false);
+    }
+
+    /** Stock-like handler keyed by product, sleeping per batch. */
+    private class SlowHandler implements ActionHandler {
+
+        private final long sleepMs;
+
+        SlowHandler(long sleepMs) {
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public ActionType getActionType() {
+            return ActionType.ADJUST_STOCK;
+        }
+
+        @Override
+        public String conflictKey(PlannedAction action) {
+            return "stock:" + action.getParams().get("productId");
+        }
+
+        @Override
+        public ExecutionResult handle(PlannedAction action, String auditId, String executedBy) {
+            return handleBatch(List.of(action), auditId, executedBy).get(0);
+        }
+
+        @Override
+        public List<ExecutionResult> handleBatch(List<PlannedAction> batch, String auditId, String executedBy) {
+            threads.add(Thread.currentThread().toString());
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<ExecutionResult> results = new ArrayList<>();
+            for (PlannedAction action : batch) {
+                results.add(ExecutionResult.success(getActionType().name(),
+                        "product " + action.getParams().get("productId"), null));
+            }
+            return results;
+        }
+    }
+}
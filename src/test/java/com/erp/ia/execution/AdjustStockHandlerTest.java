@@ -4,7 +4,6 @@ import com.erp.ia.agent.model.ActionType;
 import com.erp.ia.agent.model.PlannedAction;
 import com.erp.ia.agent.model.RiskLevel;
 import com.erp.ia.core.model.Product;
-import com.erp.ia.core.model.Stock;
 import com.erp.ia.core.model.StockMovement;
 import com.erp.ia.core.repository.ProductRepository;
 import com.erp.ia.core.service.StockService;
@@ -16,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -50,15 +50,10 @@ class AdjustStockHandlerTest {
         product.setId(1L);
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
-        Stock currentStock = new Stock(product, "WH-01", BigDecimal.valueOf(5));
-        when(stockService.getStock(1L, "WH-01"))
-                .thenReturn(Optional.of(currentStock))
-                .thenReturn(Optional.of(new Stock(product, "WH-01", BigDecimal.valueOf(15))));
-
         StockMovement movement = new StockMovement(product, StockMovement.MovementType.IN, BigDecimal.TEN, "Reposição");
         movement.setId(10L);
         when(stockService.adjustStock(any(), anyString(), any(), any(), anyString(), anyString()))
-                .thenReturn(movement);
+                .thenReturn(new StockService.Adjustment(movement, BigDecimal.valueOf(5), BigDecimal.valueOf(15)));
 
         PlannedAction action = new PlannedAction(
                 ActionType.ADJUST_STOCK,
@@ -83,6 +78,42 @@ class AdjustStockHandlerTest {
         StockLevelChanged event = eventCaptor.getValue();
         assertEquals(1L, event.getProductId());
         assertEquals("WH-01", event.getWarehouse());
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(event.getPreviousQuantity()));
+        assertEquals(0, BigDecimal.valueOf(15).compareTo(event.getNewQuantity()));
+    }
+
+    @Test
+    void handleBatch_loadsProductsOnceAndAdjustsInOneCall() {
+        Product a = new Product("SKU-A", "A", "un");
+        a.setId(1L);
+        Product b = new Product("SKU-B", "B", "un");
+        b.setId(2L);
+        when(productRepository.findAllById(any())).thenReturn(List.of(a, b));
+        when(stockService.adjustStocks(anyList())).thenAnswer(inv -> {
+            List<StockService.AdjustmentRequest> requests = inv.getArgument(0);
+            return requests.stream()
+                    .map(r -> {
+                        StockMovement movement = new StockMovement(r.product(), r.type(), r.quantity(), r.reason());
+                        movement.setId(r.product().getId() + 100);
+                        return new StockService.Adjustment(movement, BigDecimal.ZERO, r.quantity());
+                    })
+                    .toList();
+        });
+
+        List<ExecutionResult> results = handler.handleBatch(List.of(
+                adjust(1L, 5),
+                new PlannedAction(ActionType.ADJUST_STOCK, Map.of("productId", 2L), RiskLevel.LOW, false),
+                adjust(99L, 1),
+                adjust(2L, 3)), "audit-600", "admin");
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).message().contains("quantity"));
+        assertTrue(results.get(2).message().contains("99"));
+        assertTrue(results.get(3).isSuccess());
+        verify(productRepository, never()).findById(any());
+        verify(stockService).adjustStocks(argThat(requests -> requests.size() == 2));
+        verify(eventBus, times(2)).publish(any(StockLevelChanged.class));
     }
 
     @Test
@@ -131,6 +162,12 @@ class AdjustStockHandlerTest {
         verify(eventBus, never()).publish(any());
     }
 
+    private PlannedAction adjust(Long productId, int quantity) {
+        return new PlannedAction(ActionType.ADJUST_STOCK,
+                Map.of("productId", productId, "warehouse", "WH-01", "quantity", quantity, "movementType", "IN"),
+                RiskLevel.MEDIUM, false);
+    }
+
     @Test
     void handle_failsOnInvalidMovementType() {
         PlannedAction action = new PlannedAction(
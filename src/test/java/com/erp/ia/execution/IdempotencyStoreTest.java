@@ -0,0 +1,119 @@
+package com.erp.ia.execution;
+
+import com.erp.ia.audit.DecisionLogService;
+import com.erp.ia.audit.model.DecisionLog;
+import com.erp.ia.execution.model.ExecutedAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not @Transactional: claims must be committed to be seen by other
+ * transactions.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyStore store;
+    @Autowired
+    private DecisionLogService decisionLogService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String auditId;
+
+    @BeforeEach
+    void setUp() {
+        DecisionLog decision = decisionLogService.logDecision("inventory-agent", "stock", "idempotency-test",
+                null, null, "{}", null, null, null, "default", "default");
+        auditId = decisionLogService.save(decision).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM executed_actions WHERE audit_id = ?", auditId);
+    }
+
+    @Test
+    void shouldClaimEachKeyOnce() {
+        String a = UUID.randomUUID().toString();
+        String b = UUID.randomUUID().toString();
+
+        Set<String> first = inTransaction(() -> store.claim(List.of(claim(a), claim(b))));
+        Set<String> second = inTransaction(() -> store.claim(List.of(claim(a))));
+
+        assertEquals(Set.of(a, b), first);
+        assertTrue(second.isEmpty());
+    }
+
+    @Test
+    void shouldExposeCompletedOutcome() {
+        String key = UUID.randomUUID().toString();
+        inTransaction(() -> {
+            store.claim(List.of(claim(key)));
+            ExecutedAction outcome = new ExecutedAction();
+            outcome.setIdempotencyKey(key);
+            outcome.setStatus("FAILED");
+            outcome.setResultJson("{}");
+            store.complete(List.of(outcome));
+            return null;
+        });
+
+        ExecutedAction stored = store.findExisting(List.of(key, "unknown")).get(key);
+
+        assertEquals("FAILED", stored.getStatus());
+        assertEquals(1, store.findExisting(List.of(key, "unknown")).size());
+    }
+
+    @Test
+    void concurrentClaimsShouldHaveOneWinner() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Set<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return inTransaction(() -> store.claim(List.of(claim(key))));
+            }));
+        }
+        start.countDown();
+
+        int winners = 0;
+        for (Future<Set<String>> future : futures) {
+            winners += future.get().size();
+        }
+        pool.shutdown();
+        assertEquals(1, winners);
+    }
+
+    private IdempotencyStore.Claim claim(String key) {
+        return new IdempotencyStore.Claim(key, auditId, "ADJUST_STOCK", "test");
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+}
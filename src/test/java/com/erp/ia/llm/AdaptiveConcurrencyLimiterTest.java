@@ -0,0 +1,84 @@
+package com.erp.ia.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void shouldShedRequestsOverTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1));
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+
+        first.release(false);
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void shouldGrowLimitWhileFastAndBusy() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1));
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        first.release(false);
+        second.release(false);
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void shouldCutLimitOnSlowOrFailedCalls() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, Duration.ZERO);
+
+        limiter.tryAcquire().release(false); // any latency exceeds a zero threshold
+        assertEquals(9, limiter.getLimit());
+
+        limiter.tryAcquire().release(true);
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void shouldCutOnlyOnceForCallsInFlightTogether() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, Duration.ofSeconds(1));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit third = limiter.tryAcquire();
+
+        first.release(true);
+        second.release(true);
+        third.release(true);
+        assertEquals(9, limiter.getLimit());
+
+        limiter.tryAcquire().release(true); // started after the cut: a new window
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void shouldNeverDropBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, Duration.ofSeconds(1));
+
+        limiter.tryAcquire().release(true);
+
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void shouldNotAdjustLimitWhenPermitAbandoned() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, Duration.ZERO);
+
+        limiter.tryAcquire().abandon();
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,179 @@
+package com.erp.ia.llm;
+
+import com.erp.ia.llm.LlmPort.LlmRequest;
+import com.erp.ia.llm.LlmPort.LlmResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainLlmProviderTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    @Test
+    void shouldHedgeToSecondaryWhenPrimaryIsSlow() {
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 3_000, 200, new AtomicInteger())),
+                member("secondary", stub("secondary", 0, 200, new AtomicInteger())));
+
+        long start = System.nanoTime();
+        LlmResponse response = chain.complete(request());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(response.error());
+        assertEquals("secondary", response.content());
+        assertTrue(elapsedMs < 2_000, "Hedged call should not wait for the slow primary, took " + elapsedMs);
+    }
+
+    @Test
+    void shouldNotRetryOrTripBreakerForCancelledHedgeLoser() throws Exception {
+        AtomicInteger primaryHits = new AtomicInteger();
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 1_500, 200, primaryHits), 2),
+                member("secondary", stub("secondary", 0, 200, new AtomicInteger())));
+
+        assertEquals("secondary", chain.complete(request()).content());
+        Thread.sleep(1_000); // past the first backoff a retrying loser would have used
+        assertEquals(1, primaryHits.get());
+
+        // threshold 1: a counted failure would have opened the primary circuit
+        assertEquals("secondary", chain.complete(request()).content());
+        assertEquals(2, primaryHits.get());
+    }
+
+    @Test
+    void shouldFallBackWhenPrimaryFails() {
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 0, 500, new AtomicInteger())),
+                member("secondary", stub("secondary", 0, 200, new AtomicInteger())));
+
+        LlmResponse response = chain.complete(request());
+
+        assertFalse(response.error());
+        assertEquals("secondary", response.content());
+    }
+
+    @Test
+    void shouldSkipPrimaryWhileItsCircuitIsOpen() {
+        AtomicInteger primaryHits = new AtomicInteger();
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 0, 500, primaryHits)),
+                member("secondary", stub("secondary", 0, 200, new AtomicInteger())));
+
+        chain.complete(request()); // threshold 1: opens the primary circuit
+        LlmResponse response = chain.complete(request());
+
+        assertEquals("secondary", response.content());
+        assertEquals(1, primaryHits.get());
+    }
+
+    @Test
+    void shouldStreamFromSingleWinner() {
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 3_000, 200, new AtomicInteger())),
+                member("secondary", stub("secondary", 0, 200, new AtomicInteger())));
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        LlmResponse response = chain.stream(request(), chunk -> {
+            chunks.add(chunk);
+            return true;
+        });
+
+        assertFalse(response.error());
+        assertEquals("secondary", response.content());
+        assertEquals(List.of("second", "ary"), chunks);
+    }
+
+    @Test
+    void shouldReturnLastErrorWhenAllProvidersFail() {
+        ChainLlmProvider chain = chain(
+                member("primary", stub("primary", 0, 500, new AtomicInteger())),
+                member("secondary", stub("secondary", 0, 503, new AtomicInteger())));
+
+        LlmResponse response = chain.complete(request());
+
+        assertTrue(response.error());
+    }
+
+    private ChainLlmProvider chain(ChainLlmProvider.Member... members) {
+        return new ChainLlmProvider(List.of(members), Duration.ofMillis(150), Duration.ofMillis(50));
+    }
+
+    private ChainLlmProvider.Member member(String name, String baseUrl) {
+        return member(name, baseUrl, 0);
+    }
+
+    private ChainLlmProvider.Member member(String name, String baseUrl, int maxRetries) {
+        return new ChainLlmProvider.Member(name, new CloudLlmProvider(baseUrl, "key", "test-model",
+                Duration.ofSeconds(2), Duration.ofSeconds(5), maxRetries, 1, Duration.ofSeconds(30), 8, 64,
+                Duration.ofSeconds(10), new ObjectMapper()));
+    }
+
+    /**
+     * OpenAI-compatible stub answering with its own name, as JSON or as SSE
+     * split in two chunks.
+     */
+    private String stub(String answer, long delayMs, int status, AtomicInteger hits) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/chat/completions", exchange -> {
+                hits.incrementAndGet();
+                String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String body;
+                if (status != 200) {
+                    body = "{\"error\":\"down\"}";
+                } else if (requestBody.contains("\"stream\":true")) {
+                    int half = answer.length() - 3;
+                    body = "data: {\"choices\":[{\"delta\":{\"content\":\"" + answer.substring(0, half)
+                            + "\"}}]}\n\n"
+                            + "data: {\"choices\":[{\"delta\":{\"content\":\"" + answer.substring(half)
+                            + "\"},\"finish_reason\":\"stop\"}]}\n\n"
+                            + "data: [DONE]\n\n";
+                } else {
+                    body = "{\"choices\":[{\"message\":{\"content\":\"" + answer
+                            + "\"},\"finish_reason\":\"stop\"}]}";
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes);
+                } catch (Exception e) {
+                    // client went away (cancelled hedge)
+                }
+            });
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            servers.add(server);
+            return "http://localhost:" + server.getAddress().getPort();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LlmRequest request() {
+        return new LlmRequest(null, List.of(new LlmRequest.Message("user", "hi")), 0.3, 64);
+    }
+}
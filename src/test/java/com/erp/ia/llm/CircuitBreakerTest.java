@@ -0,0 +1,85 @@
+package com.erp.ia.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(30), now::get);
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        assertFalse(breaker.onFailure());
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+
+        assertEquals(CircuitBreaker.Phase.OPEN, breaker.getPhase());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldAdmitSingleProbeWhenHalfOpen() throws Exception {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        int threads = 16;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    if (breaker.tryAcquire()) {
+                        admitted.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertEquals(1, admitted.get());
+        assertEquals(CircuitBreaker.Phase.HALF_OPEN, breaker.getPhase());
+    }
+
+    @Test
+    void shouldCloseWhenProbeSucceeds() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.Phase.CLOSED, breaker.getPhase());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldReopenWhenProbeFails() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        assertTrue(breaker.onFailure());
+
+        assertEquals(CircuitBreaker.Phase.OPEN, breaker.getPhase());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+}
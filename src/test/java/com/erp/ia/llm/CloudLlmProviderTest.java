@@ -0,0 +1,138 @@
+package com.erp.ia.llm;
+
+import com.erp.ia.agent.model.LlmAgentOutput;
+import com.erp.ia.llm.LlmPort.LlmRequest;
+import com.erp.ia.llm.LlmPort.LlmResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CloudLlmProviderTest {
+
+    private static final String SSE = """
+            data: {"choices":[{"delta":{"content":"{\\"response\\""},"finish_reason":null}]}
+
+            data: {"choices":[{"delta":{"content":": \\"ok\\"}"},"finish_reason":"stop"}]}
+
+            data: {"choices":[],"usage":{"prompt_tokens":10,"completion_tokens":4,"total_tokens":14}}
+
+            data: [DONE]
+
+            """;
+
+    private HttpServer server;
+    private CloudLlmProvider provider;
+    private final CountDownLatch unstall = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/stall/chat/completions", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write("data: {\"choices\":[{\"delta\":{\"content\":\"{\"}}]}\n\n"
+                        .getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                unstall.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/chat/completions", exchange -> {
+            byte[] body = SSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+
+        provider = new CloudLlmProvider("http://localhost:" + server.getAddress().getPort(), "key", "test-model",
+                Duration.ofSeconds(2), Duration.ofSeconds(5), 0, 3, Duration.ofSeconds(30), 8, 64,
+                Duration.ofSeconds(10), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        unstall.countDown();
+        server.stop(0);
+    }
+
+    private LlmRequest request() {
+        return new LlmRequest(null, List.of(new LlmRequest.Message("user", "hi")), 0.3, 64);
+    }
+
+    @Test
+    void shouldStreamServerSentEvents() {
+        List<String> chunks = new ArrayList<>();
+
+        LlmResponse response = provider.stream(request(), chunk -> chunks.add(chunk));
+
+        assertFalse(response.error());
+        assertEquals("{\"response\": \"ok\"}", response.content());
+        assertEquals(List.of("{\"response\"", ": \"ok\"}"), chunks);
+        assertEquals("stop", response.finishReason());
+        assertEquals(14, response.usage().totalTokens());
+    }
+
+    @Test
+    void shouldStopWhenListenerRejects() {
+        List<String> chunks = new ArrayList<>();
+
+        LlmResponse response = provider.stream(request(), chunk -> {
+            chunks.add(chunk);
+            return false;
+        });
+
+        assertEquals(1, chunks.size());
+        assertEquals("{\"response\"", response.content());
+        assertEquals(LlmResponse.FINISH_ABORTED, response.finishReason());
+    }
+
+    @Test
+    void shouldReadUsageAfterValidatorCompletes() {
+        IncrementalJsonValidator validator = new IncrementalJsonValidator(new ObjectMapper(), LlmAgentOutput.class);
+
+        LlmResponse response = provider.stream(request(), validator::accept);
+
+        assertEquals(IncrementalJsonValidator.State.COMPLETE, validator.getState());
+        assertEquals("stop", response.finishReason());
+        assertEquals(14, response.usage().totalTokens());
+    }
+
+    @Test
+    void shouldFailStreamThatStallsBetweenChunks() {
+        CloudLlmProvider stalling = new CloudLlmProvider(
+                "http://localhost:" + server.getAddress().getPort() + "/stall", "key", "test-model",
+                Duration.ofSeconds(2), Duration.ofMillis(300), 0, 1, Duration.ofSeconds(30), 8, 64,
+                Duration.ofSeconds(10), new ObjectMapper());
+        List<String> chunks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        LlmResponse response = stalling.stream(request(), chunk -> chunks.add(chunk));
+
+        assertTrue(response.error());
+        assertTrue(response.errorMessage().contains("idle"), response.errorMessage());
+        assertEquals(List.of("{"), chunks);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        assertTrue(stalling.stream(request(), chunk -> true).errorMessage().contains("circuit breaker open"),
+                "A stall counts as a failure");
+    }
+}
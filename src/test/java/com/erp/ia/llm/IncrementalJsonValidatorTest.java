@@ -0,0 +1,78 @@
+package com.erp.ia.llm;
+
+import com.erp.ia.agent.model.LlmAgentOutput;
+import com.erp.ia.llm.IncrementalJsonValidator.State;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalJsonValidatorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IncrementalJsonValidator feed(String... chunks) {
+        IncrementalJsonValidator validator = new IncrementalJsonValidator(objectMapper, LlmAgentOutput.class, 40);
+        for (String chunk : chunks) {
+            if (!validator.accept(chunk)) {
+                break;
+            }
+        }
+        return validator;
+    }
+
+    @Test
+    void shouldCompleteOnValidOutputSplitAcrossChunks() {
+        IncrementalJsonValidator validator = feed(
+                "```json\n{\"resp", "onse\": \"Estoque ok\", \"actionPlan\": {\"summary\": \"s\", ",
+                "\"actions\": [{\"type\": \"ADJUST_STOCK\", \"params\": {\"qty\": [1, 2]}, \"risk\": \"LOW\"}]}}",
+                "\n```");
+
+        assertEquals(State.COMPLETE, validator.getState());
+    }
+
+    @Test
+    void shouldStayInProgressOnPartialOutput() {
+        IncrementalJsonValidator validator = feed("{\"response\": \"Anal");
+
+        assertEquals(State.IN_PROGRESS, validator.getState());
+    }
+
+    @Test
+    void shouldRejectWrongTypeBeforeStreamEnds() {
+        IncrementalJsonValidator validator = feed("{\"response\": \"ok\", \"actionPlan\": [");
+
+        assertEquals(State.INVALID, validator.getState());
+        assertTrue(validator.getReason().contains("actionPlan"));
+    }
+
+    @Test
+    void shouldRejectMissingRequiredField() {
+        IncrementalJsonValidator validator = feed("{\"reasoning\": \"x\"}");
+
+        assertEquals(State.INVALID, validator.getState());
+        assertTrue(validator.getReason().contains("response"));
+    }
+
+    @Test
+    void shouldRejectNullRequiredNestedField() {
+        IncrementalJsonValidator validator = feed(
+                "{\"response\": \"ok\", \"actionPlan\": {\"actions\": [{\"type\": null, ");
+
+        assertEquals(State.INVALID, validator.getState());
+    }
+
+    @Test
+    void shouldRejectLongPreamble() {
+        IncrementalJsonValidator validator = feed("I am sorry, I cannot produce ", "structured output for this request.");
+
+        assertEquals(State.INVALID, validator.getState());
+    }
+
+    @Test
+    void shouldRejectMalformedJson() {
+        IncrementalJsonValidator validator = feed("{\"response\": \"ok\" \"oops\"");
+
+        assertEquals(State.INVALID, validator.getState());
+    }
+}
@@ -4,6 +4,7 @@ import com.erp.ia.agent.model.*;
 import com.erp.ia.policy.rules.ApprovalRequiredRule;
 import com.erp.ia.policy.rules.SpendingLimitRule;
 import com.erp.ia.policy.rules.EvidenceRequiredRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -21,7 +22,7 @@ class PolicyEngineTest {
         policyEngine = new PolicyEngine(List.of(
                 new ApprovalRequiredRule(),
                 new SpendingLimitRule(),
-                new EvidenceRequiredRule()));
+                new EvidenceRequiredRule()), new SimpleMeterRegistry());
     }
 
     @Test
@@ -63,4 +64,20 @@ class PolicyEngineTest {
         PolicyResult result = policyEngine.validate(plan, request);
         assertTrue(result.isPass());
     }
+
+    @Test
+    void shouldTimeEachRuleByAgentAndResult() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PolicyEngine engine = new PolicyEngine(List.of(new ApprovalRequiredRule()), registry);
+        ActionPlan plan = new ActionPlan("test", List.of(
+                new PlannedAction(ActionType.DRAFT_PURCHASE_ORDER, Map.of(), RiskLevel.LOW, false)));
+        AgentRequest request = new AgentRequest("test", Map.of(), "default", "default", null, "user");
+
+        engine.validate(plan, request, "stock");
+
+        assertEquals(1, registry.get("policy.rule.duration")
+                .tags("rule", new ApprovalRequiredRule().getName(), "agent", "stock",
+                        "tenant", "default", "result", "BLOCKED")
+                .timer().count());
+    }
 }
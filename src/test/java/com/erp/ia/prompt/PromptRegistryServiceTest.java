@@ -0,0 +1,130 @@
+package com.erp.ia.prompt;
+
+import com.erp.ia.event.EventBus;
+import com.erp.ia.event.EventSubscriber;
+import com.erp.ia.event.model.PromptActivated;
+import com.erp.ia.prompt.model.PromptTemplate;
+import com.erp.ia.prompt.model.PromptTemplate.PromptStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PromptRegistryServiceTest {
+
+    private final Map<String, EventSubscriber> subscribers = new HashMap<>();
+    private PromptRepository repository;
+    private EventBus eventBus;
+    private PromptRegistryService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PromptRepository.class);
+        eventBus = mock(EventBus.class);
+        doAnswer(inv -> subscribers.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(eventBus).subscribe(any(), any());
+        service = new PromptRegistryService(repository, eventBus, new ObjectMapper());
+    }
+
+    @Test
+    void shouldServeActivePromptsFromCacheAfterPreload() {
+        when(repository.findByStatus(PromptStatus.ACTIVE)).thenReturn(List.of(
+                prompt("inventory-agent", 1, "default"),
+                prompt("inventory-agent", 3, "default"),
+                prompt("inventory-agent", 2, "tenant-b")));
+        service.preload();
+
+        assertEquals(3, service.getActivePrompt("inventory-agent", "default").orElseThrow().getVersion());
+        assertEquals(2, service.getActivePrompt("inventory-agent", "tenant-b").orElseThrow().getVersion());
+        assertTrue(service.getActivePrompt("auditor-agent", "default").isEmpty());
+        verify(repository, never()).findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnEmptyForNullTenant() {
+        when(repository.findByStatus(PromptStatus.ACTIVE)).thenReturn(List.of(prompt("inventory-agent", 1, "default")));
+        service.preload();
+
+        assertTrue(service.getActivePrompt("inventory-agent", null).isEmpty());
+        assertDoesNotThrow(() -> service.refresh("inventory-agent", null));
+        assertTrue(service.getActivePrompt("inventory-agent", "default").isPresent());
+    }
+
+    @Test
+    void shouldQueryDatabaseBeforePreload() {
+        when(repository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
+                "inventory-agent", PromptStatus.ACTIVE, "default"))
+                .thenReturn(Optional.of(prompt("inventory-agent", 1, "default")));
+
+        assertTrue(service.getActivePrompt("inventory-agent", "default").isPresent());
+    }
+
+    @Test
+    void shouldSwapCacheAndPublishOnCreateVersion() {
+        when(repository.findByStatus(PromptStatus.ACTIVE)).thenReturn(List.of(prompt("inventory-agent", 1, "default")));
+        service.preload();
+
+        PromptTemplate v2 = prompt("inventory-agent", 2, "default");
+        when(repository.findByNameAndTenantIdOrderByVersionDesc("inventory-agent", "default"))
+                .thenReturn(List.of(prompt("inventory-agent", 1, "default")));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(repository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
+                "inventory-agent", PromptStatus.ACTIVE, "default"))
+                .thenReturn(Optional.of(v2));
+
+        service.createVersion("inventory-agent", "novo {{evidence}}", null, "v2", "default");
+
+        assertEquals(2, service.getActivePrompt("inventory-agent", "default").orElseThrow().getVersion());
+        verify(eventBus).publish(any(PromptActivated.class));
+    }
+
+    @Test
+    void shouldRefreshWhenActivationArrivesFromAnotherNode() {
+        when(repository.findByStatus(PromptStatus.ACTIVE)).thenReturn(List.of(prompt("inventory-agent", 1, "default")));
+        service.preload();
+        when(repository.findFirstByNameAndStatusAndTenantIdOrderByVersionDesc(
+                eq("inventory-agent"), eq(PromptStatus.ACTIVE), eq("default")))
+                .thenReturn(Optional.of(prompt("inventory-agent", 4, "default")));
+
+        subscribers.get("PROMPT_ACTIVATED").onEvent(new PromptActivated("inventory-agent", 4, "default"));
+
+        assertEquals(4, service.getActivePrompt("inventory-agent", "default").orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldRejectUndeclaredVariablesOnCreate() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.createVersion("inventory-agent", "Loja {{storeId}} / {{warehouse}}", null, "x",
+                        "default"));
+
+        assertTrue(e.getMessage().contains("warehouse"));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void shouldAcceptDeclaredVariablesOnCreate() {
+        when(repository.findByNameAndTenantIdOrderByVersionDesc("inventory-agent", "default")).thenReturn(List.of());
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        PromptTemplate saved = service.createVersion("inventory-agent", "Depósito {{warehouse}}: {{evidence}}",
+                "[\"warehouse\"]", "x", "default");
+
+        assertEquals(1, saved.getVersion());
+    }
+
+    private PromptTemplate prompt(String name, int version, String tenantId) {
+        PromptTemplate prompt = new PromptTemplate(name, version, "content {{evidence}}");
+        prompt.setStatus(PromptStatus.ACTIVE);
+        prompt.setTenantId(tenantId);
+        return prompt;
+    }
+}
@@ -1,10 +1,12 @@
 package com.erp.ia.prompt;
 
+import com.erp.ia.prompt.model.CompiledPrompt;
 import com.erp.ia.prompt.model.PromptTemplate;
 import com.erp.ia.prompt.model.PromptTemplate.PromptStatus;
 import org.junit.jupiter.api.Test;
 
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,4 +41,24 @@ class PromptTemplateTest {
         PromptTemplate template = new PromptTemplate("test", 1, "content");
         assertEquals(PromptStatus.ACTIVE, template.getStatus());
     }
+
+    @Test
+    void shouldCompileIntoLiteralsAndSlots() {
+        CompiledPrompt compiled = CompiledPrompt.compile(
+                "Tenant {{tenantId}}, loja {{storeId}}: {{evidence}} ({{evidence}}) {{ não é variável }}");
+
+        assertEquals(Set.of("tenantId", "storeId", "evidence"), compiled.variables());
+        assertEquals("Tenant t1, loja s1: [] ([]) {{ não é variável }}",
+                compiled.render(Map.of("tenantId", "t1", "storeId", "s1", "evidence", "[]")::get));
+    }
+
+    @Test
+    void shouldRecompileWhenContentChanges() {
+        PromptTemplate template = new PromptTemplate("test", 1, "A {{x}}");
+        assertEquals("A 1", template.render(Map.of("x", "1")));
+
+        template.setContent("B {{x}}");
+
+        assertEquals("B 1", template.render(Map.of("x", "1")));
+    }
 }
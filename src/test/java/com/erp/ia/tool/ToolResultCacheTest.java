@@ -0,0 +1,151 @@
+package com.erp.ia.tool;
+
+import com.erp.ia.event.InMemoryEventBus;
+import com.erp.ia.event.model.StockLevelChanged;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ToolResultCacheTest {
+
+    private InMemoryEventBus eventBus;
+    private MeterRegistry meterRegistry;
+    private ToolResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        AgentTool<?, ?> stockTool = mock(AgentTool.class);
+        when(stockTool.getName()).thenReturn("StockQueryTool");
+        when(stockTool.invalidatedBy()).thenReturn(Set.of("STOCK_LEVEL_CHANGED"));
+
+        meterRegistry = new SimpleMeterRegistry();
+        eventBus = new InMemoryEventBus(meterRegistry, 8, 1024, InMemoryEventBus.OverflowPolicy.BLOCK,
+                Duration.ofSeconds(5), 3, Duration.ofMillis(100), 1000);
+        cache = new ToolResultCache(new ToolRegistry(List.of(stockTool)), eventBus, meterRegistry,
+                true, Duration.ofMinutes(1), 2, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldServeRepeatedCallsFromCache() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("default", "StockQueryTool", "{}", calls::incrementAndGet);
+        Object second = cache.get("default", "StockQueryTool", "{}", calls::incrementAndGet);
+
+        assertEquals(1, second);
+        assertEquals(1, calls.get());
+        assertEquals(1.0, meterRegistry.counter("tool.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("tool.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void shouldPartitionByTenant() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("tenant-a", "StockQueryTool", "{}", calls::incrementAndGet);
+        cache.get("tenant-b", "StockQueryTool", "{}", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedPerTenant() {
+        cache.get("default", "StockQueryTool", "a", () -> "a");
+        cache.get("default", "StockQueryTool", "b", () -> "b");
+        cache.get("default", "StockQueryTool", "a", () -> "a"); // touch a
+        cache.get("default", "StockQueryTool", "c", () -> "c"); // evicts b
+
+        assertEquals("a", cache.get("default", "StockQueryTool", "a", () -> "reloaded"));
+        assertEquals("reloaded", cache.get("default", "StockQueryTool", "b", () -> "reloaded"));
+        assertTrue(meterRegistry.counter("tool.cache.evictions", "cause", "size").count() >= 1);
+    }
+
+    @Test
+    void shouldNotCacheFailures() {
+        assertThrows(IllegalStateException.class, () -> cache.get("default", "StockQueryTool", "{}", () -> {
+            throw new IllegalStateException("db down");
+        }));
+
+        assertEquals("ok", cache.get("default", "StockQueryTool", "{}", () -> "ok"));
+    }
+
+    @Test
+    void shouldNotCacheErrors() {
+        assertThrows(StackOverflowError.class, () -> cache.get("default", "StockQueryTool", "{}", () -> {
+            throw new StackOverflowError();
+        }));
+
+        assertEquals("ok", cache.get("default", "StockQueryTool", "{}", () -> "ok"));
+    }
+
+    @Test
+    void shouldInvalidateOnDeclaredEvent() throws Exception {
+        cache.get("default", "StockQueryTool", "{}", () -> "stale");
+
+        eventBus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ONE, BigDecimal.TEN, "test", "default"));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.counter("tool.cache.evictions", "cause", "event").count() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("fresh", cache.get("default", "StockQueryTool", "{}", () -> "fresh"));
+    }
+
+    @Test
+    void shouldInvalidateOnlyTheEventsTenant() throws Exception {
+        cache.get("default", "StockQueryTool", "{}", () -> "stale");
+        cache.get("tenant-b", "StockQueryTool", "{}", () -> "kept");
+
+        eventBus.publish(new StockLevelChanged(1L, "WH-01", BigDecimal.ONE, BigDecimal.TEN, "test", "default"));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.counter("tool.cache.evictions", "cause", "event").count() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("fresh", cache.get("default", "StockQueryTool", "{}", () -> "fresh"));
+        assertEquals("kept", cache.get("tenant-b", "StockQueryTool", "{}", () -> "reloaded"));
+        assertEquals(1.0, meterRegistry.counter("tool.cache.evictions", "cause", "event").count());
+    }
+
+    @Test
+    void shouldStopWaitingForSharedCallAfterJoinTimeout() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> owner = CompletableFuture.supplyAsync(
+                () -> cache.get("default", "StockQueryTool", "{}", () -> {
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                }));
+        assertTrue(loading.await(2, TimeUnit.SECONDS));
+
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> cache.get("default", "StockQueryTool", "{}", () -> "unused"));
+        } finally {
+            release.countDown();
+        }
+        assertEquals("slow", owner.get(2, TimeUnit.SECONDS));
+    }
+}
@@ -1,20 +1,30 @@
 package com.erp.ia.web;
 
 import com.erp.ia.agent.AgentOrchestrator;
+import com.erp.ia.agent.AgentProgressListener;
 import com.erp.ia.agent.model.ActionPlan;
 import com.erp.ia.agent.model.AgentResponse;
+import com.erp.ia.policy.PolicyResult;
 import com.erp.ia.web.AgentController.IntentRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -105,4 +115,89 @@ class AgentControllerTest {
                                 .andExpect(status().isNotFound())
                                 .andExpect(jsonPath("$.error").value("NOT_FOUND"));
         }
+
+        @Test
+        void streamIntent_emitsPhasesThenCompleted() throws Exception {
+                AgentResponse mockResponse = new AgentResponse(
+                                "Análise concluída", ActionPlan.empty("Nenhuma ação"),
+                                List.of(), "audit-123");
+                when(orchestrator.process(any(), any())).thenAnswer(inv -> {
+                        AgentProgressListener listener = inv.getArgument(1);
+                        listener.onRouted("inventory-agent");
+                        listener.onLlmChunk("{\"response\"");
+                        listener.onPolicy(PolicyResult.pass());
+                        return mockResponse;
+                });
+
+                MvcResult result = mockMvc.perform(post("/api/v1/agent/stream")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("""
+                                                {"intent": "reorder", "user": "admin"}
+                                                """))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                result.getAsyncResult(5000);
+
+                String body = result.getResponse().getContentAsString();
+                assertTrue(body.indexOf("event:routed") < body.indexOf("event:token"));
+                assertTrue(body.indexOf("event:token") < body.indexOf("event:policy"));
+                assertTrue(body.indexOf("event:policy") < body.indexOf("event:completed"));
+                assertTrue(body.contains("\"auditId\":\"audit-123\""));
+        }
+
+        @Test
+        void streamIntent_unknownAgent_emitsErrorEvent() throws Exception {
+                when(orchestrator.process(any(), any()))
+                                .thenThrow(new IllegalArgumentException("No agent found for intent: xyz"));
+
+                MvcResult result = mockMvc.perform(post("/api/v1/agent/stream")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("""
+                                                {"intent": "xyz", "user": "admin"}
+                                                """))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                result.getAsyncResult(5000);
+
+                String body = result.getResponse().getContentAsString();
+                assertTrue(body.contains("event:error"));
+                assertTrue(body.contains("NOT_FOUND"));
+        }
+
+        @Test
+        void streamIntent_timeoutInterruptsPipeline() throws Exception {
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch stopped = new CountDownLatch(1);
+                AtomicBoolean cancelled = new AtomicBoolean();
+                when(orchestrator.process(any(), any())).thenAnswer(inv -> {
+                        AgentProgressListener listener = inv.getArgument(1);
+                        started.countDown();
+                        try {
+                                Thread.sleep(10_000);
+                        } catch (InterruptedException e) {
+                                cancelled.set(listener.isCancelled());
+                                stopped.countDown();
+                                throw e;
+                        }
+                        return null;
+                });
+
+                MvcResult result = mockMvc.perform(post("/api/v1/agent/stream")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("""
+                                                {"intent": "reorder", "user": "admin"}
+                                                """))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+
+                MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+                for (var listener : asyncContext.getListeners()) {
+                        listener.onTimeout(new AsyncEvent(asyncContext));
+                }
+
+                assertTrue(stopped.await(5, TimeUnit.SECONDS));
+                assertTrue(cancelled.get());
+                assertFalse(result.getResponse().getContentAsString().contains("event:completed"));
+        }
 }